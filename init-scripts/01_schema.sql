@@ -156,6 +156,8 @@ CREATE TABLE alertas (
 CREATE INDEX idx_alertas_instancia ON alertas(instancia_reporte_id);
 CREATE INDEX idx_alertas_usuario ON alertas(usuario_destino_id, leida);
 CREATE INDEX idx_alertas_programada ON alertas(fecha_programada, enviada);
+-- Contador y "marcar todas" del administrador: solo las alertas sin leer
+CREATE INDEX idx_alertas_no_leidas ON alertas(usuario_destino_id) WHERE leida = false;
 
 -- =====================================================
 -- TABLAS DE AUDITORÍA
@@ -189,4 +191,207 @@ CREATE TABLE logs_sistema (
 
 CREATE INDEX idx_logs_usuario ON logs_sistema(usuario_id);
 CREATE INDEX idx_logs_fecha ON logs_sistema(fecha);
-CREATE INDEX idx_logs_modulo ON logs_sistema(modulo);
\ No newline at end of file
+CREATE INDEX idx_logs_modulo ON logs_sistema(modulo);
+
+-- Soporte para paginación por cursor (fecha_vencimiento_calculada, id_instancia)
+CREATE INDEX idx_instancias_venc_id ON instancias_reporte(fecha_vencimiento_calculada, id_instancia);
+CREATE INDEX idx_instancias_envio ON instancias_reporte(fecha_envio_real DESC);
+
+-- Filtros del calendario: por reporte (entidad, responsable, frecuencia) dentro de un rango de fechas
+CREATE INDEX idx_instancias_reporte_venc ON instancias_reporte(reporte_id, fecha_vencimiento_calculada);
+CREATE INDEX idx_reportes_frecuencia ON reportes(frecuencia_id);
+CREATE INDEX idx_reportes_entidad_frecuencia ON reportes(entidad_id, frecuencia_id);
+
+-- =====================================================
+-- ACUMULADO MENSUAL DE CUMPLIMIENTO
+-- =====================================================
+-- mes × entidad × responsable × categoría (A Tiempo, Tarde, Vencido, Pendiente).
+-- Se actualiza al cambiar el estado de una instancia y se reconstruye cada noche.
+
+CREATE TABLE cumplimiento_mensual (
+    id_cumplimiento BIGSERIAL PRIMARY KEY,
+    mes DATE NOT NULL,
+    entidad_id BIGINT NOT NULL REFERENCES entidades(id_entidad),
+    responsable_id BIGINT NOT NULL REFERENCES usuarios(id_usuario),
+    categoria VARCHAR(20) NOT NULL,
+    total BIGINT NOT NULL DEFAULT 0,
+    fecha_actualizacion TIMESTAMPTZ DEFAULT NOW(),
+
+    CONSTRAINT uk_cumplimiento_mensual UNIQUE (mes, entidad_id, responsable_id, categoria)
+);
+
+CREATE INDEX idx_cumplimiento_mensual_entidad ON cumplimiento_mensual(entidad_id, mes);
+CREATE INDEX idx_cumplimiento_mensual_responsable ON cumplimiento_mensual(responsable_id, mes);
+
+-- =====================================================
+-- OUTBOX DE NOTIFICACIONES
+-- =====================================================
+-- Un mensaje por destinatario y canal. Se escribe en la transacción del cambio
+-- de negocio y lo envía NotificacionDispatcher con reintentos.
+
+CREATE TABLE notificaciones_pendientes (
+    id_notificacion BIGSERIAL PRIMARY KEY,
+    canal VARCHAR(20) NOT NULL,
+    destinatario VARCHAR(150) NOT NULL,
+    asunto VARCHAR(255),
+    cuerpo TEXT NOT NULL,
+    referencia VARCHAR(100),
+    estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+    intentos INT NOT NULL DEFAULT 0,
+    proximo_intento TIMESTAMPTZ DEFAULT NOW(),
+    ultimo_error TEXT,
+    fecha_envio TIMESTAMPTZ,
+    fecha_creacion TIMESTAMPTZ DEFAULT NOW(),
+    fecha_actualizacion TIMESTAMPTZ DEFAULT NOW()
+);
+
+CREATE INDEX idx_notificaciones_pendientes_estado ON notificaciones_pendientes(estado, proximo_intento);
+
+-- =====================================================
+-- CONTROL DE GENERACIÓN DE INSTANCIAS
+-- =====================================================
+-- Punto de control por reporte del job de horizonte: hasta qué fecha hay
+-- instancias generadas y con qué calendario (frecuencia|día|mes). Si el
+-- calendario cambia, se regeneran las instancias futuras pendientes.
+
+CREATE TABLE control_generacion_instancias (
+    reporte_id VARCHAR(50) PRIMARY KEY REFERENCES reportes(id_reporte) ON DELETE CASCADE,
+    generado_hasta DATE NOT NULL,
+    firma_calendario VARCHAR(100) NOT NULL,
+    fecha_actualizacion TIMESTAMPTZ DEFAULT NOW()
+);
+
+-- =====================================================
+-- BÚSQUEDA DE TEXTO EN INSTANCIAS
+-- =====================================================
+-- Búsqueda libre del calendario sobre nombre del reporte, razón social,
+-- período y observaciones. texto_busqueda (tsvector, español sin tildes)
+-- resuelve palabras y prefijos con ranking; texto_plano (minúsculas sin tildes,
+-- índice trigram) resuelve coincidencias parciales dentro de una palabra.
+-- Ambas columnas las mantienen los triggers; la aplicación no las escribe.
+
+CREATE EXTENSION IF NOT EXISTS "unaccent";
+
+CREATE TEXT SEARCH CONFIGURATION es_sin_acentos (COPY = spanish);
+ALTER TEXT SEARCH CONFIGURATION es_sin_acentos
+    ALTER MAPPING FOR hword, hword_part, word WITH unaccent, spanish_stem;
+
+ALTER TABLE instancias_reporte ADD COLUMN texto_busqueda TSVECTOR;
+ALTER TABLE instancias_reporte ADD COLUMN texto_plano TEXT;
+
+CREATE INDEX idx_instancias_texto_busqueda ON instancias_reporte USING GIN (texto_busqueda);
+CREATE INDEX idx_instancias_texto_plano ON instancias_reporte USING GIN (texto_plano gin_trgm_ops);
+
+CREATE OR REPLACE FUNCTION actualizar_texto_busqueda_instancia()
+RETURNS TRIGGER AS $$
+DECLARE
+    v_nombre TEXT;
+    v_razon_social TEXT;
+BEGIN
+    SELECT r.nombre, e.razon_social INTO v_nombre, v_razon_social
+    FROM reportes r JOIN entidades e ON e.id_entidad = r.entidad_id
+    WHERE r.id_reporte = NEW.reporte_id;
+
+    NEW.texto_busqueda :=
+        setweight(to_tsvector('es_sin_acentos', coalesce(v_nombre, '')), 'A') ||
+        setweight(to_tsvector('es_sin_acentos', coalesce(v_razon_social, '')), 'B') ||
+        setweight(to_tsvector('es_sin_acentos', coalesce(NEW.periodo_reportado, '')), 'B') ||
+        setweight(to_tsvector('es_sin_acentos', coalesce(NEW.observaciones, '')), 'C');
+    NEW.texto_plano := lower(unaccent(concat_ws(' ', v_nombre, v_razon_social, NEW.periodo_reportado, NEW.observaciones)));
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tr_instancias_texto_busqueda
+    BEFORE INSERT OR UPDATE OF reporte_id, periodo_reportado, observaciones ON instancias_reporte
+    FOR EACH ROW
+    EXECUTE FUNCTION actualizar_texto_busqueda_instancia();
+
+-- Si cambia el nombre del reporte o la razón social de la entidad, se recalculan sus instancias
+CREATE OR REPLACE FUNCTION refrescar_texto_busqueda_reporte()
+RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE instancias_reporte SET reporte_id = reporte_id WHERE reporte_id = NEW.id_reporte;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tr_reportes_texto_busqueda
+    AFTER UPDATE OF nombre, entidad_id ON reportes
+    FOR EACH ROW
+    WHEN (OLD.nombre IS DISTINCT FROM NEW.nombre OR OLD.entidad_id IS DISTINCT FROM NEW.entidad_id)
+    EXECUTE FUNCTION refrescar_texto_busqueda_reporte();
+
+CREATE OR REPLACE FUNCTION refrescar_texto_busqueda_entidad()
+RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE instancias_reporte SET reporte_id = reporte_id
+    WHERE reporte_id IN (SELECT id_reporte FROM reportes WHERE entidad_id = NEW.id_entidad);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tr_entidades_texto_busqueda
+    AFTER UPDATE OF razon_social ON entidades
+    FOR EACH ROW
+    WHEN (OLD.razon_social IS DISTINCT FROM NEW.razon_social)
+    EXECUTE FUNCTION refrescar_texto_busqueda_entidad();
+
+-- Bases existentes: calcular las columnas de las instancias ya cargadas
+UPDATE instancias_reporte SET reporte_id = reporte_id;
+
+-- =====================================================
+-- CALENDARIO DE DÍAS HÁBILES
+-- =====================================================
+-- Los festivos nacionales (fijos, Ley Emiliani y los que dependen de la Pascua)
+-- los calcula la aplicación. Aquí solo van las excepciones: días no hábiles que
+-- no salen de la regla (habil = false) o días que se trabajan (habil = true),
+-- para todas las entidades (entidad_id NULL) o para una sola.
+
+CREATE TABLE dias_festivos (
+    id_dia_festivo SERIAL PRIMARY KEY,
+    fecha DATE NOT NULL,
+    descripcion VARCHAR(150),
+    entidad_id BIGINT REFERENCES entidades(id_entidad) ON DELETE CASCADE,
+    habil BOOLEAN NOT NULL DEFAULT false,
+
+    CONSTRAINT uk_dia_festivo UNIQUE (fecha, entidad_id)
+);
+
+-- uk_dia_festivo no cubre las generales: en UNIQUE dos NULL son distintos
+CREATE UNIQUE INDEX uk_dia_festivo_general ON dias_festivos(fecha) WHERE entidad_id IS NULL;
+CREATE INDEX idx_dias_festivos_entidad ON dias_festivos(entidad_id);
+
+-- Reportes cuyo plazo adicional se cuenta en días hábiles; su vencimiento
+-- se corre al siguiente día hábil
+ALTER TABLE reportes ADD COLUMN plazo_dias_habiles BOOLEAN NOT NULL DEFAULT false;
+
+-- =====================================================
+-- ENVÍOS DE REPORTES EN SEGUNDO PLANO
+-- =====================================================
+-- La petición deja el archivo en staging y crea la fila; un worker lo sube,
+-- marca la instancia como enviada y notifica. fecha_creacion es la fecha de
+-- envío que cuenta para el vencimiento.
+
+CREATE TABLE envios_reporte (
+    id_envio BIGSERIAL PRIMARY KEY,
+    instancia_id BIGINT NOT NULL REFERENCES instancias_reporte(id_instancia) ON DELETE CASCADE,
+    correo_usuario VARCHAR(150) NOT NULL,
+    archivo_staging VARCHAR(500) NOT NULL,
+    nombre_archivo VARCHAR(255),
+    content_type VARCHAR(100),
+    tamano_bytes BIGINT NOT NULL DEFAULT 0,
+    observaciones TEXT,
+    link_evidencia VARCHAR(1024),
+    estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+    intentos INT NOT NULL DEFAULT 0,
+    proximo_intento TIMESTAMPTZ DEFAULT NOW(),
+    ultimo_error TEXT,
+    file_id VARCHAR(255),
+    link_reporte VARCHAR(1024),
+    fecha_completado TIMESTAMPTZ,
+    fecha_creacion TIMESTAMPTZ DEFAULT NOW(),
+    fecha_actualizacion TIMESTAMPTZ DEFAULT NOW()
+);
+
+CREATE INDEX idx_envios_reporte_estado ON envios_reporte(estado, proximo_intento);
@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReglaVencimiento frente al cálculo anterior (VencimientosLegado): generación de
+ * dos años de periodos, como una corrida del horizonte, y vencimiento de periodos
+ * reportados, como la creación manual de instancias. La regla se compila una vez,
+ * igual que la cachea FechaVencimientoCalculator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReglaVencimientoBenchmark {
+
+    private static final LocalDate INICIO = LocalDate.of(2025, 1, 1);
+    private static final LocalDate FIN = LocalDate.of(2026, 12, 31);
+
+    @Param({"MENSUAL", "TRIMESTRAL", "ANUAL"})
+    public String frecuencia;
+
+    private ReglaVencimiento regla;
+    private String[] periodos;
+
+    @Setup
+    public void preparar() {
+        regla = ReglaVencimiento.compilar(frecuencia, 20, 2, null);
+        periodos = switch (frecuencia) {
+            case "TRIMESTRAL" -> new String[]{"2025-Q1", "2025-Q2", "2025-Q3", "2025-Q4",
+                    "2026-Q1", "2026-Q2", "2026-Q3", "2026-Q4"};
+            case "ANUAL" -> new String[]{"2021", "2022", "2023", "2024", "2025", "2026"};
+            default -> new String[]{"2025-01", "2025-02", "2025-03", "2025-04", "2025-05", "2025-06",
+                    "2025-07", "2025-08", "2025-09", "2025-10", "2025-11", "2025-12"};
+        };
+    }
+
+    @Benchmark
+    public Map<String, LocalDate> generarLegado() {
+        return VencimientosLegado.generar(frecuencia, 20, 2, INICIO, FIN);
+    }
+
+    @Benchmark
+    public Map<String, LocalDate> generarRegla() {
+        return regla.vencimientosEntre(INICIO, FIN);
+    }
+
+    @Benchmark
+    public void periodoLegado(Blackhole bh) {
+        for (String periodo : periodos) {
+            bh.consume(VencimientosLegado.vencimientoReportado(frecuencia, 20, 2, null, periodo));
+        }
+    }
+
+    @Benchmark
+    public void periodoRegla(Blackhole bh) {
+        for (String periodo : periodos) {
+            bh.consume(regla.fechaVencimientoReportado(periodo));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import com.example.demo.service.AlmacenamientoArchivos;
+import com.example.demo.service.AlmacenamientoLocalService;
+import com.example.demo.service.GoogleDriveService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class AlmacenamientoConfig {
+
+    /**
+     * Almacenamiento de los archivos enviados: Google Drive si quedó configurado al
+     * arrancar; si no, el almacenamiento local direccionado por contenido.
+     */
+    @Bean
+    @Primary
+    public AlmacenamientoArchivos almacenamientoArchivos(GoogleDriveService drive, AlmacenamientoLocalService local) {
+        if (drive.isDriveEnabled()) {
+            return drive;
+        }
+        System.out.println("ℹ Archivos en almacenamiento local: " + local.getRaiz());
+        return local;
+    }
+}
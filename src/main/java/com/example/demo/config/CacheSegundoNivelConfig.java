@@ -0,0 +1,71 @@
+package com.example.demo.config;
+
+import com.example.demo.entity.*;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché de segundo nivel de Hibernate sobre Caffeine (JCache). Guarda las entidades
+ * que casi no cambian y que cuelgan de cada instancia y alerta (reporte, entidad,
+ * usuarios, rol y catálogos), más la caché de consultas. Las regiones se crean aquí,
+ * con el tamaño de application.properties, y se le pasan a Hibernate ya hechas.
+ */
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    // Región por entidad: Hibernate usa el nombre completo de la clase
+    public static final List<Class<?>> ENTIDADES_CACHEADAS = List.of(
+            Reporte.class, Entidad.class, Usuario.class, Rol.class,
+            Frecuencia.class, EstadoCumplimiento.class, TipoAlerta.class);
+
+    public static final String REGION_CONSULTAS = "default-query-results-region";
+    public static final String REGION_MARCAS_ACTUALIZACION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheSegundoNivel(
+            @Value("${cache.segundo-nivel.maximo-entidades:10000}") long maximoEntidades,
+            @Value("${cache.segundo-nivel.maximo-consultas:2000}") long maximoConsultas,
+            @Value("${cache.segundo-nivel.ttl-minutos:60}") long ttlMinutos) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+        for (Class<?> entidad : ENTIDADES_CACHEADAS) {
+            crearRegion(cacheManager, entidad.getName(), maximoEntidades, ttlMinutos);
+        }
+        crearRegion(cacheManager, REGION_CONSULTAS, maximoConsultas, ttlMinutos);
+        // Una marca por tabla; si expirara antes que las consultas, servirían resultados viejos
+        crearRegion(cacheManager, REGION_MARCAS_ACTUALIZACION, 0, 0);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivelHibernate(CacheManager cacheSegundoNivel) {
+        return propiedades -> propiedades.put(ConfigSettings.CACHE_MANAGER, cacheSegundoNivel);
+    }
+
+    /**
+     * Región con tamaño máximo y expiración tras escritura (0 = sin límite).
+     */
+    private static void crearRegion(CacheManager cacheManager, String nombre, long maximo, long ttlMinutos) {
+        CaffeineConfiguration<Object, Object> configuracion = new CaffeineConfiguration<>();
+        if (maximo > 0) {
+            configuracion.setMaximumSize(OptionalLong.of(maximo));
+        }
+        if (ttlMinutos > 0) {
+            configuracion.setExpireAfterWrite(OptionalLong.of(TimeUnit.MINUTES.toNanos(ttlMinutos)));
+        }
+        cacheManager.createCache(nombre, configuracion);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class NotificacionesConfig {
+
+    /**
+     * Pool acotado para enviar correos. El número de hilos es el máximo de
+     * conexiones SMTP simultáneas.
+     */
+    @Bean(name = "notificacionesEmailExecutor")
+    public ThreadPoolTaskExecutor notificacionesEmailExecutor(
+            @Value("${notificaciones.envio.concurrencia-email:4}") int hilos,
+            @Value("${notificaciones.outbox.capacidad-cola:100}") int capacidadCola) {
+        return crearExecutor("notificaciones-email-", hilos, capacidadCola);
+    }
+
+    /**
+     * Pool acotado para enviar mensajes de WhatsApp (Twilio).
+     */
+    @Bean(name = "notificacionesWhatsAppExecutor")
+    public ThreadPoolTaskExecutor notificacionesWhatsAppExecutor(
+            @Value("${notificaciones.envio.concurrencia-whatsapp:2}") int hilos,
+            @Value("${notificaciones.outbox.capacidad-cola:100}") int capacidadCola) {
+        return crearExecutor("notificaciones-whatsapp-", hilos, capacidadCola);
+    }
+
+    /**
+     * Pool que escribe los eventos SSE de alertas. Cada conexión tiene como
+     * máximo una tarea en cola, así que la capacidad acota las conexiones activas.
+     */
+    @Bean(name = "alertasStreamExecutor")
+    public ThreadPoolTaskExecutor alertasStreamExecutor(
+            @Value("${alertas.stream.hilos:2}") int hilos,
+            @Value("${alertas.stream.maximo-conexiones:1000}") int maximoConexiones) {
+        return crearExecutor("alertas-stream-", hilos, maximoConexiones);
+    }
+
+    private ThreadPoolTaskExecutor crearExecutor(String prefijo, int hilos, int capacidadCola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix(prefijo);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,9 +1,49 @@
 package com.example.demo.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 @EnableScheduling
 public class SchedulingConfig {
+
+    /**
+     * Pool del job de horizonte de instancias: una partición de reportes por hilo.
+     * Cada hilo usa una conexión de BD, por eso es pequeño.
+     */
+    @Bean(name = "horizonteInstanciasExecutor")
+    public ThreadPoolTaskExecutor horizonteInstanciasExecutor(
+            @Value("${instancias.horizonte.hilos:2}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(hilos);
+        executor.setThreadNamePrefix("horizonte-instancias-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool de envíos de reportes en segundo plano: cada hilo sube un archivo a la vez.
+     * Si la cola se llena, los envíos quedan pendientes y los retoma la ronda programada.
+     */
+    @Bean(name = "enviosReporteExecutor")
+    public ThreadPoolTaskExecutor enviosReporteExecutor(
+            @Value("${envios.async.hilos:4}") int hilos,
+            @Value("${envios.async.capacidad-cola:100}") int capacidadCola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("envios-reporte-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
 }
@@ -2,10 +2,13 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.AlertaDTO;
 import com.example.demo.entity.Alerta;
+import com.example.demo.security.TicketStreamService;
 import com.example.demo.service.AlertaService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -16,9 +19,11 @@ import java.util.Map;
 public class AlertaController {
 
     private final AlertaService service;
+    private final TicketStreamService ticketStream;
 
-    public AlertaController(AlertaService service) {
+    public AlertaController(AlertaService service, TicketStreamService ticketStream) {
         this.service = service;
+        this.ticketStream = ticketStream;
     }
 
     @GetMapping
@@ -95,6 +100,25 @@ public class AlertaController {
         return ResponseEntity.ok(Map.of("noLeidas", count));
     }
 
+    /**
+     * Stream SSE de mis alertas no leídas: contador inicial y luego solo cambios.
+     * EventSource no envía cabeceras, por eso se abre con ?ticket= (ver /stream/ticket)
+     */
+    @GetMapping(value = "/mis-alertas/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMisAlertas(Authentication authentication) {
+        return service.suscribirAlertas(authentication);
+    }
+
+    /**
+     * Ticket de un solo uso y pocos segundos para abrir el stream sin poner el JWT en la URL.
+     */
+    @PostMapping("/mis-alertas/stream/ticket")
+    public ResponseEntity<Map<String, Object>> ticketStream(Authentication authentication) {
+        return ResponseEntity.ok(Map.of(
+                "ticket", ticketStream.emitir(authentication.getName()),
+                "expiraEnSegundos", ticketStream.getVigenciaSegundos()));
+    }
+
     /**
      * Marcar una alerta como leída
      */
@@ -0,0 +1,149 @@
+package com.example.demo.controller;
+
+import com.example.demo.security.EnlaceDescargaService;
+import com.example.demo.service.AlmacenamientoArchivos;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Descarga de archivos del almacenamiento local, con soporte de Range para
+ * reanudar descargas o leer por partes. El contenido se copia del archivo a la
+ * respuesta con FileChannel, sin cargarlo en el heap.
+ *
+ * La descarga acepta el Bearer (fetch/XHR) o un enlace firmado de vigencia corta
+ * (POST /{fileId}/enlace) para abrirlo directamente en el navegador.
+ */
+@RestController
+@RequestMapping("/api/archivos")
+@CrossOrigin
+public class ArchivoController {
+
+    private final AlmacenamientoArchivos almacenamiento;
+    private final EnlaceDescargaService enlaces;
+
+    public ArchivoController(AlmacenamientoArchivos almacenamiento, EnlaceDescargaService enlaces) {
+        this.almacenamiento = almacenamiento;
+        this.enlaces = enlaces;
+    }
+
+    /**
+     * Enlace firmado para descargar el archivo sin cabecera Authorization.
+     */
+    @PostMapping("/{fileId}/enlace")
+    public ResponseEntity<Map<String, Object>> enlace(@PathVariable String fileId,
+                                                      @RequestParam(required = false) String nombre) {
+        if (almacenamiento.ubicar(fileId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of(
+                "url", enlaces.firmar(fileId, nombre),
+                "expiraEnSegundos", enlaces.getVigenciaSegundos()));
+    }
+
+    /**
+     * Descarga un archivo por su fileId. "nombre" es el nombre con el que se guarda
+     * (el contenido se comparte entre envíos idénticos con nombres distintos).
+     */
+    @GetMapping("/{fileId}")
+    public ResponseEntity<StreamingResponseBody> descargar(
+            @PathVariable String fileId,
+            @RequestParam(required = false) String nombre,
+            @RequestParam(required = false) Long expira,
+            @RequestParam(required = false) String firma,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rango,
+            Authentication authentication) throws IOException {
+
+        // Sin Bearer solo con un enlace firmado vigente (la ruta es pública en SecurityConfig)
+        if (authentication == null && !enlaces.esValida(fileId, nombre, expira, firma)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        Optional<Path> ubicado = almacenamiento.ubicar(fileId);
+        if (ubicado.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Path archivo = ubicado.get();
+        long tamano = Files.size(archivo);
+        String nombreDescarga = nombre != null && !nombre.isBlank() ? nombre : fileId;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setContentType(MediaTypeFactory.getMediaType(nombreDescarga).orElse(MediaType.APPLICATION_OCTET_STREAM));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(nombreDescarga, StandardCharsets.UTF_8)
+                .build());
+
+        long inicio = 0;
+        long fin = tamano - 1;
+        HttpStatus status = HttpStatus.OK;
+        List<HttpRange> rangos = parsearRangos(rango);
+        // Un solo rango; con varios (poco común) se envía el archivo completo
+        if (rangos.size() == 1) {
+            try {
+                inicio = rangos.get(0).getRangeStart(tamano);
+                fin = rangos.get(0).getRangeEnd(tamano);
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + tamano);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+            }
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + tamano);
+            status = HttpStatus.PARTIAL_CONTENT;
+        }
+
+        long desde = inicio;
+        long longitud = fin - inicio + 1;
+        headers.setContentLength(longitud);
+        StreamingResponseBody cuerpo = salida -> copiar(archivo, desde, longitud, salida);
+        return ResponseEntity.status(status).headers(headers).body(cuerpo);
+    }
+
+    private static List<HttpRange> parsearRangos(String rango) {
+        if (rango == null || rango.isBlank()) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(rango);
+        } catch (IllegalArgumentException e) {
+            // Range mal formado: se ignora y se envía completo (RFC 9110)
+            return List.of();
+        }
+    }
+
+    /**
+     * Copia el tramo pedido con FileChannel.transferTo hacia la respuesta, por
+     * bloques y sin buffers del tamaño del archivo.
+     */
+    private static void copiar(Path archivo, long desde, long longitud, OutputStream salida) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            WritableByteChannel destino = Channels.newChannel(salida);
+            long enviados = 0;
+            while (enviados < longitud) {
+                long n = canal.transferTo(desde + enviados, longitud - enviados, destino);
+                if (n <= 0) {
+                    break;
+                }
+                enviados += n;
+            }
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.EventoCalendarioDTO;
+import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.entity.InstanciaReporte;
 import com.example.demo.service.CalendarioService;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.time.YearMonth;
@@ -42,12 +48,25 @@ public class CalendarioController {
         return service.obtenerMiCalendario(mes, authentication);
     }
 
+    /**
+     * Soporta If-None-Match: si el año no cambió responde 304 sin cargar las instancias.
+     */
     @GetMapping("/vista-anual")
-    public Map<String, List<EventoCalendarioDTO>> obtenerVistaAnual(
+    public ResponseEntity<Map<String, List<EventoCalendarioDTO>>> obtenerVistaAnual(
             @RequestParam int year,
-            Authentication authentication) {
-        
-        return service.obtenerVistaAnual(year, authentication);
+            Authentication authentication,
+            WebRequest request) {
+
+        String etag = service.calcularEtagVistaAnual(year, authentication);
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(service.obtenerVistaAnual(year, authentication));
     }
 
     @GetMapping("/buscar")
@@ -67,4 +86,28 @@ public class CalendarioController {
             responsableElaboracionId, responsableSupervisionId, proceso, busquedaLibre
         );
     }
+
+    /**
+     * Búsqueda avanzada paginada. Con busquedaLibre ordena por relevancia
+     * (palabras sin tildes y prefijos); sin ella, por vencimiento más reciente.
+     */
+    @GetMapping("/buscar/pagina")
+    public PaginaDTO<InstanciaReporteDTO> buscarReportesPaginado(
+            @RequestParam(required = false) Integer entidadId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(required = false) String periodoReportado,
+            @RequestParam(required = false) Integer estadoId,
+            @RequestParam(required = false) Integer responsableElaboracionId,
+            @RequestParam(required = false) Integer responsableSupervisionId,
+            @RequestParam(required = false) String proceso,
+            @RequestParam(required = false) String busquedaLibre,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "50") int tamano) {
+
+        return service.buscarReportesPaginado(
+            entidadId, fechaInicio, fechaFin, periodoReportado, estadoId,
+            responsableElaboracionId, responsableSupervisionId, proceso, busquedaLibre, pagina, tamano
+        );
+    }
 }
@@ -0,0 +1,43 @@
+package com.example.demo.controller;
+
+import com.example.demo.entity.DiaFestivo;
+import com.example.demo.service.DiaFestivoService;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/dias-festivos")
+@CrossOrigin
+public class DiaFestivoController {
+
+    private final DiaFestivoService service;
+
+    public DiaFestivoController(DiaFestivoService service) {
+        this.service = service;
+    }
+
+    @GetMapping
+    public List<DiaFestivo> listar(@RequestParam(required = false) Integer entidadId) {
+        return service.listar(entidadId);
+    }
+
+    @PostMapping
+    public DiaFestivo crear(@RequestBody DiaFestivo diaFestivo) {
+        return service.crear(diaFestivo);
+    }
+
+    @DeleteMapping("/{id}")
+    public void eliminar(@PathVariable Integer id) {
+        service.eliminar(id);
+    }
+
+    /**
+     * Días no hábiles del año (fines de semana, festivos y excepciones) de una entidad o nacionales.
+     */
+    @GetMapping("/no-habiles")
+    public List<LocalDate> noHabiles(@RequestParam int anio, @RequestParam(required = false) Integer entidadId) {
+        return service.listarNoHabiles(anio, entidadId);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.EstadisticasDTO;
+import com.example.demo.service.CumplimientoMensualService;
 import com.example.demo.service.EstadisticasService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
@@ -14,9 +15,12 @@ import java.util.Map;
 public class EstadisticasController {
 
     private final EstadisticasService service;
+    private final CumplimientoMensualService cumplimientoMensual;
 
-    public EstadisticasController(EstadisticasService service) {
+    public EstadisticasController(EstadisticasService service,
+                                  CumplimientoMensualService cumplimientoMensual) {
         this.service = service;
+        this.cumplimientoMensual = cumplimientoMensual;
     }
 
     @GetMapping("/dashboard")
@@ -96,4 +100,13 @@ public class EstadisticasController {
         
         return service.obtenerResumenPorPeriodo(fechaInicio, fechaFin);
     }
-}
\ No newline at end of file
+
+    /**
+     * Reconstruye el acumulado mensual de cumplimiento (normalmente lo hace el job nocturno).
+     */
+    @PostMapping("/cumplimiento-mensual/reconstruir")
+    public Map<String, Object> reconstruirCumplimientoMensual() {
+        int filas = cumplimientoMensual.reconstruir();
+        return Map.of("mensaje", "Acumulado mensual reconstruido", "filas", filas);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.demo.controller;
 
+import com.example.demo.service.CacheSegundoNivelService;
+import com.example.demo.service.CatalogoCacheService;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -12,6 +14,14 @@ import java.util.Map;
 @RequestMapping("/")
 public class HealthController {
 
+    private final CatalogoCacheService catalogos;
+    private final CacheSegundoNivelService cacheSegundoNivel;
+
+    public HealthController(CatalogoCacheService catalogos, CacheSegundoNivelService cacheSegundoNivel) {
+        this.catalogos = catalogos;
+        this.cacheSegundoNivel = cacheSegundoNivel;
+    }
+
     @GetMapping
     public Map<String, Object> health() {
         Map<String, Object> response = new HashMap<>();
@@ -28,4 +38,16 @@ public class HealthController {
         response.put("status", "OK");
         return response;
     }
+
+    /**
+     * Aciertos y cargas de la caché de catálogos y de la de segundo nivel de
+     * Hibernate (requiere autenticación).
+     */
+    @GetMapping("/health/caches")
+    public Map<String, Object> caches() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("catalogos", catalogos.estadisticas());
+        response.put("hibernate", cacheSegundoNivel.estadisticas());
+        return response;
+    }
 }
@@ -1,15 +1,22 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.EnvioReporteDTO;
 import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.entity.InstanciaReporte;
+import com.example.demo.service.EnvioReporteService;
 import com.example.demo.service.InstanciaReporteService;
 import com.example.demo.service.GoogleDriveService;
+import com.example.demo.service.HorizonteInstanciasService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -20,10 +27,16 @@ public class InstanciaReporteController {
 
     private final InstanciaReporteService service;
     private final GoogleDriveService driveService;
+    private final HorizonteInstanciasService horizonteService;
+    private final EnvioReporteService envioService;
 
-    public InstanciaReporteController(InstanciaReporteService service, GoogleDriveService driveService) {
+    public InstanciaReporteController(InstanciaReporteService service, GoogleDriveService driveService,
+                                      HorizonteInstanciasService horizonteService,
+                                      EnvioReporteService envioService) {
         this.service = service;
         this.driveService = driveService;
+        this.horizonteService = horizonteService;
+        this.envioService = envioService;
     }
 
     @GetMapping
@@ -79,6 +92,38 @@ public class InstanciaReporteController {
         }
     }
 
+    /**
+     * Envío con archivo en segundo plano: guarda el archivo y responde 202 con el id
+     * del envío; la subida y el cambio de estado ocurren después.
+     * Consultar el avance en /api/instancias/envios/{envioId}.
+     */
+    @PostMapping(value = "/{id}/enviar-async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> enviarReporteAsync(
+            @PathVariable Integer id,
+            @RequestParam("archivo") MultipartFile archivo,
+            @RequestParam(value = "observaciones", required = false) String observaciones,
+            @RequestParam(value = "linkEvidencia", required = false) String linkEvidencia,
+            Authentication authentication) {
+
+        try {
+            EnvioReporteDTO envio = envioService.encolar(id, archivo, observaciones, linkEvidencia, authentication);
+            return ResponseEntity.accepted().body(envio);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Error al enviar reporte",
+                "mensaje", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Estado de un envío en segundo plano.
+     */
+    @GetMapping("/envios/{envioId}")
+    public EnvioReporteDTO consultarEnvio(@PathVariable Integer envioId) {
+        return envioService.consultar(envioId);
+    }
+
     /**
      * Endpoint para enviar solo con link (sin archivo).
      */
@@ -131,6 +176,58 @@ public class InstanciaReporteController {
         return service.listarHistorico(reporteId, entidadId, year, mes);
     }
 
+    /**
+     * Instancias pendientes paginadas por cursor.
+     * Para la siguiente página enviar siguienteFecha/siguienteId de la respuesta anterior.
+     */
+    @GetMapping("/pendientes/pagina")
+    public PaginaDTO<InstanciaReporteDTO> listarPendientesPaginado(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate despuesDeFecha,
+            @RequestParam(required = false) Integer despuesDeId,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return service.listarPendientesPaginado(despuesDeFecha, despuesDeId, tamano);
+    }
+
+    /**
+     * Instancias vencidas paginadas por cursor.
+     */
+    @GetMapping("/vencidos/pagina")
+    public PaginaDTO<InstanciaReporteDTO> listarVencidosPaginado(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate despuesDeFecha,
+            @RequestParam(required = false) Integer despuesDeId,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return service.listarVencidosPaginado(despuesDeFecha, despuesDeId, tamano);
+    }
+
+    /**
+     * Histórico de reportes enviados, paginado (más recientes primero).
+     */
+    @GetMapping("/historico/pagina")
+    public PaginaDTO<InstanciaReporteDTO> listarHistoricoPaginado(
+            @RequestParam(required = false) String reporteId,
+            @RequestParam(required = false) Integer entidadId,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer mes,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return service.listarHistoricoPaginado(reporteId, entidadId, year, mes, pagina, tamano);
+    }
+
+    /**
+     * Completa el horizonte de instancias de todos los reportes activos (normalmente lo hace el job nocturno).
+     * 409 si ya hay una corrida en curso.
+     */
+    @PostMapping("/horizonte")
+    public ResponseEntity<Map<String, Object>> mantenerHorizonte() {
+        Map<String, Object> resultado = horizonteService.mantenerHorizonte();
+        if (Boolean.TRUE.equals(resultado.get("enEjecucion"))) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "enEjecucion", true,
+                    "mensaje", "El horizonte de instancias ya se está generando; intente más tarde"));
+        }
+        return ResponseEntity.ok(resultado);
+    }
+
     /**
      * Verificar si Drive está habilitado.
      */
@@ -140,7 +237,7 @@ public class InstanciaReporteController {
             "enabled", driveService.isDriveEnabled(),
             "message", driveService.isDriveEnabled() 
                 ? "Google Drive está configurado y funcionando" 
-                : "Google Drive no está configurado. Los archivos se guardarán con link manual."
+                : "Google Drive no está configurado. Los archivos se guardarán en el almacenamiento local."
         );
     }
 }
@@ -1,5 +1,6 @@
 package com.example.demo.controller;
 
+import com.example.demo.service.NotificacionDispatcher;
 import com.example.demo.service.WhatsAppService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mail.SimpleMailMessage;
@@ -20,11 +21,38 @@ public class NotificacionesTestController {
 
     private final JavaMailSender mailSender;
     private final WhatsAppService whatsAppService;
+    private final NotificacionDispatcher notificacionDispatcher;
 
     public NotificacionesTestController(JavaMailSender mailSender,
-                                       WhatsAppService whatsAppService) {
+                                       WhatsAppService whatsAppService,
+                                       NotificacionDispatcher notificacionDispatcher) {
         this.mailSender = mailSender;
         this.whatsAppService = whatsAppService;
+        this.notificacionDispatcher = notificacionDispatcher;
+    }
+
+    /**
+     * Estado del outbox de notificaciones: mensajes por canal y estado
+     * GET /api/test/notificaciones/outbox
+     */
+    @GetMapping("/outbox")
+    public ResponseEntity<Map<String, Object>> verificarOutbox() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("porCanal", notificacionDispatcher.resumen());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Ejecutar ya una ronda del outbox y ver el resultado por destinatario
+     * POST /api/test/notificaciones/outbox/despachar
+     */
+    @PostMapping("/outbox/despachar")
+    public ResponseEntity<Map<String, Object>> despacharOutbox() {
+        Map<String, Object> response = new HashMap<>();
+        var resultados = notificacionDispatcher.despachar();
+        response.put("procesadas", resultados.size());
+        response.put("resultados", resultados);
+        return ResponseEntity.ok(response);
     }
 
     /**
@@ -135,7 +163,8 @@ public class NotificacionesTestController {
         
         response.put("whatsapp", Map.of(
             "disponible", whatsappDisponible,
-            "estado", whatsappDisponible ? "ACTIVO" : "NO CONFIGURADO"
+            "estado", whatsappDisponible ? "ACTIVO" : "NO CONFIGURADO",
+            "metricas", whatsAppService.obtenerMetricas()
         ));
         
         response.put("sistema", "Sistema de Notificaciones Dual");
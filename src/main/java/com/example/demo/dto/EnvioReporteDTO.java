@@ -0,0 +1,22 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Estado de un envío en segundo plano, para consultar mientras se sube el archivo.
+ */
+@Data
+public class EnvioReporteDTO {
+    private Integer id;
+    private Integer instanciaId;
+    private String nombreArchivo;
+    private long tamanoBytes;
+    private String estado; // PENDIENTE, PROCESANDO, COMPLETADO, FALLIDO
+    private int intentos;
+    private String ultimoError;
+    private String linkReporte;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaCompletado;
+    private boolean terminado;
+}
@@ -0,0 +1,31 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Respuesta paginada genérica.
+ * Para paginación por cursor (keyset) se usan siguienteFecha/siguienteId;
+ * para paginación por número de página se usan pagina/totalElementos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTO<T> {
+    private List<T> contenido;
+    private int tamano;
+    private boolean hayMas;
+
+    // Paginación por página
+    private Integer pagina;
+    private Long totalElementos;
+    private Integer totalPaginas;
+
+    // Paginación por cursor (fecha_vencimiento_calculada, id_instancia)
+    private LocalDate siguienteFecha;
+    private Integer siguienteId;
+}
@@ -17,6 +17,7 @@ public class ReporteDTO {
     private Integer diaVencimiento;
     private Integer mesVencimiento;
     private Integer plazoAdicionalDias;
+    private boolean plazoDiasHabiles;
     private String formatoRequerido;
     private String linkInstrucciones;
     private Integer responsableElaboracionId;
@@ -19,15 +19,15 @@ public class Alerta {
     @Column(name = "id_alerta")
     private Integer id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "instancia_reporte_id", nullable = false)
     private InstanciaReporte instancia;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "tipo_alerta_id", nullable = false)
     private TipoAlerta tipo;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_destino_id", nullable = false)
     private Usuario usuarioDestino;
 
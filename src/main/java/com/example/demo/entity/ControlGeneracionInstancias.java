@@ -0,0 +1,35 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Punto de control del job de horizonte para un reporte: hasta dónde hay
+ * instancias generadas y con qué calendario se generaron.
+ */
+@Entity
+@Table(name = "control_generacion_instancias")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ControlGeneracionInstancias {
+
+    @Id
+    @Column(name = "reporte_id", length = 50)
+    private String reporteId;
+
+    @Column(name = "generado_hasta", nullable = false)
+    private LocalDate generadoHasta;
+
+    // frecuencia|día|mes con que se generaron las instancias
+    @Column(name = "firma_calendario", nullable = false, length = 100)
+    private String firmaCalendario;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+}
@@ -0,0 +1,47 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Acumulado mensual de cumplimiento por entidad, responsable de elaboración y categoría
+ * (A Tiempo, Tarde, Vencido, Pendiente). Se mantiene incrementalmente al cambiar
+ * el estado de una instancia y se reconstruye completo cada noche.
+ */
+@Entity
+@Table(name = "cumplimiento_mensual",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"mes", "entidad_id", "responsable_id", "categoria"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CumplimientoMensual {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_cumplimiento")
+    private Integer id;
+
+    // Primer día del mes de vencimiento
+    @Column(nullable = false)
+    private LocalDate mes;
+
+    @Column(name = "entidad_id", nullable = false)
+    private Integer entidadId;
+
+    @Column(name = "responsable_id", nullable = false)
+    private Integer responsableId;
+
+    @Column(nullable = false, length = 20)
+    private String categoria;
+
+    @Column(nullable = false)
+    private Long total;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+}
@@ -0,0 +1,41 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Excepción al calendario hábil. Los festivos nacionales (incluidos los trasladados
+ * por Ley Emiliani) se calculan; esta tabla agrega los que no salen de la regla
+ * (días cívicos, decretos) y los ajustes de una entidad. Sin entidad aplica a todas.
+ */
+@Entity
+@Table(name = "dias_festivos",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"fecha", "entidad_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiaFestivo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_dia_festivo")
+    private Integer id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(length = 150)
+    private String descripcion;
+
+    // null = todas las entidades
+    @Column(name = "entidad_id")
+    private Integer entidadId;
+
+    // true = se trabaja ese día aunque sea festivo o fin de semana
+    @Column(nullable = false)
+    private boolean habil = false;
+}
@@ -0,0 +1,98 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Envío de reporte con archivo en segundo plano. La petición deja el archivo en
+ * el área de staging y crea esta fila; un worker lo sube, marca la instancia
+ * como enviada y notifica. El cliente consulta el estado con el id.
+ */
+@Entity
+@Table(name = "envios_reporte")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnvioReporte {
+
+    public static final String ESTADO_PENDIENTE = "PENDIENTE";
+    public static final String ESTADO_PROCESANDO = "PROCESANDO";
+    public static final String ESTADO_COMPLETADO = "COMPLETADO";
+    public static final String ESTADO_FALLIDO = "FALLIDO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_envio")
+    private Integer id;
+
+    @Column(name = "instancia_id", nullable = false)
+    private Integer instanciaId;
+
+    // Usuario autenticado que envió (correo)
+    @Column(name = "correo_usuario", nullable = false, length = 150)
+    private String correoUsuario;
+
+    @Column(name = "archivo_staging", nullable = false, length = 500)
+    private String archivoStaging;
+
+    @Column(name = "nombre_archivo", length = 255)
+    private String nombreArchivo;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "tamano_bytes")
+    private long tamanoBytes;
+
+    @Column(columnDefinition = "TEXT")
+    private String observaciones;
+
+    @Column(name = "link_evidencia", length = 1024)
+    private String linkEvidencia;
+
+    @Column(nullable = false, length = 20)
+    private String estado = ESTADO_PENDIENTE;
+
+    private int intentos;
+
+    @Column(name = "proximo_intento")
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", columnDefinition = "TEXT")
+    private String ultimoError;
+
+    // Archivo ya subido: si falla el registro en la instancia, el reintento no vuelve a subirlo
+    @Column(name = "file_id", length = 255)
+    private String fileId;
+
+    @Column(name = "link_reporte", length = 1024)
+    private String linkReporte;
+
+    @Column(name = "fecha_completado")
+    private LocalDateTime fechaCompletado;
+
+    // Fecha en que el usuario envió: es la que cuenta para el vencimiento
+    @Column(name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+        fechaActualizacion = LocalDateTime.now();
+        if (proximoIntento == null) {
+            proximoIntento = fechaCreacion;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        fechaActualizacion = LocalDateTime.now();
+    }
+}
@@ -25,7 +25,7 @@ public class HistorialCambios {
     @Column(name = "registro_id", nullable = false, length = 50)
     private String registroId;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario usuario;
 
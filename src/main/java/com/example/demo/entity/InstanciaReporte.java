@@ -1,5 +1,6 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +11,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "instancias_reporte")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,7 +22,7 @@ public class InstanciaReporte {
     @Column(name = "id_instancia")
     private Integer id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "reporte_id", nullable = false)
     private Reporte reporte;
 
@@ -33,7 +35,7 @@ public class InstanciaReporte {
     @Column(name = "fecha_envio_real")
     private LocalDateTime fechaEnvioReal;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "estado_id", nullable = false)
     private EstadoCumplimiento estado;
 
@@ -50,7 +52,7 @@ public class InstanciaReporte {
     private String observaciones;
 
     // Usuario que envió el reporte
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "enviado_por_id")
     private Usuario enviadoPor;
 
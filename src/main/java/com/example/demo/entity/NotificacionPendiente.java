@@ -0,0 +1,84 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mensaje de notificación en cola (outbox). Se escribe en la misma transacción
+ * que el cambio de negocio y lo envía el despachador en segundo plano.
+ * Cada fila es un destinatario en un canal (EMAIL o WHATSAPP).
+ */
+@Entity
+@Table(name = "notificaciones_pendientes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificacionPendiente {
+
+    public static final String CANAL_EMAIL = "EMAIL";
+    public static final String CANAL_WHATSAPP = "WHATSAPP";
+
+    public static final String ESTADO_PENDIENTE = "PENDIENTE";
+    public static final String ESTADO_ENVIANDO = "ENVIANDO";
+    public static final String ESTADO_ENVIADO = "ENVIADO";
+    public static final String ESTADO_FALLIDO = "FALLIDO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_notificacion")
+    private Integer id;
+
+    @Column(nullable = false, length = 20)
+    private String canal;
+
+    @Column(nullable = false, length = 150)
+    private String destinatario;
+
+    @Column(length = 255)
+    private String asunto;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String cuerpo;
+
+    // Origen del mensaje, p. ej. "alerta:15" o "instancia:42"
+    @Column(length = 100)
+    private String referencia;
+
+    @Column(nullable = false, length = 20)
+    private String estado = ESTADO_PENDIENTE;
+
+    private int intentos;
+
+    @Column(name = "proximo_intento")
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", columnDefinition = "TEXT")
+    private String ultimoError;
+
+    @Column(name = "fecha_envio")
+    private LocalDateTime fechaEnvio;
+
+    @Column(name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+        fechaActualizacion = LocalDateTime.now();
+        if (proximoIntento == null) {
+            proximoIntento = fechaCreacion;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        fechaActualizacion = LocalDateTime.now();
+    }
+}
@@ -1,15 +1,21 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "reportes")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,7 +28,7 @@ public class Reporte {
     @Column(nullable = false, length = 200)
     private String nombre;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "entidad_id", nullable = false)
     private Entidad entidad;
 
@@ -35,7 +41,7 @@ public class Reporte {
     @Column(name = "fecha_fin_vigencia")
     private LocalDate fechaFinVigencia;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "frecuencia_id", nullable = false)
     private Frecuencia frecuencia;
 
@@ -48,17 +54,21 @@ public class Reporte {
     @Column(name = "plazo_adicional_dias")
     private Integer plazoAdicionalDias;
 
+    // true = el plazo se cuenta en días hábiles y el vencimiento se corre al siguiente hábil
+    @Column(name = "plazo_dias_habiles")
+    private boolean plazoDiasHabiles = false;
+
     @Column(name = "formato_requerido", length = 100)
     private String formatoRequerido;
 
     @Column(name = "link_instrucciones", length = 255)
     private String linkInstrucciones;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "responsable_elaboracion_id", nullable = false)
     private Usuario responsableElaboracion;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "responsable_supervision_id", nullable = false)
     private Usuario responsableSupervision;
 
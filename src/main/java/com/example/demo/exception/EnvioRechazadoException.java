@@ -0,0 +1,20 @@
+package com.example.demo.exception;
+
+/**
+ * El canal rechazó el envío sin intentarlo (límite de tasa o circuito abierto).
+ * No es un fallo del mensaje: el outbox lo reprograma sin contar el intento.
+ */
+public class EnvioRechazadoException extends RuntimeException {
+
+    // Cuándo vale la pena volver a intentar
+    private final long reintentarEnMs;
+
+    public EnvioRechazadoException(String message, long reintentarEnMs) {
+        super(message);
+        this.reintentarEnMs = reintentarEnMs;
+    }
+
+    public long getReintentarEnMs() {
+        return reintentarEnMs;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.mapper;
+
+import com.example.demo.dto.AlertaDTO;
+import com.example.demo.entity.Alerta;
+import com.example.demo.repository.projection.AlertaView;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+@Component
+public class AlertaMapper {
+
+    public AlertaDTO toDto(Alerta alerta) {
+        if (alerta == null) return null;
+        return toDto(AlertaView.de(alerta));
+    }
+
+    public AlertaDTO toDto(AlertaView v) {
+        if (v == null) return null;
+
+        AlertaDTO dto = new AlertaDTO();
+        dto.setId(v.id());
+        dto.setInstanciaId(v.instanciaId());
+        dto.setReporteNombre(v.reporteNombre());
+        dto.setPeriodoReportado(v.periodoReportado());
+        dto.setEntidadNombre(v.entidadNombre());
+        dto.setTipoAlertaId(v.tipoAlertaId());
+        dto.setTipoAlertaNombre(v.tipoAlertaNombre());
+        dto.setTipoAlertaColor(v.tipoAlertaColor());
+        dto.setUsuarioDestinoId(v.usuarioDestinoId());
+        dto.setUsuarioDestinoNombre(v.usuarioDestinoNombre());
+        dto.setFechaProgramada(v.fechaProgramada());
+        dto.setFechaEnviada(v.fechaEnviada());
+        dto.setEnviada(v.enviada());
+        dto.setMensaje(v.mensaje());
+        dto.setLeida(v.leida());
+
+        if (v.fechaVencimiento() != null) {
+            dto.setFechaVencimiento(v.fechaVencimiento().atStartOfDay());
+            dto.setDiasHastaVencimiento((int) ChronoUnit.DAYS.between(LocalDate.now(), v.fechaVencimiento()));
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.mapper;
+
+import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.entity.InstanciaReporte;
+import com.example.demo.repository.projection.InstanciaResumenView;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+@Component
+public class InstanciaReporteMapper {
+
+    public InstanciaReporteDTO toDto(InstanciaReporte instancia) {
+        if (instancia == null) return null;
+        return toDto(InstanciaResumenView.de(instancia));
+    }
+
+    public InstanciaReporteDTO toDto(InstanciaResumenView v) {
+        if (v == null) return null;
+
+        InstanciaReporteDTO dto = new InstanciaReporteDTO();
+        dto.setId(v.id());
+
+        // Datos del reporte
+        dto.setReporteId(v.reporteId());
+        dto.setReporteNombre(v.reporteNombre());
+        dto.setEntidadNombre(v.entidadNombre());
+        dto.setEntidadId(v.entidadId());
+        dto.setFrecuencia(v.frecuencia());
+        dto.setFormatoRequerido(v.formatoRequerido());
+        dto.setBaseLegal(v.baseLegal());
+
+        // Responsables
+        dto.setResponsableElaboracion(v.responsableElaboracion());
+        dto.setResponsableElaboracionId(v.responsableElaboracionId());
+        dto.setResponsableSupervision(v.responsableSupervision());
+        dto.setResponsableSupervisionId(v.responsableSupervisionId());
+
+        // Datos de la instancia
+        dto.setPeriodoReportado(v.periodoReportado());
+        dto.setFechaVencimientoCalculada(v.fechaVencimientoCalculada());
+        dto.setFechaEnvioReal(v.fechaEnvioReal());
+        dto.setEstadoNombre(v.estadoNombre());
+        dto.setEstadoId(v.estadoId());
+        dto.setDiasDesviacion(v.diasDesviacion());
+
+        // Archivos y links
+        dto.setLinkReporteFinal(v.linkReporteFinal());
+        dto.setLinkEvidenciaEnvio(v.linkEvidenciaEnvio());
+        dto.setNombreArchivo(v.nombreArchivo());
+        dto.setDriveFileId(v.driveFileId());
+
+        // Usuario que envió
+        dto.setEnviadoPorNombre(v.enviadoPorNombre());
+        dto.setEnviadoPorId(v.enviadoPorId());
+
+        // Otros
+        dto.setObservaciones(v.observaciones());
+        dto.setFechaCreacion(v.fechaCreacion());
+        dto.setFechaActualizacion(v.fechaActualizacion());
+
+        // Estados calculados
+        String estado = v.estadoNombre().toUpperCase();
+        dto.setEnviado(estado.contains("ENVIADO") || estado.contains("APROBADO"));
+
+        if (v.fechaVencimientoCalculada() != null) {
+            long dias = ChronoUnit.DAYS.between(LocalDate.now(), v.fechaVencimientoCalculada());
+            dto.setDiasHastaVencimiento((int) dias);
+            dto.setVencido(!dto.isEnviado() && v.fechaVencimientoCalculada().isBefore(LocalDate.now()));
+
+            // Prioridad
+            if (dto.isEnviado()) {
+                dto.setPrioridad("BAJA");
+            } else if (dias < 0) {
+                dto.setPrioridad("CRITICA");
+            } else if (dias <= 3) {
+                dto.setPrioridad("ALTA");
+            } else if (dias <= 7) {
+                dto.setPrioridad("MEDIA");
+            } else {
+                dto.setPrioridad("BAJA");
+            }
+        } else {
+            dto.setPrioridad("MEDIA");
+        }
+
+        return dto;
+    }
+}
@@ -23,6 +23,7 @@ public class ReporteMapper {
         dto.setDiaVencimiento(r.getDiaVencimiento());
         dto.setMesVencimiento(r.getMesVencimiento());
         dto.setPlazoAdicionalDias(r.getPlazoAdicionalDias());
+        dto.setPlazoDiasHabiles(r.isPlazoDiasHabiles());
         dto.setFormatoRequerido(r.getFormatoRequerido());
         dto.setLinkInstrucciones(r.getLinkInstrucciones());
         dto.setResponsableElaboracionId(r.getResponsableElaboracion() != null ? r.getResponsableElaboracion().getId() : null);
@@ -3,14 +3,29 @@ package com.example.demo.repository;
 import com.example.demo.entity.Alerta;
 import com.example.demo.entity.InstanciaReporte;
 import com.example.demo.entity.Usuario;
+import com.example.demo.repository.projection.AlertaView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface AlertaRepository extends JpaRepository<Alerta, Integer> {
 
+    String SELECT_VISTA =
+            "SELECT new com.example.demo.repository.projection.AlertaView(" +
+            "a.id, i.id, r.nombre, i.periodoReportado, e.razonSocial, i.fechaVencimientoCalculada, " +
+            "t.id, t.nombre, t.color, u.id, u.nombreCompleto, " +
+            "a.fechaProgramada, a.fechaEnviada, a.enviada, a.mensaje, a.leida) " +
+            "FROM Alerta a JOIN a.instancia i JOIN i.reporte r JOIN r.entidad e JOIN a.tipo t " +
+            "LEFT JOIN a.usuarioDestino u ";
+
     List<Alerta> findByInstancia(InstanciaReporte instancia);
 
     List<Alerta> findByUsuarioDestino(Usuario usuario);
@@ -18,4 +33,53 @@ public interface AlertaRepository extends JpaRepository<Alerta, Integer> {
     List<Alerta> findByUsuarioDestinoAndLeidaFalse(Usuario usuario);
 
     List<Alerta> findByEnviadaFalse();
+
+    /**
+     * Pares (instancia, tipo) que ya tienen alerta programada en el rango, para evitar duplicados.
+     */
+    @Query("SELECT a.instancia.id, a.tipo.id FROM Alerta a " +
+           "WHERE a.instancia.id IN :instanciaIds AND a.fechaProgramada >= :desde AND a.fechaProgramada < :hasta")
+    List<Object[]> findTiposProgramadosEntre(@Param("instanciaIds") Collection<Integer> instanciaIds,
+                                             @Param("desde") LocalDateTime desde,
+                                             @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Bandeja de alertas proyectada a AlertaView, más recientes primero.
+     * usuarioId nulo = todas (administrador); soloNoLeidas = solo las pendientes de leer.
+     */
+    @Query(SELECT_VISTA + "WHERE (:usuarioId IS NULL OR u.id = :usuarioId) " +
+           "AND (:soloNoLeidas = false OR a.leida = false) " +
+           "ORDER BY a.fechaProgramada DESC, a.id DESC")
+    List<AlertaView> findVistas(@Param("usuarioId") Integer usuarioId,
+                                @Param("soloNoLeidas") boolean soloNoLeidas,
+                                Pageable pageable);
+
+    @Query(SELECT_VISTA + "WHERE a.id IN :ids ORDER BY a.id ASC")
+    List<AlertaView> findVistasPorIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Contador de no leídas de un usuario (idx_alertas_usuario).
+     */
+    @Query("SELECT COUNT(a) FROM Alerta a WHERE a.usuarioDestino.id = :usuarioId AND a.leida = false")
+    long contarNoLeidas(@Param("usuarioId") Integer usuarioId);
+
+    /**
+     * Contador de no leídas de todos los usuarios, para el administrador (idx_alertas_no_leidas).
+     */
+    @Query("SELECT COUNT(a) FROM Alerta a WHERE a.leida = false")
+    long contarTodasNoLeidas();
+
+    /**
+     * Marca como leídas todas las alertas pendientes de un usuario en una sola sentencia.
+     */
+    @Modifying
+    @Query("UPDATE Alerta a SET a.leida = true WHERE a.usuarioDestino.id = :usuarioId AND a.leida = false")
+    int marcarLeidasDeUsuario(@Param("usuarioId") Integer usuarioId);
+
+    @Modifying
+    @Query("UPDATE Alerta a SET a.leida = true WHERE a.leida = false")
+    int marcarTodasLeidas();
+
+    @Query("SELECT COUNT(a) FROM Alerta a WHERE a.leida = false AND a.tipo.esPostVencimiento = true")
+    long contarCriticasNoLeidas();
 }
@@ -0,0 +1,32 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.ControlGeneracionInstancias;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface ControlGeneracionInstanciasRepository extends JpaRepository<ControlGeneracionInstancias, String> {
+
+    /**
+     * Crea o actualiza el punto de control en una sola sentencia: la sincronización
+     * al editar un reporte y el job pueden guardar el mismo reporte a la vez.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "control_generacion_instancias"))
+    @Query(value = "INSERT INTO control_generacion_instancias (reporte_id, generado_hasta, firma_calendario, fecha_actualizacion) " +
+                   "VALUES (:reporteId, :generadoHasta, :firma, NOW()) " +
+                   "ON CONFLICT (reporte_id) DO UPDATE SET generado_hasta = EXCLUDED.generado_hasta, " +
+                   "firma_calendario = EXCLUDED.firma_calendario, fecha_actualizacion = NOW()",
+           nativeQuery = true)
+    int guardarPuntoControl(@Param("reporteId") String reporteId,
+                            @Param("generadoHasta") LocalDate generadoHasta,
+                            @Param("firma") String firma);
+}
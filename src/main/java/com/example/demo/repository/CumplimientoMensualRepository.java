@@ -0,0 +1,52 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.CumplimientoMensual;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface CumplimientoMensualRepository extends JpaRepository<CumplimientoMensual, Integer> {
+
+    /**
+     * Suma delta a la celda, creándola si no existe, en una sola sentencia: dos envíos
+     * que caen en la misma celda nueva no chocan con uk_cumplimiento_mensual.
+     * Nunca baja de cero (ver CumplimientoMensualService.ajustar).
+     * Declara la tabla que toca: sin eso Hibernate vacía toda la caché de segundo
+     * nivel y la de consultas en cada llamada.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cumplimiento_mensual"))
+    @Query(value = "INSERT INTO cumplimiento_mensual (mes, entidad_id, responsable_id, categoria, total, fecha_actualizacion) " +
+                   "VALUES (:mes, :entidadId, :responsableId, :categoria, GREATEST(:delta, 0), NOW()) " +
+                   "ON CONFLICT (mes, entidad_id, responsable_id, categoria) " +
+                   "DO UPDATE SET total = GREATEST(cumplimiento_mensual.total + :delta, 0), fecha_actualizacion = NOW()",
+           nativeQuery = true)
+    int incrementar(@Param("mes") LocalDate mes,
+                    @Param("entidadId") Integer entidadId,
+                    @Param("responsableId") Integer responsableId,
+                    @Param("categoria") String categoria,
+                    @Param("delta") long delta);
+
+    @Query("SELECT c.mes, c.categoria, SUM(c.total) FROM CumplimientoMensual c " +
+           "WHERE c.mes BETWEEN :desde AND :hasta GROUP BY c.mes, c.categoria")
+    List<Object[]> totalesPorMes(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Query("SELECT e.razonSocial, c.categoria, SUM(c.total) FROM CumplimientoMensual c " +
+           "JOIN Entidad e ON e.id = c.entidadId " +
+           "WHERE c.mes BETWEEN :desde AND :hasta GROUP BY e.razonSocial, c.categoria")
+    List<Object[]> totalesPorEntidad(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Query("SELECT u.nombreCompleto, c.categoria, SUM(c.total) FROM CumplimientoMensual c " +
+           "JOIN Usuario u ON u.id = c.responsableId " +
+           "WHERE c.mes BETWEEN :desde AND :hasta GROUP BY u.nombreCompleto, c.categoria")
+    List<Object[]> totalesPorResponsable(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+}
@@ -0,0 +1,21 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.DiaFestivo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DiaFestivoRepository extends JpaRepository<DiaFestivo, Integer> {
+
+    List<DiaFestivo> findByEntidadIdOrderByFechaAsc(Integer entidadId);
+
+    List<DiaFestivo> findAllByOrderByFechaAsc();
+
+    /**
+     * Con entidadId null busca la excepción general (entidad_id IS NULL).
+     */
+    boolean existsByFechaAndEntidadId(LocalDate fecha, Integer entidadId);
+}
@@ -0,0 +1,39 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.EnvioReporte;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EnvioReporteRepository extends JpaRepository<EnvioReporte, Integer> {
+
+    /**
+     * Ids listos para procesar: pendientes cuyo próximo intento ya llegó, o
+     * "procesando" abandonados (p. ej. por un reinicio) hace más de :abandonadoAntesDe.
+     */
+    @Query("SELECT e.id FROM EnvioReporte e " +
+           "WHERE (e.estado = 'PENDIENTE' AND e.proximoIntento <= :ahora) " +
+           "OR (e.estado = 'PROCESANDO' AND e.fechaActualizacion < :abandonadoAntesDe) " +
+           "ORDER BY e.proximoIntento ASC, e.id ASC")
+    List<Integer> findIdsListos(@Param("ahora") LocalDateTime ahora,
+                                @Param("abandonadoAntesDe") LocalDateTime abandonadoAntesDe,
+                                Pageable pageable);
+
+    /**
+     * Toma un envío para procesarlo solo si nadie más lo tomó (1 = tomado).
+     */
+    @Modifying
+    @Query("UPDATE EnvioReporte e SET e.estado = 'PROCESANDO', e.fechaActualizacion = :ahora " +
+           "WHERE e.id = :id AND ((e.estado = 'PENDIENTE' AND e.proximoIntento <= :ahora) " +
+           "OR (e.estado = 'PROCESANDO' AND e.fechaActualizacion < :abandonadoAntesDe))")
+    int reclamar(@Param("id") Integer id,
+                 @Param("ahora") LocalDateTime ahora,
+                 @Param("abandonadoAntesDe") LocalDateTime abandonadoAntesDe);
+}
@@ -3,26 +3,306 @@ package com.example.demo.repository;
 import com.example.demo.entity.InstanciaReporte;
 import com.example.demo.entity.Reporte;
 import com.example.demo.entity.EstadoCumplimiento;
+import com.example.demo.repository.projection.EventoCalendarioView;
+import com.example.demo.repository.projection.InstanciaResumenView;
+import com.example.demo.repository.projection.ResumenEstadoView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface InstanciaReporteRepository extends JpaRepository<InstanciaReporte, Integer> {
+public interface InstanciaReporteRepository extends JpaRepository<InstanciaReporte, Integer>,
+        JpaSpecificationExecutor<InstanciaReporte> {
 
     List<InstanciaReporte> findByReporte(Reporte reporte);
 
+    /**
+     * Periodos que ya tienen instancia para el reporte (uk_instancia_reporte).
+     */
+    @Query("SELECT i.periodoReportado FROM InstanciaReporte i WHERE i.reporte.id = :reporteId")
+    Set<String> findPeriodosPorReporte(@Param("reporteId") String reporteId);
+
+    /**
+     * Borra las instancias futuras que siguen pendientes (sin envío) de un reporte,
+     * para regenerarlas con un calendario nuevo. Sus alertas se borran en cascada.
+     * Se respetan las que tienen un envío en curso (PENDIENTE/PROCESANDO) para no
+     * perder el archivo en staging; su periodo se conserva tal cual.
+     */
+    @Modifying
+    @Query("DELETE FROM InstanciaReporte i WHERE i.reporte.id = :reporteId " +
+           "AND i.fechaVencimientoCalculada >= :desde AND i.estado.id = :estadoId AND i.fechaEnvioReal IS NULL " +
+           "AND NOT EXISTS (SELECT 1 FROM EnvioReporte er WHERE er.instanciaId = i.id " +
+           "AND er.estado IN ('PENDIENTE', 'PROCESANDO'))")
+    int eliminarPendientesFuturas(@Param("reporteId") String reporteId,
+                                  @Param("desde") LocalDate desde,
+                                  @Param("estadoId") Integer estadoId);
+
     List<InstanciaReporte> findByEstado(EstadoCumplimiento estado);
 
     List<InstanciaReporte> findByFechaVencimientoCalculadaBetween(LocalDate inicio, LocalDate fin);
 
-    @Query("SELECT i FROM InstanciaReporte i WHERE i.fechaVencimientoCalculada <= :fecha AND i.estado.nombre != 'Enviado'")
-    List<InstanciaReporte> findVencidos(@Param("fecha") LocalDate fecha);
+    // ==================== LISTADOS (PROYECCIÓN InstanciaResumenView) ====================
+    // Una fila plana por instancia con solo las columnas de InstanciaReporteDTO.
+
+    String SELECT_RESUMEN =
+            "SELECT new com.example.demo.repository.projection.InstanciaResumenView(" +
+            "i.id, r.id, r.nombre, e.id, e.razonSocial, f.nombre, r.formatoRequerido, r.baseLegal, " +
+            "i.periodoReportado, i.fechaVencimientoCalculada, i.fechaEnvioReal, est.id, est.nombre, i.diasDesviacion, " +
+            "i.linkReporteFinal, i.linkEvidenciaEnvio, i.nombreArchivo, i.driveFileId, " +
+            "ue.id, ue.nombreCompleto, us.id, us.nombreCompleto, ep.id, ep.nombreCompleto, " +
+            "i.observaciones, i.fechaCreacion, i.fechaActualizacion) " +
+            "FROM InstanciaReporte i JOIN i.reporte r JOIN r.entidad e JOIN r.frecuencia f JOIN i.estado est " +
+            "LEFT JOIN r.responsableElaboracion ue LEFT JOIN r.responsableSupervision us LEFT JOIN i.enviadoPor ep ";
+
+    @Query(SELECT_RESUMEN + "ORDER BY i.id ASC")
+    List<InstanciaResumenView> findResumenes();
+
+    @Query(SELECT_RESUMEN + "WHERE i.id = :id")
+    Optional<InstanciaResumenView> findResumenPorId(@Param("id") Integer id);
+
+    @Query(SELECT_RESUMEN + "WHERE i.id IN :ids")
+    List<InstanciaResumenView> findResumenesPorIds(@Param("ids") Collection<Integer> ids);
+
+    @Query(SELECT_RESUMEN + "WHERE r.id = :reporteId ORDER BY i.fechaVencimientoCalculada ASC, i.id ASC")
+    List<InstanciaResumenView> findResumenesPorReporte(@Param("reporteId") String reporteId);
+
+    @Query(SELECT_RESUMEN + "WHERE i.fechaVencimientoCalculada <= :fecha AND est.nombre != 'Enviado' " +
+           "ORDER BY i.fechaVencimientoCalculada ASC, i.id ASC")
+    List<InstanciaResumenView> findVencidos(@Param("fecha") LocalDate fecha);
+
+    @Query(SELECT_RESUMEN + "WHERE i.fechaVencimientoCalculada BETWEEN :inicio AND :fin AND est.nombre != 'Enviado' " +
+           "ORDER BY i.fechaVencimientoCalculada ASC, i.id ASC")
+    List<InstanciaResumenView> findProximosAVencer(@Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin);
+
+    // ==================== CONSULTAS PAGINADAS (KEYSET) ====================
+    // Orden estable por (fecha_vencimiento_calculada, id_instancia); el cursor es el último par leído.
+
+    @Query(SELECT_RESUMEN +
+           "WHERE (UPPER(est.nombre) LIKE '%PENDIENTE%' OR UPPER(est.nombre) LIKE '%EN PROCESO%') " +
+           "ORDER BY i.fechaVencimientoCalculada ASC, i.id ASC")
+    List<InstanciaResumenView> findPendientes(Pageable pageable);
+
+    @Query(SELECT_RESUMEN +
+           "WHERE (UPPER(est.nombre) LIKE '%PENDIENTE%' OR UPPER(est.nombre) LIKE '%EN PROCESO%') " +
+           "AND (i.fechaVencimientoCalculada > :fecha OR (i.fechaVencimientoCalculada = :fecha AND i.id > :id)) " +
+           "ORDER BY i.fechaVencimientoCalculada ASC, i.id ASC")
+    List<InstanciaResumenView> findPendientesDespuesDe(@Param("fecha") LocalDate fecha,
+                                                        @Param("id") Integer id,
+                                                        Pageable pageable);
+
+    @Query(SELECT_RESUMEN +
+           "WHERE UPPER(est.nombre) NOT LIKE '%ENVIADO%' AND UPPER(est.nombre) NOT LIKE '%APROBADO%' " +
+           "AND i.fechaVencimientoCalculada < :hoy " +
+           "ORDER BY i.fechaVencimientoCalculada ASC, i.id ASC")
+    List<InstanciaResumenView> findVencidosNoEnviados(@Param("hoy") LocalDate hoy, Pageable pageable);
+
+    @Query(SELECT_RESUMEN +
+           "WHERE UPPER(est.nombre) NOT LIKE '%ENVIADO%' AND UPPER(est.nombre) NOT LIKE '%APROBADO%' " +
+           "AND i.fechaVencimientoCalculada < :hoy " +
+           "AND (i.fechaVencimientoCalculada > :fecha OR (i.fechaVencimientoCalculada = :fecha AND i.id > :id)) " +
+           "ORDER BY i.fechaVencimientoCalculada ASC, i.id ASC")
+    List<InstanciaResumenView> findVencidosNoEnviadosDespuesDe(@Param("hoy") LocalDate hoy,
+                                                                @Param("fecha") LocalDate fecha,
+                                                                @Param("id") Integer id,
+                                                                Pageable pageable);
+
+    // Consultas compuestas con InstanciaReporteSpecifications (histórico, búsqueda)
+
+    @Override
+    @EntityGraph(attributePaths = {"reporte", "reporte.entidad", "reporte.frecuencia",
+                                   "reporte.responsableElaboracion", "reporte.responsableSupervision",
+                                   "estado", "enviadoPor"})
+    Page<InstanciaReporte> findAll(Specification<InstanciaReporte> spec, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"reporte", "reporte.entidad", "reporte.frecuencia",
+                                   "reporte.responsableElaboracion", "reporte.responsableSupervision",
+                                   "estado", "enviadoPor"})
+    List<InstanciaReporte> findAll(Specification<InstanciaReporte> spec, Sort sort);
+
+    // ==================== CALENDARIO ====================
+    // Filtros nulos = sin filtro. Alcance por rol: elaboradorId / supervisorId nulos = administrador.
+
+    /**
+     * Eventos del calendario en un rango, proyectados a las columnas que muestra el evento.
+     * La frecuencia llega ya en minúsculas.
+     */
+    @Query("SELECT new com.example.demo.repository.projection.EventoCalendarioView(" +
+           "i.id, i.fechaVencimientoCalculada, i.periodoReportado, est.nombre, r.id, r.nombre, " +
+           "e.id, e.razonSocial, f.nombre, ue.id, ue.nombreCompleto, us.id) " +
+           "FROM InstanciaReporte i JOIN i.reporte r JOIN r.entidad e JOIN r.frecuencia f JOIN i.estado est " +
+           "LEFT JOIN r.responsableElaboracion ue LEFT JOIN r.responsableSupervision us " +
+           "WHERE i.fechaVencimientoCalculada BETWEEN :inicio AND :fin " +
+           "AND (:entidadId IS NULL OR e.id = :entidadId) " +
+           "AND (:elaboradorId IS NULL OR ue.id = :elaboradorId) " +
+           "AND (:supervisorId IS NULL OR us.id = :supervisorId) " +
+           "AND (:frecuencia IS NULL OR LOWER(f.nombre) = :frecuencia) " +
+           "ORDER BY i.fechaVencimientoCalculada ASC, i.id ASC")
+    List<EventoCalendarioView> findEventosCalendario(@Param("inicio") LocalDate inicio,
+                                                     @Param("fin") LocalDate fin,
+                                                     @Param("entidadId") Integer entidadId,
+                                                     @Param("elaboradorId") Integer elaboradorId,
+                                                     @Param("supervisorId") Integer supervisorId,
+                                                     @Param("frecuencia") String frecuencia);
+
+    /**
+     * Huella barata del calendario para calcular el ETag sin cargar las instancias:
+     * cantidad, últimas modificaciones de las instancias y de todo lo que se une para
+     * armar los eventos (reporte, entidad, responsables), y sumas de ids y estados, que
+     * cambian aunque se borren y regeneren tantas instancias como había.
+     */
+    @Query("SELECT COUNT(i), MAX(i.fechaActualizacion), MAX(r.fechaActualizacion), MAX(e.fechaActualizacion), " +
+           "MAX(ue.fechaActualizacion), MAX(us.fechaActualizacion), SUM(i.id), SUM(est.id) " +
+           "FROM InstanciaReporte i JOIN i.reporte r JOIN r.entidad e JOIN i.estado est " +
+           "LEFT JOIN r.responsableElaboracion ue LEFT JOIN r.responsableSupervision us " +
+           "WHERE i.fechaVencimientoCalculada BETWEEN :inicio AND :fin " +
+           "AND (:elaboradorId IS NULL OR ue.id = :elaboradorId) " +
+           "AND (:supervisorId IS NULL OR us.id = :supervisorId)")
+    List<Object[]> findVersionCalendario(@Param("inicio") LocalDate inicio,
+                                         @Param("fin") LocalDate fin,
+                                         @Param("elaboradorId") Integer elaboradorId,
+                                         @Param("supervisorId") Integer supervisorId);
+
+    // ==================== BÚSQUEDA DE TEXTO (PostgreSQL) ====================
+    // texto_busqueda (tsvector) y texto_plano (trigram) los mantienen triggers en la base;
+    // ver 01_schema.sql. Filtros nulos = sin filtro. Retornan ids; las entidades se cargan aparte.
+
+    String FILTROS_BUSQUEDA =
+            "AND (CAST(:entidadId AS INTEGER) IS NULL OR r.entidad_id = :entidadId) " +
+            "AND (CAST(:fechaInicio AS DATE) IS NULL OR i.fecha_vencimiento_calculada >= :fechaInicio) " +
+            "AND (CAST(:fechaFin AS DATE) IS NULL OR i.fecha_vencimiento_calculada <= :fechaFin) " +
+            "AND (CAST(:periodo AS TEXT) IS NULL OR i.periodo_reportado LIKE '%' || :periodo || '%') " +
+            "AND (CAST(:estadoId AS INTEGER) IS NULL OR i.estado_id = :estadoId) " +
+            "AND (CAST(:elaboradorId AS INTEGER) IS NULL OR r.responsable_elaboracion_id = :elaboradorId) " +
+            "AND (CAST(:supervisorId AS INTEGER) IS NULL OR r.responsable_supervision_id = :supervisorId) " +
+            "AND (CAST(:proceso AS TEXT) IS NULL OR LOWER(u.proceso) LIKE '%' || LOWER(:proceso) || '%') ";
+
+    String FROM_BUSQUEDA =
+            "FROM instancias_reporte i " +
+            "JOIN reportes r ON r.id_reporte = i.reporte_id " +
+            "JOIN usuarios u ON u.id_usuario = r.responsable_elaboracion_id ";
+
+    /**
+     * Búsqueda por palabras (español, sin tildes, prefijos) ordenada por relevancia
+     * y luego por vencimiento más reciente. consulta es un tsquery ya armado, p. ej. "informe:* & tecnico:*".
+     */
+    @Query(value = "SELECT CAST(i.id_instancia AS INTEGER) " + FROM_BUSQUEDA +
+                   "CROSS JOIN to_tsquery('es_sin_acentos', :consulta) q " +
+                   "WHERE i.texto_busqueda @@ q " + FILTROS_BUSQUEDA +
+                   "ORDER BY ts_rank(i.texto_busqueda, q) DESC, i.fecha_vencimiento_calculada DESC, i.id_instancia DESC",
+           countQuery = "SELECT COUNT(*) " + FROM_BUSQUEDA +
+                        "WHERE i.texto_busqueda @@ to_tsquery('es_sin_acentos', :consulta) " + FILTROS_BUSQUEDA,
+           nativeQuery = true)
+    Page<Integer> buscarIdsPorTexto(@Param("consulta") String consulta,
+                                    @Param("entidadId") Integer entidadId,
+                                    @Param("fechaInicio") LocalDate fechaInicio,
+                                    @Param("fechaFin") LocalDate fechaFin,
+                                    @Param("periodo") String periodo,
+                                    @Param("estadoId") Integer estadoId,
+                                    @Param("elaboradorId") Integer elaboradorId,
+                                    @Param("supervisorId") Integer supervisorId,
+                                    @Param("proceso") String proceso,
+                                    Pageable pageable);
+
+    /**
+     * Coincidencia parcial (dentro de una palabra o con signos, p. ej. "2026-08") sobre el
+     * texto en minúsculas y sin tildes, con índice trigram. patron ya viene normalizado y escapado.
+     */
+    @Query(value = "SELECT CAST(i.id_instancia AS INTEGER) " + FROM_BUSQUEDA +
+                   "WHERE i.texto_plano LIKE '%' || :patron || '%' " + FILTROS_BUSQUEDA +
+                   "ORDER BY i.fecha_vencimiento_calculada DESC, i.id_instancia DESC",
+           countQuery = "SELECT COUNT(*) " + FROM_BUSQUEDA +
+                        "WHERE i.texto_plano LIKE '%' || :patron || '%' " + FILTROS_BUSQUEDA,
+           nativeQuery = true)
+    Page<Integer> buscarIdsPorFragmento(@Param("patron") String patron,
+                                        @Param("entidadId") Integer entidadId,
+                                        @Param("fechaInicio") LocalDate fechaInicio,
+                                        @Param("fechaFin") LocalDate fechaFin,
+                                        @Param("periodo") String periodo,
+                                        @Param("estadoId") Integer estadoId,
+                                        @Param("elaboradorId") Integer elaboradorId,
+                                        @Param("supervisorId") Integer supervisorId,
+                                        @Param("proceso") String proceso,
+                                        Pageable pageable);
+
+    // ==================== AGREGACIONES ====================
+
+    /**
+     * Resumen del dashboard en un solo recorrido: una fila por estado con todos los contadores.
+     */
+    @Query("SELECT i.estado.nombre AS estado, " +
+           "COUNT(i) AS total, " +
+           "SUM(CASE WHEN i.diasDesviacion <= 0 AND LOWER(i.estado.nombre) IN ('enviado', 'aprobado') THEN 1 ELSE 0 END) AS enviadosATiempo, " +
+           "SUM(CASE WHEN i.diasDesviacion > 0 AND LOWER(i.estado.nombre) IN ('enviado', 'aprobado') THEN 1 ELSE 0 END) AS enviadosTarde, " +
+           "SUM(CASE WHEN i.fechaVencimientoCalculada < :hoy AND LOWER(i.estado.nombre) NOT IN ('enviado', 'aprobado') THEN 1 ELSE 0 END) AS vencidos, " +
+           "SUM(CASE WHEN LOWER(i.estado.nombre) IN ('pendiente', 'en proceso') THEN 1 ELSE 0 END) AS pendientes, " +
+           "SUM(CASE WHEN i.diasDesviacion > 0 THEN i.diasDesviacion ELSE 0 END) AS sumaDiasRetraso, " +
+           "SUM(CASE WHEN i.diasDesviacion > 0 THEN 1 ELSE 0 END) AS conRetraso, " +
+           "SUM(CASE WHEN i.fechaVencimientoCalculada > :hoy AND i.fechaVencimientoCalculada < :limite7 AND LOWER(i.estado.nombre) <> 'enviado' THEN 1 ELSE 0 END) AS proximos7Dias, " +
+           "SUM(CASE WHEN i.fechaVencimientoCalculada > :hoy AND i.fechaVencimientoCalculada < :limite3 AND LOWER(i.estado.nombre) <> 'enviado' THEN 1 ELSE 0 END) AS proximos3Dias " +
+           "FROM InstanciaReporte i " +
+           "WHERE i.fechaVencimientoCalculada BETWEEN :inicio AND :fin " +
+           "GROUP BY i.estado.nombre")
+    List<ResumenEstadoView> resumirPorEstado(@Param("inicio") LocalDate inicio,
+                                             @Param("fin") LocalDate fin,
+                                             @Param("hoy") LocalDate hoy,
+                                             @Param("limite7") LocalDate limite7,
+                                             @Param("limite3") LocalDate limite3);
+
+    @Query("SELECT i.estado.nombre, COUNT(i) FROM InstanciaReporte i GROUP BY i.estado.nombre")
+    List<Object[]> contarPorEstado();
+
+    /**
+     * Instancias enviadas con retraso por entidad (razón social, total), de mayor a menor.
+     */
+    @Query("SELECT e.razonSocial, COUNT(i) FROM InstanciaReporte i JOIN i.reporte r JOIN r.entidad e " +
+           "WHERE i.diasDesviacion > 0 GROUP BY e.razonSocial ORDER BY COUNT(i) DESC")
+    List<Object[]> contarRetrasosPorEntidad(Pageable pageable);
+
+    /**
+     * Instancias enviadas con retraso por responsable de elaboración (nombre, total), de mayor a menor.
+     */
+    @Query("SELECT u.nombreCompleto, COUNT(i) FROM InstanciaReporte i JOIN i.reporte r JOIN r.responsableElaboracion u " +
+           "WHERE i.diasDesviacion > 0 GROUP BY u.nombreCompleto ORDER BY COUNT(i) DESC")
+    List<Object[]> contarRetrasosPorResponsable(Pageable pageable);
+
+    /**
+     * Datos mínimos para reconstruir el acumulado mensual de cumplimiento, sin cargar el grafo de entidades.
+     */
+    @Query("SELECT i.fechaVencimientoCalculada, r.entidad.id, r.responsableElaboracion.id, i.estado.nombre, i.diasDesviacion " +
+           "FROM InstanciaReporte i JOIN i.reporte r")
+    List<Object[]> findDatosCumplimiento();
+
+    /**
+     * Instancias no enviadas que vencen en alguna de las fechas objetivo de alerta o que ya vencieron.
+     * Se recorre por id en lotes para el job de alertas.
+     */
+    @EntityGraph(attributePaths = {"reporte", "reporte.entidad", "reporte.responsableElaboracion",
+                                   "reporte.responsableSupervision", "estado"})
+    @Query("SELECT i FROM InstanciaReporte i " +
+           "WHERE UPPER(i.estado.nombre) NOT LIKE '%ENVIADO%' AND UPPER(i.estado.nombre) NOT LIKE '%APROBADO%' " +
+           "AND (i.fechaVencimientoCalculada IN :fechas OR i.fechaVencimientoCalculada < :hoy) " +
+           "AND i.id > :despuesDeId " +
+           "ORDER BY i.id ASC")
+    List<InstanciaReporte> findCandidatosAlerta(@Param("fechas") Collection<LocalDate> fechas,
+                                                @Param("hoy") LocalDate hoy,
+                                                @Param("despuesDeId") Integer despuesDeId,
+                                                Pageable pageable);
 
-    @Query("SELECT i FROM InstanciaReporte i WHERE i.fechaVencimientoCalculada BETWEEN :inicio AND :fin AND i.estado.nombre != 'Enviado'")
-    List<InstanciaReporte> findProximosAVencer(@Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin);
+    // Archivos compartidos del almacenamiento local: no borrar mientras alguna instancia los use
+    boolean existsByDriveFileId(String driveFileId);
 }
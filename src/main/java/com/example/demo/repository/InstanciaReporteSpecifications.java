@@ -0,0 +1,92 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.InstanciaReporte;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Predicados reutilizables para consultar instancias de reporte en base de datos.
+ * Cada método retorna null cuando el filtro no aplica, de modo que
+ * Specification.where(...).and(...) los ignora.
+ */
+public final class InstanciaReporteSpecifications {
+
+    private InstanciaReporteSpecifications() {
+    }
+
+    /**
+     * Instancias cuyo estado es "Enviado..." o "Aprobado".
+     */
+    public static Specification<InstanciaReporte> enviadas() {
+        return (root, query, cb) -> {
+            var estado = cb.upper(root.get("estado").get("nombre"));
+            return cb.or(cb.like(estado, "%ENVIADO%"), cb.like(estado, "%APROBADO%"));
+        };
+    }
+
+    public static Specification<InstanciaReporte> deReporte(String reporteId) {
+        if (reporteId == null) return null;
+        return (root, query, cb) -> cb.equal(root.get("reporte").get("id"), reporteId);
+    }
+
+    public static Specification<InstanciaReporte> deEntidad(Integer entidadId) {
+        if (entidadId == null) return null;
+        return (root, query, cb) -> cb.equal(root.get("reporte").get("entidad").get("id"), entidadId);
+    }
+
+    public static Specification<InstanciaReporte> deResponsableElaboracion(Integer usuarioId) {
+        if (usuarioId == null) return null;
+        return (root, query, cb) -> cb.equal(root.get("reporte").get("responsableElaboracion").get("id"), usuarioId);
+    }
+
+    public static Specification<InstanciaReporte> deResponsableSupervision(Integer usuarioId) {
+        if (usuarioId == null) return null;
+        return (root, query, cb) -> cb.equal(root.get("reporte").get("responsableSupervision").get("id"), usuarioId);
+    }
+
+    public static Specification<InstanciaReporte> deEstado(Integer estadoId) {
+        if (estadoId == null) return null;
+        return (root, query, cb) -> cb.equal(root.get("estado").get("id"), estadoId);
+    }
+
+    public static Specification<InstanciaReporte> periodoContiene(String periodo) {
+        if (periodo == null || periodo.isEmpty()) return null;
+        return (root, query, cb) -> cb.like(root.get("periodoReportado"), "%" + periodo + "%");
+    }
+
+    /**
+     * Proceso del responsable de elaboración, coincidencia parcial sin distinguir mayúsculas.
+     */
+    public static Specification<InstanciaReporte> deProceso(String proceso) {
+        if (proceso == null || proceso.isEmpty()) return null;
+        return (root, query, cb) -> cb.like(
+                cb.lower(root.get("reporte").get("responsableElaboracion").get("proceso")),
+                "%" + proceso.toLowerCase() + "%");
+    }
+
+    public static Specification<InstanciaReporte> conIds(Collection<Integer> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    /**
+     * Fecha de vencimiento en el rango [inicio, fin], ambos incluidos.
+     */
+    public static Specification<InstanciaReporte> venceEntre(LocalDate inicio, LocalDate fin) {
+        if (inicio == null || fin == null) return null;
+        return (root, query, cb) -> cb.between(root.get("fechaVencimientoCalculada"), inicio, fin);
+    }
+
+    /**
+     * Fecha de envío real en el rango [desde, hasta).
+     */
+    public static Specification<InstanciaReporte> enviadaEntre(LocalDateTime desde, LocalDateTime hasta) {
+        if (desde == null || hasta == null) return null;
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("fechaEnvioReal"), desde),
+                cb.lessThan(root.get("fechaEnvioReal"), hasta)
+        );
+    }
+}
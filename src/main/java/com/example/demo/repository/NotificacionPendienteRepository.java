@@ -0,0 +1,41 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.NotificacionPendiente;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NotificacionPendienteRepository extends JpaRepository<NotificacionPendiente, Integer> {
+
+    /**
+     * Toma un lote listo para enviar en una sola sentencia: pendientes cuyo próximo
+     * intento ya llegó, o "enviando" abandonados (p. ej. por un reinicio) hace más de
+     * :abandonadoAntesDe. SKIP LOCKED deja a otra instancia de la aplicación las filas
+     * que ya está tomando, sin esperar ni repetirlas. Con la tabla declarada, el
+     * auto-flush previo solo mira las notificaciones y no toda la sesión.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "notificaciones_pendientes"))
+    @Query(value = "UPDATE notificaciones_pendientes SET estado = 'ENVIANDO', fecha_actualizacion = :ahora " +
+                   "WHERE id_notificacion IN (" +
+                   "  SELECT id_notificacion FROM notificaciones_pendientes " +
+                   "  WHERE (estado = 'PENDIENTE' AND proximo_intento <= :ahora) " +
+                   "     OR (estado = 'ENVIANDO' AND fecha_actualizacion < :abandonadoAntesDe) " +
+                   "  ORDER BY proximo_intento ASC, id_notificacion ASC " +
+                   "  LIMIT :limite FOR UPDATE SKIP LOCKED) " +
+                   "RETURNING *",
+           nativeQuery = true)
+    List<NotificacionPendiente> reclamarLote(@Param("ahora") LocalDateTime ahora,
+                                             @Param("abandonadoAntesDe") LocalDateTime abandonadoAntesDe,
+                                             @Param("limite") int limite);
+
+    @Query("SELECT n.canal, n.estado, COUNT(n) FROM NotificacionPendiente n GROUP BY n.canal, n.estado")
+    List<Object[]> contarPorCanalYEstado();
+}
@@ -4,7 +4,11 @@ import com.example.demo.entity.Reporte;
 import com.example.demo.entity.Entidad;
 import com.example.demo.entity.Frecuencia;
 import com.example.demo.entity.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,8 +16,11 @@ import java.util.List;
 @Repository
 public interface ReporteRepository extends JpaRepository<Reporte, String> {
 
+    // Consultas de listado: la caché de consultas guarda los ids y los reportes salen de la caché de segundo nivel
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Reporte> findByEntidad(Entidad entidad);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Reporte> findByFrecuencia(Frecuencia frecuencia);
 
     List<Reporte> findByResponsableElaboracion(Usuario usuario);
@@ -21,4 +28,13 @@ public interface ReporteRepository extends JpaRepository<Reporte, String> {
     List<Reporte> findByResponsableSupervision(Usuario usuario);
 
     List<Reporte> findByActivo(boolean activo);
+
+    /**
+     * Calendario de los reportes activos: id, frecuencia, día y mes de vencimiento,
+     * fin de vigencia, plazo adicional, entidad y si el plazo es en días hábiles.
+     */
+    @Query("SELECT r.id, f.nombre, r.diaVencimiento, r.mesVencimiento, r.fechaFinVigencia, r.plazoAdicionalDias, " +
+           "r.entidad.id, r.plazoDiasHabiles " +
+           "FROM Reporte r JOIN r.frecuencia f WHERE r.activo = true ORDER BY r.id")
+    List<Object[]> findCalendariosActivos();
 }
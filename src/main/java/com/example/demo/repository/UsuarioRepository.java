@@ -1,6 +1,7 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.Usuario;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,6 +10,8 @@ import java.util.Optional;
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, Integer> {
 
+    // El rol viaja con el usuario: lo usan el filtro JWT y la caché fuera de la sesión JPA
+    @EntityGraph(attributePaths = {"rol"})
     Optional<Usuario> findByCorreo(String correo);
 
     boolean existsByCedula(String cedula);
@@ -0,0 +1,50 @@
+package com.example.demo.repository.projection;
+
+import com.example.demo.entity.Alerta;
+import com.example.demo.entity.InstanciaReporte;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Alerta con los datos de su instancia, tipo y destinatario para la bandeja de alertas.
+ */
+public record AlertaView(
+        Integer id,
+        Integer instanciaId,
+        String reporteNombre,
+        String periodoReportado,
+        String entidadNombre,
+        LocalDate fechaVencimiento,
+        Integer tipoAlertaId,
+        String tipoAlertaNombre,
+        String tipoAlertaColor,
+        Integer usuarioDestinoId,
+        String usuarioDestinoNombre,
+        LocalDateTime fechaProgramada,
+        LocalDateTime fechaEnviada,
+        boolean enviada,
+        String mensaje,
+        boolean leida) {
+
+    public static AlertaView de(Alerta a) {
+        InstanciaReporte i = a.getInstancia();
+        return new AlertaView(
+                a.getId(),
+                i.getId(),
+                i.getReporte().getNombre(),
+                i.getPeriodoReportado(),
+                i.getReporte().getEntidad().getRazonSocial(),
+                i.getFechaVencimientoCalculada(),
+                a.getTipo().getId(),
+                a.getTipo().getNombre(),
+                a.getTipo().getColor(),
+                a.getUsuarioDestino() != null ? a.getUsuarioDestino().getId() : null,
+                a.getUsuarioDestino() != null ? a.getUsuarioDestino().getNombreCompleto() : null,
+                a.getFechaProgramada(),
+                a.getFechaEnviada(),
+                a.isEnviada(),
+                a.getMensaje(),
+                a.isLeida());
+    }
+}
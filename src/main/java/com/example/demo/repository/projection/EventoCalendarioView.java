@@ -0,0 +1,21 @@
+package com.example.demo.repository.projection;
+
+import java.time.LocalDate;
+
+/**
+ * Columnas que necesita un evento del calendario, en una sola fila por instancia.
+ */
+public record EventoCalendarioView(
+        Integer id,
+        LocalDate fechaVencimiento,
+        String periodoReportado,
+        String estado,
+        String reporteId,
+        String reporteNombre,
+        Integer entidadId,
+        String entidad,
+        String frecuencia,
+        Integer responsableElaboracionId,
+        String responsableElaboracion,
+        Integer responsableSupervisionId) {
+}
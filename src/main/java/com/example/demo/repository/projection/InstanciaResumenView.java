@@ -0,0 +1,76 @@
+package com.example.demo.repository.projection;
+
+import com.example.demo.entity.InstanciaReporte;
+import com.example.demo.entity.Reporte;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Fila plana de una instancia para listados: solo las columnas que muestra
+ * InstanciaReporteDTO, leídas con una consulta constructora (sin cargar usuarios, roles ni contraseñas).
+ */
+public record InstanciaResumenView(
+        Integer id,
+        String reporteId,
+        String reporteNombre,
+        Integer entidadId,
+        String entidadNombre,
+        String frecuencia,
+        String formatoRequerido,
+        String baseLegal,
+        String periodoReportado,
+        LocalDate fechaVencimientoCalculada,
+        LocalDateTime fechaEnvioReal,
+        Integer estadoId,
+        String estadoNombre,
+        Integer diasDesviacion,
+        String linkReporteFinal,
+        String linkEvidenciaEnvio,
+        String nombreArchivo,
+        String driveFileId,
+        Integer responsableElaboracionId,
+        String responsableElaboracion,
+        Integer responsableSupervisionId,
+        String responsableSupervision,
+        Integer enviadoPorId,
+        String enviadoPorNombre,
+        String observaciones,
+        LocalDateTime fechaCreacion,
+        LocalDateTime fechaActualizacion) {
+
+    /**
+     * La misma vista a partir de una entidad ya cargada (p. ej. después de guardarla).
+     */
+    public static InstanciaResumenView de(InstanciaReporte i) {
+        Reporte r = i.getReporte();
+        return new InstanciaResumenView(
+                i.getId(),
+                r.getId(),
+                r.getNombre(),
+                r.getEntidad().getId(),
+                r.getEntidad().getRazonSocial(),
+                r.getFrecuencia().getNombre(),
+                r.getFormatoRequerido(),
+                r.getBaseLegal(),
+                i.getPeriodoReportado(),
+                i.getFechaVencimientoCalculada(),
+                i.getFechaEnvioReal(),
+                i.getEstado().getId(),
+                i.getEstado().getNombre(),
+                i.getDiasDesviacion(),
+                i.getLinkReporteFinal(),
+                i.getLinkEvidenciaEnvio(),
+                i.getNombreArchivo(),
+                i.getDriveFileId(),
+                r.getResponsableElaboracion() != null ? r.getResponsableElaboracion().getId() : null,
+                r.getResponsableElaboracion() != null ? r.getResponsableElaboracion().getNombreCompleto() : null,
+                r.getResponsableSupervision() != null ? r.getResponsableSupervision().getId() : null,
+                r.getResponsableSupervision() != null ? r.getResponsableSupervision().getNombreCompleto() : null,
+                i.getEnviadoPor() != null ? i.getEnviadoPor().getId() : null,
+                i.getEnviadoPor() != null ? i.getEnviadoPor().getNombreCompleto() : null,
+                i.getObservaciones(),
+                i.getFechaCreacion(),
+                i.getFechaActualizacion());
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.repository.projection;
+
+/**
+ * Fila agregada por estado de cumplimiento para el dashboard de estadísticas.
+ * Los contadores se calculan en la base de datos con SUM(CASE ...) en una sola consulta.
+ */
+public interface ResumenEstadoView {
+    String getEstado();
+    Long getTotal();
+    Long getEnviadosATiempo();
+    Long getEnviadosTarde();
+    Long getVencidos();
+    Long getPendientes();
+    Long getSumaDiasRetraso();
+    Long getConRetraso();
+    Long getProximos7Dias();
+    Long getProximos3Dias();
+}
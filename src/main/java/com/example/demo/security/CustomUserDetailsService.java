@@ -1,7 +1,7 @@
 package com.example.demo.security;
 
 import com.example.demo.entity.Usuario;
-import com.example.demo.repository.UsuarioRepository;
+import com.example.demo.service.UsuarioCacheService;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,15 +14,16 @@ import java.util.Collections;
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
-    private final UsuarioRepository usuarioRepository;
+    private final UsuarioCacheService usuarioCache;
 
-    public CustomUserDetailsService(UsuarioRepository usuarioRepository) {
-        this.usuarioRepository = usuarioRepository;
+    public CustomUserDetailsService(UsuarioCacheService usuarioCache) {
+        this.usuarioCache = usuarioCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String correo) throws UsernameNotFoundException {
-        Usuario u = usuarioRepository.findByCorreo(correo)
+        // Se construye un User nuevo cada vez: Spring borra la contraseña del principal tras autenticar
+        Usuario u = usuarioCache.buscarPorCorreo(correo)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + correo));
 
         if (!u.isActivo()) {
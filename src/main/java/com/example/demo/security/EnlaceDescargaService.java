@@ -0,0 +1,79 @@
+package com.example.demo.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Enlaces de descarga firmados para /api/archivos. Un navegador que sigue un
+ * enlace no envía el Bearer, así que el cliente autenticado pide un enlace con
+ * vencimiento corto y firma HMAC sobre fileId, nombre y vencimiento; la descarga
+ * se acepta con el Bearer o con una firma vigente.
+ */
+@Component
+public class EnlaceDescargaService {
+
+    private static final String ALGORITMO = "HmacSHA256";
+
+    private final SecretKeySpec clave;
+    private final long vigenciaSegundos;
+
+    public EnlaceDescargaService(@Value("${almacenamiento.descarga.secreto:${jwt.secret}}") String secreto,
+                                 @Value("${almacenamiento.descarga.vigencia-segundos:300}") long vigenciaSegundos) {
+        this.clave = new SecretKeySpec(secreto.getBytes(StandardCharsets.UTF_8), ALGORITMO);
+        this.vigenciaSegundos = vigenciaSegundos;
+    }
+
+    /**
+     * URL relativa firmada para descargar el archivo durante la vigencia configurada.
+     */
+    public String firmar(String fileId, String nombre) {
+        long expira = System.currentTimeMillis() / 1000 + vigenciaSegundos;
+        boolean conNombre = nombre != null && !nombre.isBlank();
+        // Nombre como variable: así se codifica completo, incluidos '+' y '&'
+        UriComponentsBuilder url = UriComponentsBuilder.fromPath("/api/archivos/{fileId}");
+        if (conNombre) {
+            url.queryParam("nombre", "{nombre}");
+        }
+        return url.queryParam("expira", expira)
+                .queryParam("firma", firma(fileId, conNombre ? nombre : null, expira))
+                .encode()
+                .buildAndExpand(Map.of("fileId", fileId, "nombre", conNombre ? nombre : ""))
+                .toUriString();
+    }
+
+    /**
+     * True si la firma corresponde a fileId, nombre y vencimiento, y no ha vencido.
+     */
+    public boolean esValida(String fileId, String nombre, Long expira, String firma) {
+        if (expira == null || firma == null || expira < System.currentTimeMillis() / 1000) {
+            return false;
+        }
+        return MessageDigest.isEqual(
+                firma(fileId, nombre, expira).getBytes(StandardCharsets.US_ASCII),
+                firma.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public long getVigenciaSegundos() {
+        return vigenciaSegundos;
+    }
+
+    private String firma(String fileId, String nombre, long expira) {
+        String datos = fileId + "\n" + (nombre == null || nombre.isBlank() ? "" : nombre) + "\n" + expira;
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(clave);
+            return HexFormat.of().formatHex(mac.doFinal(datos.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 no disponible", e);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.demo.security;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -15,12 +18,17 @@ import java.io.IOException;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String RUTA_STREAM_ALERTAS = "/api/alertas/mis-alertas/stream";
+
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final TicketStreamService ticketStream;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService,
+                                   TicketStreamService ticketStream) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.ticketStream = ticketStream;
     }
 
     @Override
@@ -29,19 +37,50 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
 
         String token = resolveToken(request);
-        if (StringUtils.hasText(token) && jwtUtil.validateToken(token)) {
-            String username = jwtUtil.getUsernameFromToken(token);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                    userDetails, null, userDetails.getAuthorities()
-            );
-            auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(auth);
+        Claims claims = StringUtils.hasText(token) ? jwtUtil.parseClaims(token) : null;
+        try {
+            if (claims != null) {
+                // El usuario sale de la caché; solo se consulta la BD al expirar o invalidarse
+                UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+
+                // Si el rol cambió desde que se emitió el token, se exige un nuevo login
+                if (rolCoincide(claims.get("role", String.class), userDetails)) {
+                    autenticar(userDetails, request);
+                }
+            } else if (token == null && RUTA_STREAM_ALERTAS.equals(request.getRequestURI())) {
+                // EventSource no permite cabeceras: el stream se abre con un ticket de un solo uso
+                String username = ticketStream.consumir(request.getParameter("ticket"));
+                if (username != null) {
+                    autenticar(userDetailsService.loadUserByUsername(username), request);
+                }
+            }
+        } catch (UsernameNotFoundException e) {
+            // Usuario eliminado o inactivo: la petición sigue sin autenticar
         }
         filterChain.doFilter(request, response);
     }
 
+    private void autenticar(UserDetails userDetails, HttpServletRequest request) {
+        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities()
+        );
+        auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(auth);
+    }
+
+    private boolean rolCoincide(String rolToken, UserDetails userDetails) {
+        if (rolToken == null) {
+            return true;
+        }
+        String esperado = rolToken.startsWith("ROLE_") ? rolToken : "ROLE_" + rolToken;
+        for (GrantedAuthority authority : userDetails.getAuthorities()) {
+            if (esperado.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String resolveToken(HttpServletRequest request) {
         String bearer = request.getHeader("Authorization");
         if (StringUtils.hasText(bearer) && bearer.startsWith("Bearer ")) {
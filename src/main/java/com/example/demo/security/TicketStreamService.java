@@ -0,0 +1,60 @@
+package com.example.demo.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tickets de un solo uso para abrir el stream SSE de alertas. EventSource no envía
+ * cabeceras, así que la credencial viaja en la URL (y con ella en logs de acceso y
+ * proxies): en lugar del JWT se usa un ticket aleatorio que vale unos segundos y
+ * se consume al abrir la conexión.
+ */
+@Component
+public class TicketStreamService {
+
+    private record Ticket(String username, long expiraEn) {
+    }
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final long vigenciaMs;
+
+    public TicketStreamService(@Value("${alertas.stream.ticket-vigencia-segundos:30}") long vigenciaSegundos) {
+        this.vigenciaMs = vigenciaSegundos * 1000;
+    }
+
+    /**
+     * Emite un ticket para el usuario autenticado.
+     */
+    public String emitir(String username) {
+        long ahora = System.currentTimeMillis();
+        // Los no usados se descartan al emitir: nunca hay más que los de la ventana de vigencia
+        tickets.values().removeIf(t -> t.expiraEn() < ahora);
+
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(ticket, new Ticket(username, ahora + vigenciaMs));
+        return ticket;
+    }
+
+    /**
+     * Consume el ticket y retorna su usuario, o null si no existe, ya se usó o expiró.
+     */
+    public String consumir(String ticket) {
+        Ticket t = ticket == null ? null : tickets.remove(ticket);
+        if (t == null || t.expiraEn() < System.currentTimeMillis()) {
+            return null;
+        }
+        return t.username();
+    }
+
+    public long getVigenciaSegundos() {
+        return vigenciaMs / 1000;
+    }
+}
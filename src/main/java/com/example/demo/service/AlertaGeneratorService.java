@@ -2,109 +2,264 @@ package com.example.demo.service;
 
 import com.example.demo.entity.*;
 import com.example.demo.repository.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class AlertaGeneratorService {
 
+    private static final String SQL_INSERTAR_ALERTA =
+            "INSERT INTO alertas (instancia_reporte_id, tipo_alerta_id, usuario_destino_id, fecha_programada, " +
+            "fecha_enviada, enviada, mensaje, leida) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final InstanciaReporteRepository instanciaRepo;
-    private final TipoAlertaRepository tipoAlertaRepo;
+    private final CatalogoCacheService catalogos;
     private final AlertaRepository alertaRepo;
     private final NotificacionService notificacionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AlertaStreamService alertaStream;
+    private final FechaVencimientoCalculator fechaCalculator;
+    private final CalendarioHabilService calendarioHabil;
+
+    @Value("${alertas.generacion.tamano-lote:500}")
+    private int tamanoLote;
+
+    // "individual": un mensaje por alerta; "resumen": un mensaje por usuario y canal por corrida
+    @Value("${alertas.notificacion.modo:individual}")
+    private String modoNotificacion;
 
     public AlertaGeneratorService(InstanciaReporteRepository instanciaRepo,
-                                  TipoAlertaRepository tipoAlertaRepo,
+                                  CatalogoCacheService catalogos,
                                   AlertaRepository alertaRepo,
-                                  NotificacionService notificacionService) {
+                                  NotificacionService notificacionService,
+                                  JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  AlertaStreamService alertaStream,
+                                  FechaVencimientoCalculator fechaCalculator,
+                                  CalendarioHabilService calendarioHabil) {
         this.instanciaRepo = instanciaRepo;
-        this.tipoAlertaRepo = tipoAlertaRepo;
+        this.catalogos = catalogos;
         this.alertaRepo = alertaRepo;
         this.notificacionService = notificacionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.alertaStream = alertaStream;
+        this.fechaCalculator = fechaCalculator;
+        this.calendarioHabil = calendarioHabil;
     }
 
     /**
-     * Ejecuta cada día a las 8:00 AM para verificar y generar alertas
+     * Ejecuta cada día a las 8:00 AM para verificar y generar alertas.
+     * Recorre solo las instancias candidatas en lotes; cada lote se inserta con
+     * JDBC batch y se confirma en su propia transacción, junto con sus
+     * notificaciones encoladas en el outbox. En modo resumen las notificaciones
+     * se encolan al final, agrupadas por usuario.
      */
-    @Scheduled(cron = "0 0 8 * * *")
-    @Transactional
+    @Scheduled(cron = "${alertas.generacion.cron:0 0 8 * * *}")
     public void generarAlertasAutomaticas() {
         System.out.println("🔔 Iniciando generación de alertas automáticas...");
 
-        List<InstanciaReporte> instanciasPendientes = instanciaRepo.findAll().stream()
-                .filter(i -> !i.getEstado().getNombre().equalsIgnoreCase("Enviado") &&
-                             !i.getEstado().getNombre().equalsIgnoreCase("Aprobado"))
-                .toList();
-
         LocalDate hoy = LocalDate.now();
+        List<TipoAlerta> tiposAlerta = catalogos.listarTiposAlerta();
 
-        for (InstanciaReporte instancia : instanciasPendientes) {
-            LocalDate fechaVencimiento = instancia.getFechaVencimientoCalculada();
-            long diasHastaVencimiento = ChronoUnit.DAYS.between(hoy, fechaVencimiento);
+        Set<LocalDate> fechasObjetivo = calcularFechasObjetivo(tiposAlerta, hoy);
+        if (fechasObjetivo.isEmpty()) {
+            // IN () no es SQL válido; una fecha pasada ya está cubierta por "vencidas"
+            fechasObjetivo.add(hoy.minusDays(1));
+        }
 
-            // Obtener tipos de alerta
-            List<TipoAlerta> tiposAlerta = tipoAlertaRepo.findAll();
+        boolean resumen = esModoResumen();
+        List<Alerta> generadas = new ArrayList<>();
+        int ultimoId = 0;
+        int totalAlertas = 0;
+        while (true) {
+            final int desdeId = ultimoId;
+            LoteAlertas lote = transactionTemplate.execute(status ->
+                    procesarLote(tiposAlerta, fechasObjetivo, hoy, desdeId, !resumen));
+            if (lote == null || lote.candidatos() == 0) {
+                break;
+            }
 
-            // Generar alertas según los días hasta el vencimiento
-            for (TipoAlerta tipo : tiposAlerta) {
-                boolean debeGenerarAlerta = false;
+            if (resumen) {
+                generadas.addAll(lote.alertas());
+            }
+            totalAlertas += lote.alertas().size();
+            ultimoId = lote.ultimoId();
+
+            if (lote.candidatos() < tamanoLote) {
+                break;
+            }
+        }
+
+        if (resumen && !generadas.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> notificacionService.enviarResumenAlertas(generadas));
+        }
+
+        System.out.println("✓ Generación de alertas completada: " + totalAlertas + " alertas");
+    }
+
+    /**
+     * Fechas de vencimiento que disparan alguna alerta preventiva hoy: a N días
+     * calendario y, para los reportes con plazo en días hábiles, las que quedan a N
+     * hábiles en el calendario nacional o en el de alguna entidad con festivos propios.
+     * Las tablas de días hábiles están precalculadas, así que son unas pocas lecturas.
+     */
+    private Set<LocalDate> calcularFechasObjetivo(List<TipoAlerta> tiposAlerta, LocalDate hoy) {
+        Set<LocalDate> fechas = new HashSet<>();
+        List<CalendarioLaboral> calendarios = calendarioHabil.calendariosDistintos();
+        for (TipoAlerta tipo : tiposAlerta) {
+            if (tipo.isEsPostVencimiento() || tipo.getDiasAntesVencimiento() == null) {
+                continue;
+            }
+            int dias = tipo.getDiasAntesVencimiento();
+            fechas.add(hoy.plusDays(dias));
+            for (CalendarioLaboral calendario : calendarios) {
+                // Fechas a exactamente N hábiles: desde el N-ésimo hábil hasta antes del siguiente
+                LocalDate desde = dias <= 0 ? hoy : calendario.sumarDiasHabiles(hoy, dias);
+                LocalDate hasta = calendario.sumarDiasHabiles(hoy, dias + 1);
+                for (LocalDate fecha = desde; fecha.isBefore(hasta); fecha = fecha.plusDays(1)) {
+                    fechas.add(fecha);
+                }
+            }
+        }
+        return fechas;
+    }
+
+    private boolean esModoResumen() {
+        return "resumen".equalsIgnoreCase(modoNotificacion);
+    }
+
+    private record LoteAlertas(int candidatos, int ultimoId, List<Alerta> alertas) {
+    }
+
+    /**
+     * Procesa un lote de instancias candidatas: descarta las que ya tienen alerta del
+     * mismo tipo hoy e inserta las nuevas en un solo batch.
+     */
+    private LoteAlertas procesarLote(List<TipoAlerta> tiposAlerta, Set<LocalDate> fechasObjetivo,
+                                     LocalDate hoy, int desdeId, boolean notificar) {
+        List<InstanciaReporte> candidatas = instanciaRepo.findCandidatosAlerta(
+                fechasObjetivo, hoy, desdeId, PageRequest.of(0, tamanoLote));
+        if (candidatas.isEmpty()) {
+            return new LoteAlertas(0, desdeId, List.of());
+        }
 
+        List<Integer> ids = candidatas.stream().map(InstanciaReporte::getId).toList();
+        Set<String> existentes = new HashSet<>();
+        for (Object[] fila : alertaRepo.findTiposProgramadosEntre(ids, hoy.atStartOfDay(), hoy.plusDays(1).atStartOfDay())) {
+            existentes.add(fila[0] + ":" + fila[1]);
+        }
+
+        List<Alerta> nuevas = new ArrayList<>();
+        for (InstanciaReporte instancia : candidatas) {
+            long diasHastaVencimiento = fechaCalculator.calcularDiasHasta(
+                    instancia.getReporte(), hoy, instancia.getFechaVencimientoCalculada());
+
+            for (TipoAlerta tipo : tiposAlerta) {
+                boolean debeGenerarAlerta;
                 if (!tipo.isEsPostVencimiento()) {
                     // Alertas previas al vencimiento
-                    if (diasHastaVencimiento == tipo.getDiasAntesVencimiento()) {
-                        debeGenerarAlerta = true;
-                    }
+                    debeGenerarAlerta = tipo.getDiasAntesVencimiento() != null &&
+                                        diasHastaVencimiento == tipo.getDiasAntesVencimiento();
                 } else {
                     // Alertas post vencimiento (diarias)
-                    if (diasHastaVencimiento < 0) {
-                        debeGenerarAlerta = true;
-                    }
+                    debeGenerarAlerta = diasHastaVencimiento < 0;
                 }
 
-                if (debeGenerarAlerta) {
-                    // Verificar si ya existe una alerta similar
-                    boolean alertaExiste = alertaRepo.findByInstancia(instancia).stream()
-                            .anyMatch(a -> a.getTipo().getId().equals(tipo.getId()) &&
-                                         a.getFechaProgramada().toLocalDate().equals(hoy));
-
-                    if (!alertaExiste) {
-                        generarAlerta(instancia, tipo, diasHastaVencimiento);
-                    }
+                if (debeGenerarAlerta && !existentes.contains(instancia.getId() + ":" + tipo.getId())) {
+                    nuevas.addAll(construirAlertas(instancia, tipo, diasHastaVencimiento));
                 }
             }
         }
 
-        System.out.println("✓ Generación de alertas completada");
+        insertarEnLote(nuevas);
+        alertaStream.publicarNuevas(nuevas);
+        if (notificar) {
+            nuevas.forEach(notificacionService::enviarNotificacionAlerta);
+        }
+        return new LoteAlertas(candidatas.size(), candidatas.get(candidatas.size() - 1).getId(), nuevas);
     }
 
     /**
-     * Genera y envía una alerta específica
+     * Inserta las alertas en un solo batch y les asigna los ids generados.
      */
-    private void generarAlerta(InstanciaReporte instancia, TipoAlerta tipo, long diasHastaVencimiento) {
-        Usuario responsable = instancia.getReporte().getResponsableElaboracion();
-        Usuario supervisor = instancia.getReporte().getResponsableSupervision();
+    private void insertarEnLote(List<Alerta> alertas) {
+        if (alertas.isEmpty()) {
+            return;
+        }
+        KeyHolder claves = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(SQL_INSERTAR_ALERTA, new String[]{"id_alerta"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Alerta alerta = alertas.get(i);
+                        ps.setInt(1, alerta.getInstancia().getId());
+                        ps.setInt(2, alerta.getTipo().getId());
+                        ps.setInt(3, alerta.getUsuarioDestino().getId());
+                        ps.setTimestamp(4, Timestamp.valueOf(alerta.getFechaProgramada()));
+                        ps.setTimestamp(5, Timestamp.valueOf(alerta.getFechaEnviada()));
+                        ps.setBoolean(6, alerta.isEnviada());
+                        ps.setString(7, alerta.getMensaje());
+                        ps.setBoolean(8, alerta.isLeida());
+                    }
 
-        // Crear alerta para responsable
-        Alerta alertaResponsable = crearAlerta(instancia, tipo, responsable, diasHastaVencimiento);
-        alertaRepo.save(alertaResponsable);
+                    @Override
+                    public int getBatchSize() {
+                        return alertas.size();
+                    }
+                }, claves);
 
-        // Enviar notificación por correo
-        notificacionService.enviarNotificacionAlerta(alertaResponsable);
+        List<Map<String, Object>> ids = claves.getKeyList();
+        for (int i = 0; i < ids.size() && i < alertas.size(); i++) {
+            Object id = ids.get(i).values().iterator().next();
+            alertas.get(i).setId(((Number) id).intValue());
+        }
+    }
 
-        // Si es alerta crítica, notificar también al supervisor
+    /**
+     * Alertas a crear para una instancia y tipo: responsable siempre, supervisor si es crítica.
+     */
+    private List<Alerta> construirAlertas(InstanciaReporte instancia, TipoAlerta tipo, long diasHastaVencimiento) {
+        List<Alerta> alertas = new ArrayList<>(2);
+        alertas.add(crearAlerta(instancia, tipo, instancia.getReporte().getResponsableElaboracion(), diasHastaVencimiento));
         if (tipo.isEsPostVencimiento() || tipo.getDiasAntesVencimiento() <= 1) {
-            Alerta alertaSupervisor = crearAlerta(instancia, tipo, supervisor, diasHastaVencimiento);
-            alertaRepo.save(alertaSupervisor);
-            notificacionService.enviarNotificacionAlerta(alertaSupervisor);
+            alertas.add(crearAlerta(instancia, tipo, instancia.getReporte().getResponsableSupervision(), diasHastaVencimiento));
+        }
+        return alertas;
+    }
+
+    /**
+     * Genera y envía una alerta específica
+     */
+    private void generarAlerta(InstanciaReporte instancia, TipoAlerta tipo, long diasHastaVencimiento) {
+        List<Alerta> alertas = construirAlertas(instancia, tipo, diasHastaVencimiento);
+        for (Alerta alerta : alertas) {
+            alertaRepo.save(alerta);
+            notificacionService.enviarNotificacionAlerta(alerta);
         }
+        alertaStream.publicarNuevas(alertas);
 
-        System.out.println("✓ Alerta generada: " + tipo.getNombre() + " para " + responsable.getNombreCompleto());
+        System.out.println("✓ Alerta generada: " + tipo.getNombre() + " para " +
+                           instancia.getReporte().getResponsableElaboracion().getNombreCompleto());
     }
 
     private Alerta crearAlerta(InstanciaReporte instancia, TipoAlerta tipo, Usuario destino, long diasHastaVencimiento) {
@@ -126,30 +281,32 @@ public class AlertaGeneratorService {
         String entidad = instancia.getReporte().getEntidad().getRazonSocial();
         String periodo = instancia.getPeriodoReportado();
         LocalDate fechaVencimiento = instancia.getFechaVencimientoCalculada();
+        boolean habiles = instancia.getReporte().isPlazoDiasHabiles();
+        String dias = habiles ? "días hábiles" : "días";
 
         if (tipo.isEsPostVencimiento()) {
             return String.format(
-                "🔴 ¡ALERTA CRÍTICA! El reporte '%s' para %s (Período: %s) está VENCIDO desde hace %d días. " +
+                "🔴 ¡ALERTA CRÍTICA! El reporte '%s' para %s (Período: %s) está VENCIDO desde hace %d %s. " +
                 "Fecha límite: %s. Envíe de inmediato para evitar sanciones.",
-                nombreReporte, entidad, periodo, Math.abs(diasHastaVencimiento), fechaVencimiento
+                nombreReporte, entidad, periodo, Math.abs(diasHastaVencimiento), dias, fechaVencimiento
             );
         } else if (tipo.getDiasAntesVencimiento() == 1) {
             return String.format(
-                "🟠 ¡URGENTE! El reporte '%s' para %s (Período: %s) vence MAÑANA (%s). " +
+                "🟠 ¡URGENTE! El reporte '%s' para %s (Período: %s) vence %s (%s). " +
                 "Por favor, complete y envíe lo antes posible.",
-                nombreReporte, entidad, periodo, fechaVencimiento
+                nombreReporte, entidad, periodo, habiles ? "el PRÓXIMO DÍA HÁBIL" : "MAÑANA", fechaVencimiento
             );
         } else if (tipo.getDiasAntesVencimiento() <= 5) {
             return String.format(
-                "🟡 ATENCIÓN: El reporte '%s' para %s (Período: %s) vence en %d días (%s). " +
+                "🟡 ATENCIÓN: El reporte '%s' para %s (Período: %s) vence en %d %s (%s). " +
                 "Asegúrese de avanzar en la elaboración.",
-                nombreReporte, entidad, periodo, diasHastaVencimiento, fechaVencimiento
+                nombreReporte, entidad, periodo, diasHastaVencimiento, dias, fechaVencimiento
             );
         } else {
             return String.format(
-                "🟢 RECORDATORIO: El reporte '%s' para %s (Período: %s) vence en %d días (%s). " +
+                "🟢 RECORDATORIO: El reporte '%s' para %s (Período: %s) vence en %d %s (%s). " +
                 "Inicie la recolección de información. Base legal: %s",
-                nombreReporte, entidad, periodo, diasHastaVencimiento, fechaVencimiento,
+                nombreReporte, entidad, periodo, diasHastaVencimiento, dias, fechaVencimiento,
                 instancia.getReporte().getBaseLegal()
             );
         }
@@ -161,11 +318,12 @@ public class AlertaGeneratorService {
     public void generarAlertaManual(Integer instanciaId, Integer tipoAlertaId) {
         InstanciaReporte instancia = instanciaRepo.findById(instanciaId)
                 .orElseThrow(() -> new RuntimeException("Instancia no encontrada"));
-        TipoAlerta tipo = tipoAlertaRepo.findById(tipoAlertaId)
+        TipoAlerta tipo = catalogos.tipoAlertaPorId(tipoAlertaId)
                 .orElseThrow(() -> new RuntimeException("Tipo de alerta no encontrado"));
 
         LocalDate hoy = LocalDate.now();
-        long diasHastaVencimiento = ChronoUnit.DAYS.between(hoy, instancia.getFechaVencimientoCalculada());
+        long diasHastaVencimiento = fechaCalculator.calcularDiasHasta(
+                instancia.getReporte(), hoy, instancia.getFechaVencimientoCalculada());
 
         generarAlerta(instancia, tipo, diasHastaVencimiento);
     }
@@ -3,6 +3,7 @@ package com.example.demo.service;
 import com.example.demo.dto.AlertaDTO;
 import com.example.demo.entity.Alerta;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -24,6 +25,7 @@ public interface AlertaService {
     long contarAlertasNoLeidasUsuarioActual(Authentication authentication);
     AlertaDTO marcarComoLeidaDTO(Integer id, Authentication authentication);
     int marcarTodasComoLeidas(Authentication authentication);
+    SseEmitter suscribirAlertas(Authentication authentication);
     
     // Para admin
     List<AlertaDTO> listarTodasDTO(Authentication authentication);
@@ -0,0 +1,297 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AlertaDTO;
+import com.example.demo.entity.Alerta;
+import com.example.demo.mapper.AlertaMapper;
+import com.example.demo.repository.AlertaRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Canal SSE de alertas no leídas. Cada navegador suscrito recibe el contador
+ * inicial al conectarse y después solo cambios: alertas nuevas ("alerta"),
+ * variaciones del contador ("delta") y reinicios ("contador"). Un dashboard
+ * inactivo no genera consultas; el único tráfico es un heartbeat.
+ * Cada suscriptor tiene una cola acotada que se vacía en un pool propio, así un
+ * cliente lento nunca bloquea a quien genera o marca alertas.
+ */
+@Service
+public class AlertaStreamService {
+
+    /**
+     * Evento pendiente de escribir; nombre nulo = comentario de heartbeat.
+     * Se construye al enviar porque un SseEventBuilder no se puede reutilizar.
+     */
+    private record Evento(String nombre, Object datos) {
+    }
+
+    private static final Evento PING = new Evento(null, "ping");
+
+    private static final class Suscriptor {
+        final Integer usuarioId;
+        final boolean administrador;
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<Evento> cola;
+        final AtomicBoolean programado = new AtomicBoolean();
+
+        Suscriptor(Integer usuarioId, boolean administrador, SseEmitter emitter, int capacidad) {
+            this.usuarioId = usuarioId;
+            this.administrador = administrador;
+            this.emitter = emitter;
+            this.cola = new ArrayBlockingQueue<>(capacidad);
+        }
+    }
+
+    private final AlertaRepository alertaRepo;
+    private final AlertaMapper mapper;
+    private final ThreadPoolTaskExecutor executor;
+
+    // Suscriptores por usuario, del más antiguo al más reciente
+    private final Map<Integer, Queue<Suscriptor>> porUsuario = new ConcurrentHashMap<>();
+    // Los administradores ven todas las alertas
+    private final Set<Suscriptor> administradores = ConcurrentHashMap.newKeySet();
+
+    @Value("${alertas.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    // Eventos pendientes por conexión; si se llena, el cliente recibe "recargar"
+    @Value("${alertas.stream.capacidad-cola:50}")
+    private int capacidadCola;
+
+    // Pestañas abiertas por usuario; al superarlo se cierra la conexión más antigua
+    @Value("${alertas.stream.maximo-por-usuario:5}")
+    private int maximoPorUsuario;
+
+    public AlertaStreamService(AlertaRepository alertaRepo,
+                               AlertaMapper mapper,
+                               @Qualifier("alertasStreamExecutor") ThreadPoolTaskExecutor executor) {
+        this.alertaRepo = alertaRepo;
+        this.mapper = mapper;
+        this.executor = executor;
+    }
+
+    /**
+     * Registra una conexión SSE. El contador inicial se consulta en el pool del
+     * canal, no en el hilo de la petición, para no retener una conexión de BD
+     * mientras el stream siga abierto.
+     */
+    public SseEmitter suscribir(Integer usuarioId, boolean administrador) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Suscriptor suscriptor = new Suscriptor(usuarioId, administrador, emitter, capacidadCola);
+
+        emitter.onCompletion(() -> quitar(suscriptor));
+        emitter.onTimeout(() -> {
+            // Cerrar aquí evita que el timeout llegue como excepción al manejador global
+            quitar(suscriptor);
+            emitter.complete();
+        });
+        emitter.onError(e -> quitar(suscriptor));
+
+        Queue<Suscriptor> delUsuario = porUsuario.compute(usuarioId, (id, suscriptores) -> {
+            Queue<Suscriptor> cola = suscriptores != null ? suscriptores : new ConcurrentLinkedQueue<>();
+            cola.add(suscriptor);
+            return cola;
+        });
+        if (administrador) {
+            administradores.add(suscriptor);
+        }
+        while (delUsuario.size() > maximoPorUsuario) {
+            Suscriptor antiguo = delUsuario.poll();
+            if (antiguo != null) {
+                quitar(antiguo);
+                antiguo.emitter.complete();
+            }
+        }
+
+        ejecutar(() -> {
+            long noLeidas = administrador ? alertaRepo.contarTodasNoLeidas() : alertaRepo.contarNoLeidas(usuarioId);
+            encolar(suscriptor, new Evento("contador", Map.of("noLeidas", noLeidas)));
+        });
+        return emitter;
+    }
+
+    /**
+     * Publica alertas recién creadas a sus destinatarios y a los administradores.
+     * Se llama dentro de la transacción que las inserta (lee su vista con una
+     * sola consulta) y se entrega al confirmar. Sin suscriptores no hace nada.
+     */
+    public void publicarNuevas(List<Alerta> alertas) {
+        List<Integer> ids = new ArrayList<>();
+        for (Alerta alerta : alertas) {
+            Integer destino = alerta.getUsuarioDestino() != null ? alerta.getUsuarioDestino().getId() : null;
+            if (alerta.getId() != null && (!administradores.isEmpty() || tieneSuscriptores(destino))) {
+                ids.add(alerta.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        List<AlertaDTO> nuevas = alertaRepo.findVistasPorIds(ids).stream()
+                .map(mapper::toDto)
+                .collect(Collectors.toList());
+
+        despuesDeConfirmar(() -> {
+            Map<Integer, Integer> noLeidasPorUsuario = new HashMap<>();
+            for (AlertaDTO dto : nuevas) {
+                enviar(dto.getUsuarioDestinoId(), "alerta", dto);
+                if (!dto.isLeida()) {
+                    noLeidasPorUsuario.merge(dto.getUsuarioDestinoId(), 1, Integer::sum);
+                }
+            }
+            noLeidasPorUsuario.forEach((usuarioId, cantidad) ->
+                    enviar(usuarioId, "delta", Map.of("delta", cantidad)));
+        });
+    }
+
+    /**
+     * Publica que un usuario marcó alertas como leídas.
+     */
+    public void publicarLeidas(Integer usuarioId, int cantidad) {
+        if (cantidad <= 0) {
+            return;
+        }
+        despuesDeConfirmar(() -> enviar(usuarioId, "delta", Map.of("delta", -cantidad)));
+    }
+
+    /**
+     * Un administrador marcó todas las alertas como leídas: todos los contadores quedan en cero.
+     */
+    public void publicarTodasLeidas() {
+        despuesDeConfirmar(() -> {
+            Evento cero = new Evento("contador", Map.of("noLeidas", 0));
+            porUsuario.values().forEach(suscriptores -> suscriptores.forEach(s -> encolar(s, cero)));
+        });
+    }
+
+    /**
+     * Mantiene vivas las conexiones a través de proxies que cortan streams inactivos.
+     */
+    @Scheduled(fixedDelayString = "${alertas.stream.heartbeat-ms:25000}")
+    public void enviarHeartbeat() {
+        porUsuario.values().forEach(suscriptores -> suscriptores.forEach(s -> encolar(s, PING)));
+    }
+
+    @PreDestroy
+    public void cerrarTodo() {
+        porUsuario.values().forEach(suscriptores -> suscriptores.forEach(s -> s.emitter.complete()));
+        porUsuario.clear();
+        administradores.clear();
+    }
+
+    private boolean tieneSuscriptores(Integer usuarioId) {
+        return usuarioId != null && porUsuario.containsKey(usuarioId);
+    }
+
+    /**
+     * Envía un evento a las conexiones del usuario y a las de los administradores
+     * (un administrador que también es el destinatario lo recibe una sola vez).
+     */
+    private void enviar(Integer usuarioId, String nombre, Object datos) {
+        Evento evento = new Evento(nombre, datos);
+        Queue<Suscriptor> delUsuario = usuarioId != null ? porUsuario.get(usuarioId) : null;
+        if (delUsuario != null) {
+            delUsuario.stream().filter(s -> !s.administrador).forEach(s -> encolar(s, evento));
+        }
+        administradores.forEach(s -> encolar(s, evento));
+    }
+
+    private SseEmitter.SseEventBuilder construir(Evento evento) {
+        if (evento.nombre() == null) {
+            return SseEmitter.event().comment(String.valueOf(evento.datos()));
+        }
+        return SseEmitter.event().name(evento.nombre()).data(evento.datos(), MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Encola sin bloquear. Si la cola está llena se descarta lo pendiente y se
+     * pide al cliente recargar una vez, en lugar de acumular memoria.
+     */
+    private void encolar(Suscriptor suscriptor, Evento evento) {
+        if (!suscriptor.cola.offer(evento)) {
+            suscriptor.cola.clear();
+            suscriptor.cola.offer(new Evento("recargar", Map.of("motivo", "desbordado")));
+        }
+        programar(suscriptor);
+    }
+
+    private void programar(Suscriptor suscriptor) {
+        if (suscriptor.programado.compareAndSet(false, true)) {
+            if (!ejecutar(() -> drenar(suscriptor))) {
+                // Pool saturado: lo reintenta el siguiente evento o heartbeat
+                suscriptor.programado.set(false);
+            }
+        }
+    }
+
+    private void drenar(Suscriptor suscriptor) {
+        try {
+            Evento evento;
+            while ((evento = suscriptor.cola.poll()) != null) {
+                suscriptor.emitter.send(construir(evento));
+            }
+        } catch (Exception e) {
+            // Cliente desconectado
+            quitar(suscriptor);
+            suscriptor.cola.clear();
+            return;
+        } finally {
+            suscriptor.programado.set(false);
+        }
+        if (!suscriptor.cola.isEmpty()) {
+            programar(suscriptor);
+        }
+    }
+
+    private boolean ejecutar(Runnable tarea) {
+        try {
+            executor.execute(tarea);
+            return true;
+        } catch (TaskRejectedException e) {
+            System.err.println("⚠️ Canal de alertas saturado, evento diferido");
+            return false;
+        }
+    }
+
+    private void quitar(Suscriptor suscriptor) {
+        administradores.remove(suscriptor);
+        porUsuario.computeIfPresent(suscriptor.usuarioId, (id, suscriptores) -> {
+            suscriptores.remove(suscriptor);
+            return suscriptores.isEmpty() ? null : suscriptores;
+        });
+    }
+
+    private void despuesDeConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
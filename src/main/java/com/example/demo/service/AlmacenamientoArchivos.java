@@ -0,0 +1,27 @@
+package com.example.demo.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Dónde quedan los archivos de los reportes enviados: Google Drive o el
+ * almacenamiento local. El resultado de guardar trae fileId, fileName,
+ * webViewLink, webContentLink y mode, igual en ambos.
+ */
+public interface AlmacenamientoArchivos {
+
+    Map<String, String> guardar(MultipartFile archivo, String reporteId, String periodo) throws IOException;
+
+    // Archivo que ya está en disco; no se mueve ni se borra
+    Map<String, String> guardar(Path archivo, String nombreOriginal, String contentType,
+                                String reporteId, String periodo) throws IOException;
+
+    void eliminar(String fileId) throws IOException;
+
+    // Ruta en disco para descargar el archivo; vacío si no está en este servidor
+    Optional<Path> ubicar(String fileId);
+}
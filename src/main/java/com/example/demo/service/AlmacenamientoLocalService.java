@@ -0,0 +1,180 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.InstanciaReporteRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Almacenamiento local direccionado por contenido, para operar sin Google Drive.
+ * Cada archivo se guarda una sola vez con el SHA-256 de su contenido como nombre,
+ * repartido en carpetas por sus primeros caracteres (ab/cd/abcd...) para que
+ * ningún directorio crezca demasiado: reenviar el mismo archivo no ocupa más disco.
+ * Se escribe a un temporal en el mismo disco y se publica con un move atómico,
+ * así que nunca se ve un archivo a medias.
+ */
+@Service
+public class AlmacenamientoLocalService implements AlmacenamientoArchivos {
+
+    private static final String PREFIJO = "local_";
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final InstanciaReporteRepository instanciaRepo;
+    private final Path raiz;
+    private final Path temporales;
+
+    public AlmacenamientoLocalService(InstanciaReporteRepository instanciaRepo,
+                                      @Value("${almacenamiento.local.directorio:archivos}") String directorio) {
+        this.instanciaRepo = instanciaRepo;
+        this.raiz = Paths.get(directorio).toAbsolutePath().normalize();
+        this.temporales = raiz.resolve("tmp");
+    }
+
+    public Path getRaiz() {
+        return raiz;
+    }
+
+    @Override
+    public Map<String, String> guardar(MultipartFile archivo, String reporteId, String periodo) throws IOException {
+        Path temporal = nuevoTemporal();
+        try {
+            // El contenedor mueve su temporal si está en el mismo disco; si no, lo copia por stream
+            archivo.transferTo(temporal.toFile());
+            String hash = sha256(temporal);
+            Path destino = ruta(hash);
+            if (!Files.exists(destino)) {
+                Files.createDirectories(destino.getParent());
+                Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                System.out.println("♻ Archivo ya almacenado: " + hash);
+            }
+            return resultado(hash, archivo.getOriginalFilename());
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    @Override
+    public Map<String, String> guardar(Path archivo, String nombreOriginal, String contentType,
+                                       String reporteId, String periodo) throws IOException {
+        String hash = sha256(archivo);
+        Path destino = ruta(hash);
+        if (Files.exists(destino)) {
+            System.out.println("♻ Archivo ya almacenado: " + hash);
+            return resultado(hash, nombreOriginal);
+        }
+
+        Path temporal = nuevoTemporal();
+        try {
+            copiar(archivo, temporal);
+            Files.createDirectories(destino.getParent());
+            // Si otro envío publicó el mismo contenido mientras tanto, se reemplaza por uno idéntico
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+            return resultado(hash, nombreOriginal);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Borra el archivo solo si ninguna instancia lo referencia: el contenido se
+     * comparte entre todos los envíos idénticos.
+     */
+    @Override
+    public void eliminar(String fileId) throws IOException {
+        Optional<Path> archivo = ubicar(fileId);
+        if (archivo.isEmpty() || instanciaRepo.existsByDriveFileId(fileId)) {
+            return;
+        }
+        Files.deleteIfExists(archivo.get());
+    }
+
+    @Override
+    public Optional<Path> ubicar(String fileId) {
+        if (fileId == null || !fileId.startsWith(PREFIJO)) {
+            return Optional.empty();
+        }
+        String hash = fileId.substring(PREFIJO.length());
+        if (!HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path archivo = ruta(hash);
+        return Files.isRegularFile(archivo) ? Optional.of(archivo) : Optional.empty();
+    }
+
+    private Path ruta(String hash) {
+        return raiz.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private Path nuevoTemporal() throws IOException {
+        Files.createDirectories(temporales);
+        return temporales.resolve(UUID.randomUUID() + ".tmp");
+    }
+
+    private Map<String, String> resultado(String hash, String nombreOriginal) {
+        String fileId = PREFIJO + hash;
+        Map<String, String> result = new HashMap<>();
+        result.put("fileId", fileId);
+        result.put("fileName", nombreOriginal);
+        result.put("webViewLink", "/api/archivos/" + fileId);
+        result.put("webContentLink", "/api/archivos/" + fileId);
+        result.put("mode", "local");
+        return result;
+    }
+
+    /**
+     * Copia con FileChannel.transferTo: entre archivos el kernel copia sin pasar
+     * los datos por el heap.
+     */
+    private static void copiar(Path origen, Path destino) throws IOException {
+        try (FileChannel entrada = FileChannel.open(origen, StandardOpenOption.READ);
+             FileChannel salida = FileChannel.open(destino, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long tamano = entrada.size();
+            long posicion = 0;
+            while (posicion < tamano) {
+                long copiados = entrada.transferTo(posicion, tamano - posicion, salida);
+                if (copiados <= 0) {
+                    throw new IOException("El archivo cambió mientras se copiaba: " + origen);
+                }
+                posicion += copiados;
+            }
+            salida.force(true);
+        }
+    }
+
+    private static String sha256(Path archivo) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            while (canal.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.service;
+
+import com.example.demo.config.CacheSegundoNivelConfig;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aciertos, fallos y tamaño de cada región de la caché de segundo nivel, a partir
+ * de las estadísticas de Hibernate (hibernate.generate_statistics).
+ */
+@Service
+public class CacheSegundoNivelService {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CacheSegundoNivelService(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public Map<String, Object> estadisticas() {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> datos = new LinkedHashMap<>();
+        if (!stats.isStatisticsEnabled()) {
+            datos.put("habilitadas", false);
+            return datos;
+        }
+
+        Map<String, Object> regiones = new LinkedHashMap<>();
+        for (Class<?> entidad : CacheSegundoNivelConfig.ENTIDADES_CACHEADAS) {
+            CacheRegionStatistics region = stats.getDomainDataRegionStatistics(entidad.getName());
+            if (region == null) {
+                continue;
+            }
+            regiones.put(entidad.getSimpleName(), resumen(region.getHitCount(), region.getMissCount(),
+                    region.getPutCount(), region.getElementCountInMemory()));
+        }
+        datos.put("entidades", regiones);
+        datos.put("consultas", resumen(stats.getQueryCacheHitCount(), stats.getQueryCacheMissCount(),
+                stats.getQueryCachePutCount(), -1));
+        datos.put("total", resumen(stats.getSecondLevelCacheHitCount(), stats.getSecondLevelCacheMissCount(),
+                stats.getSecondLevelCachePutCount(), -1));
+        return datos;
+    }
+
+    private static Map<String, Object> resumen(long aciertos, long fallos, long escrituras, long elementos) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("aciertos", aciertos);
+        datos.put("fallos", fallos);
+        datos.put("escrituras", escrituras);
+        datos.put("tasaAciertos", aciertos + fallos == 0 ? 0.0 : (double) aciertos / (aciertos + fallos));
+        if (elementos >= 0) {
+            datos.put("elementos", elementos);
+        }
+        return datos;
+    }
+}
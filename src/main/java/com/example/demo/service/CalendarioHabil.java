@@ -0,0 +1,101 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Días hábiles de un año precalculados: un bit por día no hábil, el acumulado de
+ * días hábiles hasta cada día del año y el día del año de cada hábil. Con eso,
+ * "¿es hábil?", "¿cuántos hábiles hay entre dos fechas?" y "el n-ésimo hábil"
+ * son lecturas de arreglo. Inmutable; se comparte entre hilos.
+ */
+public final class CalendarioHabil {
+
+    private final int year;
+    private final int diasYear;
+    // Bit (d - 1) encendido = el día d del año no es hábil
+    private final long[] noHabiles;
+    // acumulado[d] = hábiles entre el 1 de enero y el día d (incluido); acumulado[0] = 0
+    private final short[] acumulado;
+    // habiles[k - 1] = día del año del k-ésimo hábil
+    private final short[] habiles;
+
+    private CalendarioHabil(int year, long[] noHabiles) {
+        this.year = year;
+        this.diasYear = Year.isLeap(year) ? 366 : 365;
+        this.noHabiles = noHabiles;
+        this.acumulado = new short[diasYear + 1];
+        short[] dias = new short[diasYear];
+        int total = 0;
+        for (int d = 1; d <= diasYear; d++) {
+            if (!marcado(noHabiles, d)) {
+                dias[total++] = (short) d;
+            }
+            acumulado[d] = (short) total;
+        }
+        this.habiles = Arrays.copyOf(dias, total);
+    }
+
+    /**
+     * Construye el calendario del año con los días del año (1..366) que no son hábiles.
+     */
+    public static CalendarioHabil deNoHabiles(int year, long[] noHabiles) {
+        return new CalendarioHabil(year, noHabiles.clone());
+    }
+
+    static void marcar(long[] bits, int diaDelYear, boolean noHabil) {
+        int i = diaDelYear - 1;
+        if (noHabil) {
+            bits[i >>> 6] |= 1L << i;
+        } else {
+            bits[i >>> 6] &= ~(1L << i);
+        }
+    }
+
+    private static boolean marcado(long[] bits, int diaDelYear) {
+        int i = diaDelYear - 1;
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public boolean esHabil(int diaDelYear) {
+        return !marcado(noHabiles, diaDelYear);
+    }
+
+    /**
+     * Hábiles entre el 1 de enero y el día indicado, ambos incluidos (0 para el día 0).
+     */
+    public int acumulado(int diaDelYear) {
+        return acumulado[diaDelYear];
+    }
+
+    public int totalHabiles() {
+        return habiles.length;
+    }
+
+    /**
+     * Fecha del k-ésimo día hábil del año (1 = primero).
+     */
+    public LocalDate habil(int k) {
+        return LocalDate.ofYearDay(year, habiles[k - 1]);
+    }
+
+    /**
+     * Fechas no hábiles del año, en orden.
+     */
+    public List<LocalDate> noHabiles() {
+        List<LocalDate> fechas = new ArrayList<>(diasYear - habiles.length);
+        for (int d = 1; d <= diasYear; d++) {
+            if (marcado(noHabiles, d)) {
+                fechas.add(LocalDate.ofYearDay(year, d));
+            }
+        }
+        return fechas;
+    }
+}
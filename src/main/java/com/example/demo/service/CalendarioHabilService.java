@@ -0,0 +1,216 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.DiaFestivo;
+import com.example.demo.repository.DiaFestivoRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.Year;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calendario de días hábiles: lunes a viernes menos los festivos de Colombia
+ * (fijos, trasladados al lunes por Ley Emiliani y los que dependen de la Pascua),
+ * más las excepciones de la tabla dias_festivos, generales o por entidad.
+ *
+ * Cada combinación entidad × año se precalcula una vez en un CalendarioHabil; las
+ * entidades sin excepciones propias comparten las tablas del calendario nacional.
+ * Al modificar los festivos se descarta todo y se reconstruye bajo demanda.
+ */
+@Service
+public class CalendarioHabilService {
+
+    // Clave de las tablas del calendario nacional
+    private static final int NACIONAL = 0;
+
+    // Fijos (Ley 51 de 1983)
+    private static final MonthDay[] FIJOS = {
+            MonthDay.of(1, 1), MonthDay.of(5, 1), MonthDay.of(7, 20),
+            MonthDay.of(8, 7), MonthDay.of(12, 8), MonthDay.of(12, 25)
+    };
+    // Trasladables al lunes siguiente (Ley Emiliani)
+    private static final MonthDay[] TRASLADABLES = {
+            MonthDay.of(1, 6), MonthDay.of(3, 19), MonthDay.of(6, 29), MonthDay.of(8, 15),
+            MonthDay.of(10, 12), MonthDay.of(11, 1), MonthDay.of(11, 11)
+    };
+    // Días desde el domingo de Pascua: jueves y viernes santo; Ascensión, Corpus
+    // Christi y Sagrado Corazón ya en el lunes al que se trasladan
+    private static final int[] DESDE_PASCUA = {-3, -2, 43, 64, 71};
+
+    /**
+     * Excepciones registradas y tablas construidas con ellas; se reemplaza completo
+     * al invalidar para que nunca se mezclen tablas de dos versiones.
+     */
+    private record Estado(Map<LocalDate, Boolean> generales,
+                          Map<Integer, Map<LocalDate, Boolean>> porEntidad,
+                          int huellaGeneral,
+                          Map<Integer, Integer> huellaPorEntidad,
+                          Map<Long, CalendarioHabil> tablas) {
+    }
+
+    private final DiaFestivoRepository diaFestivoRepo;
+    private final CalendarioLaboral nacional;
+    private final Map<Integer, CalendarioLaboral> porEntidad = new ConcurrentHashMap<>();
+    private volatile Estado estado;
+
+    public CalendarioHabilService(DiaFestivoRepository diaFestivoRepo) {
+        this.diaFestivoRepo = diaFestivoRepo;
+        this.nacional = new CalendarioLaboral(null, year -> tabla(NACIONAL, year), () -> estado().huellaGeneral());
+    }
+
+    /**
+     * Calendario de la entidad (el nacional si es null). Es una vista estable: la misma
+     * instancia para la misma entidad, que siempre lee los festivos vigentes.
+     */
+    public CalendarioLaboral calendario(Integer entidadId) {
+        if (entidadId == null) {
+            return nacional;
+        }
+        return porEntidad.computeIfAbsent(entidadId, id -> new CalendarioLaboral(id,
+                year -> tabla(estado().porEntidad().containsKey(id) ? id : NACIONAL, year),
+                () -> 31 * estado().huellaGeneral() + estado().huellaPorEntidad().getOrDefault(id, 0)));
+    }
+
+    /**
+     * El calendario nacional y el de cada entidad con excepciones propias: los
+     * calendarios distintos que puede tener un reporte.
+     */
+    public List<CalendarioLaboral> calendariosDistintos() {
+        List<CalendarioLaboral> calendarios = new ArrayList<>();
+        calendarios.add(nacional);
+        for (Integer entidadId : estado().porEntidad().keySet()) {
+            calendarios.add(calendario(entidadId));
+        }
+        return calendarios;
+    }
+
+    /**
+     * Fines de semana, festivos y excepciones de la entidad (o nacionales) del año.
+     */
+    public List<LocalDate> noHabiles(int year, Integer entidadId) {
+        int clave = entidadId != null && estado().porEntidad().containsKey(entidadId) ? entidadId : NACIONAL;
+        return tabla(clave, year).noHabiles();
+    }
+
+    /**
+     * Descarta las tablas precalculadas; se llama al modificar dias_festivos.
+     */
+    public void invalidar() {
+        estado = null;
+    }
+
+    /**
+     * Festivos nacionales del año según la ley, en orden y sin repetidos (un traslado
+     * puede caer en otro festivo, p. ej. San Pedro y Sagrado Corazón en 2025).
+     */
+    public List<LocalDate> festivosNacionales(int year) {
+        Set<LocalDate> festivos = new TreeSet<>();
+        for (MonthDay dia : FIJOS) {
+            festivos.add(dia.atYear(year));
+        }
+        for (MonthDay dia : TRASLADABLES) {
+            festivos.add(dia.atYear(year).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY)));
+        }
+        LocalDate pascua = domingoDePascua(year);
+        for (int dias : DESDE_PASCUA) {
+            festivos.add(pascua.plusDays(dias));
+        }
+        return new ArrayList<>(festivos);
+    }
+
+    private CalendarioHabil tabla(int clave, int year) {
+        Estado actual = estado();
+        return actual.tablas().computeIfAbsent(((long) clave << 32) | year,
+                k -> construirTabla(actual, clave, year));
+    }
+
+    private CalendarioHabil construirTabla(Estado actual, int clave, int year) {
+        long[] noHabiles = new long[6];
+        int diasYear = Year.isLeap(year) ? 366 : 365;
+        // 1 de enero: día de la semana del día 1; de ahí sábados y domingos
+        int diaSemana = LocalDate.of(year, 1, 1).getDayOfWeek().getValue();
+        for (int d = 1; d <= diasYear; d++, diaSemana = diaSemana % 7 + 1) {
+            if (diaSemana >= 6) {
+                CalendarioHabil.marcar(noHabiles, d, true);
+            }
+        }
+        for (LocalDate festivo : festivosNacionales(year)) {
+            CalendarioHabil.marcar(noHabiles, festivo.getDayOfYear(), true);
+        }
+        aplicar(noHabiles, year, actual.generales());
+        if (clave != NACIONAL) {
+            aplicar(noHabiles, year, actual.porEntidad().getOrDefault(clave, Map.of()));
+        }
+        return CalendarioHabil.deNoHabiles(year, noHabiles);
+    }
+
+    private static void aplicar(long[] noHabiles, int year, Map<LocalDate, Boolean> excepciones) {
+        excepciones.forEach((fecha, habil) -> {
+            if (fecha.getYear() == year) {
+                CalendarioHabil.marcar(noHabiles, fecha.getDayOfYear(), !habil);
+            }
+        });
+    }
+
+    private Estado estado() {
+        Estado actual = estado;
+        if (actual == null) {
+            synchronized (this) {
+                actual = estado;
+                if (actual == null) {
+                    actual = cargar();
+                    estado = actual;
+                }
+            }
+        }
+        return actual;
+    }
+
+    private Estado cargar() {
+        Map<LocalDate, Boolean> generales = new HashMap<>();
+        Map<Integer, Map<LocalDate, Boolean>> porEntidad = new HashMap<>();
+        int huellaGeneral = 0;
+        Map<Integer, Integer> huellaPorEntidad = new HashMap<>();
+        for (DiaFestivo dia : diaFestivoRepo.findAll()) {
+            int huella = dia.getFecha().hashCode() * 2 + (dia.isHabil() ? 1 : 0);
+            if (dia.getEntidadId() == null) {
+                generales.put(dia.getFecha(), dia.isHabil());
+                huellaGeneral += huella;
+            } else {
+                porEntidad.computeIfAbsent(dia.getEntidadId(), id -> new HashMap<>()).put(dia.getFecha(), dia.isHabil());
+                huellaPorEntidad.merge(dia.getEntidadId(), huella, Integer::sum);
+            }
+        }
+        return new Estado(generales, porEntidad, huellaGeneral, huellaPorEntidad, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Domingo de Pascua del calendario gregoriano (algoritmo de Meeus/Jones/Butcher).
+     */
+    static LocalDate domingoDePascua(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int mes = (h + l - 7 * m + 114) / 31;
+        int dia = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(year, mes, dia);
+    }
+}
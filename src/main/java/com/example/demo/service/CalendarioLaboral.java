@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+/**
+ * Calendario hábil de una entidad (o el nacional). Resuelve cada año con la tabla
+ * precalculada que entrega CalendarioHabilService, así que siempre refleja los
+ * festivos vigentes aunque se modifiquen después de compilar una regla.
+ */
+public final class CalendarioLaboral {
+
+    // Años sin ningún día hábil seguidos antes de rendirse
+    private static final int MAX_YEARS_SIN_HABILES = 5;
+
+    private final Integer entidadId;
+    private final IntFunction<CalendarioHabil> tablaDelYear;
+    private final IntSupplier huella;
+
+    CalendarioLaboral(Integer entidadId, IntFunction<CalendarioHabil> tablaDelYear,
+                      IntSupplier huella) {
+        this.entidadId = entidadId;
+        this.tablaDelYear = tablaDelYear;
+        this.huella = huella;
+    }
+
+    /**
+     * Entidad del calendario; null para el nacional.
+     */
+    public Integer getEntidadId() {
+        return entidadId;
+    }
+
+    /**
+     * Cambia cuando cambian los festivos registrados que aplican a este calendario.
+     */
+    public int huella() {
+        return huella.getAsInt();
+    }
+
+    public boolean esHabil(LocalDate fecha) {
+        return tablaDelYear.apply(fecha.getYear()).esHabil(fecha.getDayOfYear());
+    }
+
+    /**
+     * La misma fecha si es hábil; si no, el siguiente día hábil.
+     */
+    public LocalDate siguienteHabil(LocalDate fecha) {
+        return esHabil(fecha) ? fecha : sumarDiasHabiles(fecha, 1);
+    }
+
+    /**
+     * El n-ésimo día hábil después de la fecha. Con n = 0, la siguiente fecha hábil
+     * (la misma si ya lo es): un plazo que cae en día no hábil se corre al siguiente.
+     */
+    public LocalDate sumarDiasHabiles(LocalDate fecha, int n) {
+        if (n <= 0) {
+            return siguienteHabil(fecha);
+        }
+        int year = fecha.getYear();
+        CalendarioHabil tabla = tablaDelYear.apply(year);
+        int objetivo = tabla.acumulado(fecha.getDayOfYear()) + n;
+        int vacios = 0;
+        while (objetivo > tabla.totalHabiles()) {
+            vacios = tabla.totalHabiles() == 0 ? vacios + 1 : 0;
+            if (vacios > MAX_YEARS_SIN_HABILES) {
+                throw new IllegalStateException("El calendario no tiene días hábiles desde " + year);
+            }
+            objetivo -= tabla.totalHabiles();
+            tabla = tablaDelYear.apply(++year);
+        }
+        return tabla.habil(objetivo);
+    }
+
+    /**
+     * Días hábiles desde una fecha hasta otra, con el mismo signo que
+     * ChronoUnit.DAYS.between(desde, hasta): hacia adelante cuenta los hábiles de
+     * (desde, hasta]; hacia atrás, los de [hasta, desde) en negativo. Así un plazo
+     * que venció el viernes ya está vencido (-1) el sábado.
+     */
+    public int diasHabilesEntre(LocalDate desde, LocalDate hasta) {
+        int cmp = hasta.compareTo(desde);
+        if (cmp == 0) {
+            return 0;
+        }
+        if (cmp > 0) {
+            return acumuladoDesde(desde.getYear(), hasta) - acumuladoDesde(desde.getYear(), desde);
+        }
+        // [hasta, desde) = (hasta - 1, desde - 1]
+        LocalDate inicio = hasta.minusDays(1);
+        return -(acumuladoDesde(inicio.getYear(), desde.minusDays(1)) - acumuladoDesde(inicio.getYear(), inicio));
+    }
+
+    /**
+     * Hábiles entre el 1 de enero de yearBase y la fecha, ambos incluidos.
+     */
+    private int acumuladoDesde(int yearBase, LocalDate fecha) {
+        int total = 0;
+        for (int y = yearBase; y < fecha.getYear(); y++) {
+            total += tablaDelYear.apply(y).totalHabiles();
+        }
+        return total + tablaDelYear.apply(fecha.getYear()).acumulado(fecha.getDayOfYear());
+    }
+}
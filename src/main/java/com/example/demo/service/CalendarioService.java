@@ -1,12 +1,28 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.EventoCalendarioDTO;
+import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.dto.PaginaDTO;
+import com.example.demo.entity.EstadoCumplimiento;
+import com.example.demo.entity.Frecuencia;
 import com.example.demo.entity.InstanciaReporte;
 import com.example.demo.entity.Usuario;
+import com.example.demo.mapper.InstanciaReporteMapper;
 import com.example.demo.repository.*;
+import com.example.demo.repository.projection.EventoCalendarioView;
+import com.example.demo.repository.projection.InstanciaResumenView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
@@ -17,240 +33,299 @@ import java.util.stream.Collectors;
 @Service
 public class CalendarioService {
 
+    private static final Sort ORDEN_BUSQUEDA = Sort.by(Sort.Direction.DESC, "fechaVencimientoCalculada", "id");
+    private static final int TAMANO_PAGINA_DEFECTO = 50;
+    private static final int TAMANO_PAGINA_MAXIMO = 200;
+
     private final InstanciaReporteRepository instanciaRepo;
-    private final UsuarioRepository usuarioRepo;
+    private final UsuarioCacheService usuarioCache;
+    private final InstanciaReporteMapper instanciaMapper;
+    private final CatalogoCacheService catalogos;
 
     public CalendarioService(InstanciaReporteRepository instanciaRepo,
-                            UsuarioRepository usuarioRepo) {
+                            UsuarioCacheService usuarioCache,
+                            InstanciaReporteMapper instanciaMapper,
+                            CatalogoCacheService catalogos) {
         this.instanciaRepo = instanciaRepo;
-        this.usuarioRepo = usuarioRepo;
+        this.usuarioCache = usuarioCache;
+        this.instanciaMapper = instanciaMapper;
+        this.catalogos = catalogos;
     }
 
     public List<EventoCalendarioDTO> obtenerEventosCalendario(
             YearMonth mes, Integer entidadId, Integer responsableId, 
             String frecuencia, Authentication authentication) {
-        
-        LocalDate inicio = mes.atDay(1);
-        LocalDate fin = mes.atEndOfMonth();
-
-        List<InstanciaReporte> instancias = instanciaRepo.findByFechaVencimientoCalculadaBetween(inicio, fin);
-
-        // Aplicar filtros con validaciones null
-        if (entidadId != null) {
-            instancias = instancias.stream()
-                    .filter(i -> i.getReporte() != null && 
-                               i.getReporte().getEntidad() != null &&
-                               i.getReporte().getEntidad().getId().equals(entidadId))
-                    .collect(Collectors.toList());
-        }
-
-        if (responsableId != null) {
-            instancias = instancias.stream()
-                    .filter(i -> i.getReporte() != null && 
-                               i.getReporte().getResponsableElaboracion() != null &&
-                               i.getReporte().getResponsableElaboracion().getId().equals(responsableId))
-                    .collect(Collectors.toList());
-        }
 
-        if (frecuencia != null && !frecuencia.isEmpty()) {
-            instancias = instancias.stream()
-                    .filter(i -> i.getReporte() != null && 
-                               i.getReporte().getFrecuencia() != null &&
-                               i.getReporte().getFrecuencia().getNombre().equalsIgnoreCase(frecuencia))
-                    .collect(Collectors.toList());
-        }
+        // Todos los filtros se aplican en la base de datos
+        String filtroFrecuencia = frecuencia == null || frecuencia.isEmpty() ? null : frecuencia.toLowerCase();
 
-        return instancias.stream()
-                .filter(this::esInstanciaValida)
+        return instanciaRepo.findEventosCalendario(mes.atDay(1), mes.atEndOfMonth(),
+                        entidadId, responsableId, null, filtroFrecuencia).stream()
                 .map(this::convertirAEvento)
                 .collect(Collectors.toList());
     }
 
-    public List<EventoCalendarioDTO> obtenerMiCalendario(YearMonth mes, Authentication authentication) {
+    /**
+     * Filtro por rol del usuario autenticado: admin ve todo, supervisor los que
+     * supervisa y elaborador solo los suyos.
+     */
+    private record Alcance(Integer usuarioId, String rol, Integer elaboradorId, Integer supervisorId) {
+    }
+
+    private Alcance resolverAlcance(Authentication authentication) {
         String correoUsuario = authentication.getName();
-        Usuario usuario = usuarioRepo.findByCorreo(correoUsuario)
+        Usuario usuario = usuarioCache.buscarPorCorreo(correoUsuario)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        LocalDate inicio = mes.atDay(1);
-        LocalDate fin = mes.atEndOfMonth();
-
         String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
 
-        List<InstanciaReporte> instancias = instanciaRepo.findByFechaVencimientoCalculadaBetween(inicio, fin);
-
         if (rol.contains("ADMIN")) {
-            // Admin ve todo
+            return new Alcance(usuario.getId(), rol, null, null);
         } else if (rol.contains("SUPERVISOR")) {
-            // Supervisor ve los que supervisa
-            instancias = instancias.stream()
-                    .filter(i -> i.getReporte() != null && 
-                               i.getReporte().getResponsableSupervision() != null &&
-                               i.getReporte().getResponsableSupervision().getId().equals(usuario.getId()))
-                    .collect(Collectors.toList());
-        } else {
-            // Elaborador solo ve los suyos
-            instancias = instancias.stream()
-                    .filter(i -> i.getReporte() != null && 
-                               i.getReporte().getResponsableElaboracion() != null &&
-                               i.getReporte().getResponsableElaboracion().getId().equals(usuario.getId()))
-                    .collect(Collectors.toList());
+            return new Alcance(usuario.getId(), rol, null, usuario.getId());
         }
+        return new Alcance(usuario.getId(), rol, usuario.getId(), null);
+    }
 
-        return instancias.stream()
-                .filter(this::esInstanciaValida)
+    private List<EventoCalendarioView> buscarEnAlcance(Alcance alcance, LocalDate inicio, LocalDate fin) {
+        return instanciaRepo.findEventosCalendario(inicio, fin, null,
+                alcance.elaboradorId(), alcance.supervisorId(), null);
+    }
+
+    public List<EventoCalendarioDTO> obtenerMiCalendario(YearMonth mes, Authentication authentication) {
+        Alcance alcance = resolverAlcance(authentication);
+
+        return buscarEnAlcance(alcance, mes.atDay(1), mes.atEndOfMonth()).stream()
                 .map(this::convertirAEvento)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Vista anual con una sola consulta: trae el año completo y reparte los eventos por mes.
+     */
     public Map<String, List<EventoCalendarioDTO>> obtenerVistaAnual(int year, Authentication authentication) {
-        Map<String, List<EventoCalendarioDTO>> vistaAnual = new LinkedHashMap<>();
+        Alcance alcance = resolverAlcance(authentication);
+        DateTimeFormatter formato = DateTimeFormatter.ofPattern("yyyy-MM");
 
+        Map<String, List<EventoCalendarioDTO>> vistaAnual = new LinkedHashMap<>();
         for (int mes = 1; mes <= 12; mes++) {
-            YearMonth yearMonth = YearMonth.of(year, mes);
-            List<EventoCalendarioDTO> eventos = obtenerMiCalendario(yearMonth, authentication);
-            vistaAnual.put(yearMonth.format(DateTimeFormatter.ofPattern("yyyy-MM")), eventos);
+            vistaAnual.put(YearMonth.of(year, mes).format(formato), new ArrayList<>());
+        }
+
+        for (EventoCalendarioView evento : buscarEnAlcance(alcance, LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31))) {
+            vistaAnual.get(YearMonth.from(evento.fechaVencimiento()).format(formato))
+                    .add(convertirAEvento(evento));
         }
 
         return vistaAnual;
     }
 
+    /**
+     * ETag de la vista anual. Cambia si cambia alguna instancia del año dentro del
+     * alcance del usuario, su reporte, entidad o responsables, los nombres de
+     * frecuencias y estados, o el día (los colores dependen de los días restantes).
+     * La huella se resume con SHA-256 (128 bits) para que dos versiones no choquen.
+     */
+    public String calcularEtagVistaAnual(int year, Authentication authentication) {
+        Alcance alcance = resolverAlcance(authentication);
+        Object[] version = instanciaRepo.findVersionCalendario(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31),
+                alcance.elaboradorId(), alcance.supervisorId()).get(0);
+
+        StringBuilder huella = new StringBuilder()
+                .append(year).append('|').append(alcance.usuarioId()).append('|').append(alcance.rol())
+                .append('|').append(LocalDate.now());
+        for (Object valor : version) {
+            huella.append('|').append(valor);
+        }
+        // Catálogos en memoria: sus nombres aparecen en los eventos y no tienen fecha de modificación
+        catalogos.listarFrecuencias().stream().sorted(Comparator.comparing(Frecuencia::getId))
+                .forEach(f -> huella.append("|f").append(f.getId()).append(':').append(f.getNombre()));
+        catalogos.listarEstados().stream().sorted(Comparator.comparing(EstadoCumplimiento::getId))
+                .forEach(e -> huella.append("|e").append(e.getId()).append(':').append(e.getNombre()));
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(huella.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Filtros de la búsqueda avanzada ya normalizados: vacíos = null y el rango de
+     * fechas solo aplica si vienen ambas, como antes.
+     */
+    private record FiltroBusqueda(Integer entidadId, LocalDate fechaInicio, LocalDate fechaFin, String periodo,
+                                  Integer estadoId, Integer elaboradorId, Integer supervisorId,
+                                  String proceso, String texto) {
+
+        static FiltroBusqueda de(Integer entidadId, LocalDate fechaInicio, LocalDate fechaFin,
+                                 String periodoReportado, Integer estadoId,
+                                 Integer responsableElaboracionId, Integer responsableSupervisionId,
+                                 String proceso, String busquedaLibre) {
+            boolean conRango = fechaInicio != null && fechaFin != null;
+            return new FiltroBusqueda(entidadId,
+                    conRango ? fechaInicio : null,
+                    conRango ? fechaFin : null,
+                    periodoReportado == null || periodoReportado.isEmpty() ? null : periodoReportado,
+                    estadoId, responsableElaboracionId, responsableSupervisionId,
+                    proceso == null || proceso.isEmpty() ? null : proceso,
+                    busquedaLibre == null || busquedaLibre.isBlank() ? null : busquedaLibre);
+        }
+
+        Specification<InstanciaReporte> especificacion() {
+            return Specification
+                    .where(InstanciaReporteSpecifications.deEntidad(entidadId))
+                    .and(InstanciaReporteSpecifications.venceEntre(fechaInicio, fechaFin))
+                    .and(InstanciaReporteSpecifications.periodoContiene(periodo))
+                    .and(InstanciaReporteSpecifications.deEstado(estadoId))
+                    .and(InstanciaReporteSpecifications.deResponsableElaboracion(elaboradorId))
+                    .and(InstanciaReporteSpecifications.deResponsableSupervision(supervisorId))
+                    .and(InstanciaReporteSpecifications.deProceso(proceso));
+        }
+    }
+
+    /**
+     * Búsqueda avanzada completa (sin paginar). Se conserva para clientes que
+     * esperan la lista entera; la interfaz debería usar buscarReportesPaginado.
+     */
     public List<InstanciaReporte> buscarReportesAvanzada(
             Integer entidadId, LocalDate fechaInicio, LocalDate fechaFin,
             String periodoReportado, Integer estadoId,
             Integer responsableElaboracionId, Integer responsableSupervisionId,
             String proceso, String busquedaLibre) {
 
-        List<InstanciaReporte> instancias = instanciaRepo.findAll();
+        FiltroBusqueda filtro = FiltroBusqueda.de(entidadId, fechaInicio, fechaFin, periodoReportado, estadoId,
+                responsableElaboracionId, responsableSupervisionId, proceso, busquedaLibre);
 
-        if (entidadId != null) {
-            instancias = instancias.stream()
-                    .filter(i -> i.getReporte() != null && 
-                               i.getReporte().getEntidad() != null &&
-                               i.getReporte().getEntidad().getId().equals(entidadId))
-                    .collect(Collectors.toList());
+        if (filtro.texto() == null) {
+            return instanciaRepo.findAll(filtro.especificacion(), ORDEN_BUSQUEDA);
         }
-
-        if (fechaInicio != null && fechaFin != null) {
-            instancias = instancias.stream()
-                    .filter(i -> i.getFechaVencimientoCalculada() != null)
-                    .filter(i -> !i.getFechaVencimientoCalculada().isBefore(fechaInicio) &&
-                               !i.getFechaVencimientoCalculada().isAfter(fechaFin))
-                    .collect(Collectors.toList());
+        List<Integer> ids = buscarIdsPorTexto(filtro, Pageable.unpaged()).getContent();
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        Map<Integer, InstanciaReporte> porId = instanciaRepo
+                .findAll(InstanciaReporteSpecifications.conIds(ids), Sort.unsorted()).stream()
+                .collect(Collectors.toMap(InstanciaReporte::getId, i -> i));
+        return ids.stream().map(porId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
 
-        if (periodoReportado != null && !periodoReportado.isEmpty()) {
-            instancias = instancias.stream()
-                    .filter(i -> i.getPeriodoReportado() != null &&
-                               i.getPeriodoReportado().contains(periodoReportado))
-                    .collect(Collectors.toList());
-        }
+    /**
+     * Búsqueda avanzada paginada. Con texto libre los resultados vienen por relevancia;
+     * sin texto, por vencimiento más reciente.
+     */
+    public PaginaDTO<InstanciaReporteDTO> buscarReportesPaginado(
+            Integer entidadId, LocalDate fechaInicio, LocalDate fechaFin,
+            String periodoReportado, Integer estadoId,
+            Integer responsableElaboracionId, Integer responsableSupervisionId,
+            String proceso, String busquedaLibre, int pagina, int tamano) {
 
-        if (estadoId != null) {
-            instancias = instancias.stream()
-                    .filter(i -> i.getEstado() != null &&
-                               i.getEstado().getId().equals(estadoId))
-                    .collect(Collectors.toList());
-        }
+        FiltroBusqueda filtro = FiltroBusqueda.de(entidadId, fechaInicio, fechaFin, periodoReportado, estadoId,
+                responsableElaboracionId, responsableSupervisionId, proceso, busquedaLibre);
+        int tamanoPagina = tamano <= 0 ? TAMANO_PAGINA_DEFECTO : Math.min(tamano, TAMANO_PAGINA_MAXIMO);
 
-        if (responsableElaboracionId != null) {
-            instancias = instancias.stream()
-                    .filter(i -> i.getReporte() != null && 
-                               i.getReporte().getResponsableElaboracion() != null &&
-                               i.getReporte().getResponsableElaboracion().getId().equals(responsableElaboracionId))
-                    .collect(Collectors.toList());
+        Page<InstanciaReporteDTO> resultado;
+        if (filtro.texto() == null) {
+            resultado = instanciaRepo.findAll(filtro.especificacion(),
+                            PageRequest.of(Math.max(pagina, 0), tamanoPagina, ORDEN_BUSQUEDA))
+                    .map(instanciaMapper::toDto);
+        } else {
+            Page<Integer> ids = buscarIdsPorTexto(filtro, PageRequest.of(Math.max(pagina, 0), tamanoPagina));
+            Map<Integer, InstanciaResumenView> porId = ids.isEmpty() ? Map.of()
+                    : instanciaRepo.findResumenesPorIds(ids.getContent()).stream()
+                            .collect(Collectors.toMap(InstanciaResumenView::id, v -> v));
+            resultado = ids.map(id -> instanciaMapper.toDto(porId.get(id)));
         }
 
-        if (responsableSupervisionId != null) {
-            instancias = instancias.stream()
-                    .filter(i -> i.getReporte() != null && 
-                               i.getReporte().getResponsableSupervision() != null &&
-                               i.getReporte().getResponsableSupervision().getId().equals(responsableSupervisionId))
-                    .collect(Collectors.toList());
-        }
+        PaginaDTO<InstanciaReporteDTO> dto = new PaginaDTO<>();
+        dto.setContenido(resultado.getContent().stream().filter(Objects::nonNull).collect(Collectors.toList()));
+        dto.setTamano(resultado.getSize());
+        dto.setHayMas(resultado.hasNext());
+        dto.setPagina(resultado.getNumber());
+        dto.setTotalElementos(resultado.getTotalElements());
+        dto.setTotalPaginas(resultado.getTotalPages());
+        return dto;
+    }
 
-        if (proceso != null && !proceso.isEmpty()) {
-            instancias = instancias.stream()
-                    .filter(i -> i.getReporte() != null && 
-                               i.getReporte().getResponsableElaboracion() != null &&
-                               i.getReporte().getResponsableElaboracion().getProceso() != null &&
-                               i.getReporte().getResponsableElaboracion().getProceso().toLowerCase()
-                                    .contains(proceso.toLowerCase()))
-                    .collect(Collectors.toList());
+    /**
+     * Ids que coinciden con el texto libre. Primero el índice de texto (palabras y prefijos,
+     * ordenado por relevancia); si no encuentra nada, el índice trigram para coincidencias
+     * parciales como "2026-08".
+     */
+    private Page<Integer> buscarIdsPorTexto(FiltroBusqueda f, Pageable pageable) {
+        Page<Integer> ids = Page.empty(pageable);
+        String consulta = construirConsultaTexto(f.texto());
+        if (!consulta.isEmpty()) {
+            ids = instanciaRepo.buscarIdsPorTexto(consulta, f.entidadId(), f.fechaInicio(), f.fechaFin(), f.periodo(),
+                    f.estadoId(), f.elaboradorId(), f.supervisorId(), f.proceso(), pageable);
         }
-
-        if (busquedaLibre != null && !busquedaLibre.isEmpty()) {
-            String busqueda = busquedaLibre.toLowerCase();
-            instancias = instancias.stream()
-                    .filter(i -> {
-                        boolean coincide = false;
-                        if (i.getReporte() != null && i.getReporte().getNombre() != null) {
-                            coincide = coincide || i.getReporte().getNombre().toLowerCase().contains(busqueda);
-                        }
-                        if (i.getReporte() != null && i.getReporte().getEntidad() != null &&
-                            i.getReporte().getEntidad().getRazonSocial() != null) {
-                            coincide = coincide || i.getReporte().getEntidad().getRazonSocial().toLowerCase().contains(busqueda);
-                        }
-                        if (i.getPeriodoReportado() != null) {
-                            coincide = coincide || i.getPeriodoReportado().toLowerCase().contains(busqueda);
-                        }
-                        if (i.getObservaciones() != null) {
-                            coincide = coincide || i.getObservaciones().toLowerCase().contains(busqueda);
-                        }
-                        return coincide;
-                    })
-                    .collect(Collectors.toList());
+        if (ids.getTotalElements() == 0) {
+            ids = instanciaRepo.buscarIdsPorFragmento(normalizarFragmento(f.texto()), f.entidadId(), f.fechaInicio(),
+                    f.fechaFin(), f.periodo(), f.estadoId(), f.elaboradorId(), f.supervisorId(), f.proceso(), pageable);
         }
+        return ids;
+    }
 
-        return instancias;
+    /**
+     * Convierte el texto libre en un tsquery: cada palabra como prefijo y todas obligatorias.
+     * "informe técn" -> "informe:* & técn:*". Solo se dejan letras y dígitos, así que
+     * el texto del usuario no puede romper la sintaxis del tsquery.
+     */
+    private static String construirConsultaTexto(String texto) {
+        StringJoiner consulta = new StringJoiner(" & ");
+        for (String palabra : texto.split("[^\\p{L}\\p{N}]+")) {
+            if (!palabra.isEmpty()) {
+                consulta.add(palabra + ":*");
+            }
+        }
+        return consulta.toString();
     }
 
     /**
-     * Valida que una instancia tenga los datos mínimos para convertirla a evento
+     * Texto en minúsculas y sin tildes, igual que la columna texto_plano, con los
+     * comodines de LIKE escapados.
      */
-    private boolean esInstanciaValida(InstanciaReporte instancia) {
-        return instancia != null &&
-               instancia.getReporte() != null &&
-               instancia.getReporte().getEntidad() != null &&
-               instancia.getReporte().getFrecuencia() != null &&
-               instancia.getEstado() != null &&
-               instancia.getFechaVencimientoCalculada() != null;
+    private static String normalizarFragmento(String texto) {
+        String sinTildes = Normalizer.normalize(texto.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sinTildes.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
     }
 
-    private EventoCalendarioDTO convertirAEvento(InstanciaReporte instancia) {
+    private EventoCalendarioDTO convertirAEvento(EventoCalendarioView instancia) {
         EventoCalendarioDTO evento = new EventoCalendarioDTO();
         
-        evento.setId(instancia.getId());
-        evento.setTitulo(instancia.getReporte().getNombre() + " - " + 
-                        instancia.getReporte().getEntidad().getRazonSocial());
-        evento.setFecha(instancia.getFechaVencimientoCalculada());
-        evento.setStart(instancia.getFechaVencimientoCalculada().toString());
-        evento.setEstado(instancia.getEstado().getNombre());
-        evento.setEntidad(instancia.getReporte().getEntidad().getRazonSocial());
+        evento.setId(instancia.id());
+        evento.setTitulo(instancia.reporteNombre() + " - " + instancia.entidad());
+        evento.setFecha(instancia.fechaVencimiento());
+        evento.setStart(instancia.fechaVencimiento().toString());
+        evento.setEstado(instancia.estado());
+        evento.setEntidad(instancia.entidad());
         
         // Responsable puede ser null
-        if (instancia.getReporte().getResponsableElaboracion() != null) {
-            evento.setResponsable(instancia.getReporte().getResponsableElaboracion().getNombreCompleto());
-            evento.setResponsableElaboracionId(instancia.getReporte().getResponsableElaboracion().getId());
+        if (instancia.responsableElaboracionId() != null) {
+            evento.setResponsable(instancia.responsableElaboracion());
+            evento.setResponsableElaboracionId(instancia.responsableElaboracionId());
         } else {
             evento.setResponsable("Sin asignar");
         }
         
-        evento.setFrecuencia(instancia.getReporte().getFrecuencia().getNombre());
-        evento.setPeriodoReportado(instancia.getPeriodoReportado());
-        evento.setReporteId(instancia.getReporte().getId());
-        evento.setEntidadId(instancia.getReporte().getEntidad().getId());
+        evento.setFrecuencia(instancia.frecuencia());
+        evento.setPeriodoReportado(instancia.periodoReportado());
+        evento.setReporteId(instancia.reporteId());
+        evento.setEntidadId(instancia.entidadId());
         
         // Supervisor puede ser null
-        if (instancia.getReporte().getResponsableSupervision() != null) {
-            evento.setResponsableSupervisionId(instancia.getReporte().getResponsableSupervision().getId());
-        }
+        evento.setResponsableSupervisionId(instancia.responsableSupervisionId());
 
         // Calcular días hasta vencimiento
-        long diasHasta = ChronoUnit.DAYS.between(LocalDate.now(), instancia.getFechaVencimientoCalculada());
+        long diasHasta = ChronoUnit.DAYS.between(LocalDate.now(), instancia.fechaVencimiento());
         evento.setDiasHastaVencimiento((int) diasHasta);
 
         // Determinar color y prioridad según estado y días
-        String estado = instancia.getEstado().getNombre().toUpperCase();
+        String estado = instancia.estado().toUpperCase();
         if (estado.contains("ENVIADO") || estado.contains("APROBADO")) {
             evento.setColor("#10B981"); // Verde
             evento.setBackgroundColor("#10B981");
@@ -0,0 +1,192 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.EstadoCumplimiento;
+import com.example.demo.entity.Frecuencia;
+import com.example.demo.entity.Rol;
+import com.example.demo.entity.TipoAlerta;
+import com.example.demo.repository.EstadoCumplimientoRepository;
+import com.example.demo.repository.FrecuenciaRepository;
+import com.example.demo.repository.RolRepository;
+import com.example.demo.repository.TipoAlertaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Catálogos pequeños y casi inmutables (estados, frecuencias, tipos de alerta y
+ * roles) cargados completos en memoria. Cada catálogo es una foto inmutable que se
+ * descarta al escribir por su servicio o al cumplirse el TTL (por si alguien lo
+ * edita directo en la base), y se vuelve a cargar con una sola consulta.
+ * Retorna copias para que ningún llamador modifique la foto compartida.
+ */
+@Service
+public class CatalogoCacheService {
+
+    /**
+     * Un catálogo: la foto vigente y sus contadores de aciertos y cargas.
+     */
+    private static final class Catalogo<T> {
+
+        private record Foto<T>(List<T> todos, Map<Integer, T> porId, Map<String, T> porNombre, long expira) {
+        }
+
+        private final Supplier<List<T>> cargar;
+        private final Function<T, Integer> id;
+        private final Function<T, String> nombre;
+        private final UnaryOperator<T> copiar;
+        private final AtomicLong aciertos = new AtomicLong();
+        private final AtomicLong fallos = new AtomicLong();
+        private volatile Foto<T> foto;
+
+        Catalogo(Supplier<List<T>> cargar, Function<T, Integer> id, Function<T, String> nombre, UnaryOperator<T> copiar) {
+            this.cargar = cargar;
+            this.id = id;
+            this.nombre = nombre;
+            this.copiar = copiar;
+        }
+
+        Foto<T> foto(long ttlMs) {
+            Foto<T> actual = foto;
+            long ahora = System.currentTimeMillis();
+            if (actual != null && actual.expira() > ahora) {
+                aciertos.incrementAndGet();
+                return actual;
+            }
+            synchronized (this) {
+                actual = foto;
+                if (actual != null && actual.expira() > ahora) {
+                    aciertos.incrementAndGet();
+                    return actual;
+                }
+                fallos.incrementAndGet();
+                List<T> todos = cargar.get().stream().map(copiar).toList();
+                Map<Integer, T> porId = new HashMap<>();
+                Map<String, T> porNombre = new HashMap<>();
+                for (T elemento : todos) {
+                    porId.put(id.apply(elemento), elemento);
+                    porNombre.put(nombre.apply(elemento), elemento);
+                }
+                actual = new Foto<>(todos, Map.copyOf(porId), Map.copyOf(porNombre), ahora + ttlMs);
+                foto = actual;
+                return actual;
+            }
+        }
+
+        List<T> todos(long ttlMs) {
+            return foto(ttlMs).todos().stream().map(copiar).toList();
+        }
+
+        Optional<T> porId(Integer clave, long ttlMs) {
+            return clave == null ? Optional.empty() : Optional.ofNullable(foto(ttlMs).porId().get(clave)).map(copiar);
+        }
+
+        Optional<T> porNombre(String clave, long ttlMs) {
+            return clave == null ? Optional.empty() : Optional.ofNullable(foto(ttlMs).porNombre().get(clave)).map(copiar);
+        }
+
+        // Espera una carga en curso para que no deje guardada una foto vieja
+        synchronized void invalidar() {
+            foto = null;
+        }
+
+        Map<String, Object> estadisticas() {
+            long a = aciertos.get();
+            long f = fallos.get();
+            Foto<T> actual = foto;
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("aciertos", a);
+            datos.put("cargas", f);
+            datos.put("tasaAciertos", a + f == 0 ? 0.0 : (double) a / (a + f));
+            datos.put("elementos", actual == null ? 0 : actual.todos().size());
+            return datos;
+        }
+    }
+
+    private final Catalogo<EstadoCumplimiento> estados;
+    private final Catalogo<Frecuencia> frecuencias;
+    private final Catalogo<TipoAlerta> tiposAlerta;
+    private final Catalogo<Rol> roles;
+    private final long ttlMs;
+
+    public CatalogoCacheService(EstadoCumplimientoRepository estadoRepo,
+                                FrecuenciaRepository frecuenciaRepo,
+                                TipoAlertaRepository tipoAlertaRepo,
+                                RolRepository rolRepo,
+                                @Value("${catalogos.cache.ttl-segundos:3600}") long ttlSegundos) {
+        this.ttlMs = ttlSegundos * 1000;
+        this.estados = new Catalogo<>(estadoRepo::findAll, EstadoCumplimiento::getId, EstadoCumplimiento::getNombre,
+                e -> new EstadoCumplimiento(e.getId(), e.getNombre()));
+        this.frecuencias = new Catalogo<>(frecuenciaRepo::findAll, Frecuencia::getId, Frecuencia::getNombre,
+                f -> new Frecuencia(f.getId(), f.getNombre()));
+        this.tiposAlerta = new Catalogo<>(tipoAlertaRepo::findAll, TipoAlerta::getId, TipoAlerta::getNombre,
+                t -> new TipoAlerta(t.getId(), t.getNombre(), t.getColor(), t.getDiasAntesVencimiento(),
+                        t.isEsPostVencimiento()));
+        this.roles = new Catalogo<>(rolRepo::findAll, Rol::getId, Rol::getNombre,
+                r -> new Rol(r.getId(), r.getNombre(), r.getDescripcion()));
+    }
+
+    public List<EstadoCumplimiento> listarEstados() {
+        return estados.todos(ttlMs);
+    }
+
+    public Optional<EstadoCumplimiento> estadoPorId(Integer id) {
+        return estados.porId(id, ttlMs);
+    }
+
+    public Optional<EstadoCumplimiento> estadoPorNombre(String nombre) {
+        return estados.porNombre(nombre, ttlMs);
+    }
+
+    public List<Frecuencia> listarFrecuencias() {
+        return frecuencias.todos(ttlMs);
+    }
+
+    public Optional<Frecuencia> frecuenciaPorId(Integer id) {
+        return frecuencias.porId(id, ttlMs);
+    }
+
+    public List<TipoAlerta> listarTiposAlerta() {
+        return tiposAlerta.todos(ttlMs);
+    }
+
+    public Optional<TipoAlerta> tipoAlertaPorId(Integer id) {
+        return tiposAlerta.porId(id, ttlMs);
+    }
+
+    public List<Rol> listarRoles() {
+        return roles.todos(ttlMs);
+    }
+
+    public Optional<Rol> rolPorId(Integer id) {
+        return roles.porId(id, ttlMs);
+    }
+
+    public Optional<Rol> rolPorNombre(String nombre) {
+        return roles.porNombre(nombre, ttlMs);
+    }
+
+    public void invalidarRoles() {
+        roles.invalidar();
+    }
+
+    /**
+     * Aciertos, cargas desde la base y tamaño de cada catálogo.
+     */
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("estados", estados.estadisticas());
+        datos.put("frecuencias", frecuencias.estadisticas());
+        datos.put("tiposAlerta", tiposAlerta.estadisticas());
+        datos.put("roles", roles.estadisticas());
+        return datos;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.CumplimientoMensual;
+import com.example.demo.entity.InstanciaReporte;
+import com.example.demo.entity.Reporte;
+import com.example.demo.repository.CumplimientoMensualRepository;
+import com.example.demo.repository.InstanciaReporteRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Mantiene la tabla cumplimiento_mensual (mes × entidad × responsable × categoría)
+ * para que las gráficas de tendencia y cumplimiento lean agregados en lugar de instancias.
+ *
+ * Durante el día solo se ajusta con los envíos (registrarCambio). La generación de
+ * instancias, el horizonte y los cambios de reporte no lo tocan, así que entre
+ * reconstrucciones los totales son aproximados (nunca negativos); la reconstrucción
+ * nocturna los deja exactos.
+ */
+@Service
+public class CumplimientoMensualService {
+
+    public static final String A_TIEMPO = "A Tiempo";
+    public static final String TARDE = "Tarde";
+    public static final String VENCIDO = "Vencido";
+    public static final String PENDIENTE = "Pendiente";
+
+    /**
+     * Celda del acumulado a la que pertenece una instancia.
+     */
+    public record Clave(LocalDate mes, Integer entidadId, Integer responsableId, String categoria) {
+    }
+
+    private final CumplimientoMensualRepository repository;
+    private final InstanciaReporteRepository instanciaRepo;
+    private final TransactionTemplate transactionTemplate;
+
+    public CumplimientoMensualService(CumplimientoMensualRepository repository,
+                                      InstanciaReporteRepository instanciaRepo,
+                                      TransactionTemplate transactionTemplate) {
+        this.repository = repository;
+        this.instanciaRepo = instanciaRepo;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Clasifica una instancia con las mismas reglas que las estadísticas:
+     * enviado sin retraso = A Tiempo, enviado con retraso = Tarde,
+     * no enviado y con fecha pasada = Vencido, resto = Pendiente.
+     */
+    public static String clasificar(String estado, Integer diasDesviacion, LocalDate fechaVencimiento, LocalDate hoy) {
+        boolean enviado = estado != null && estado.equalsIgnoreCase("Enviado");
+        if (enviado && diasDesviacion != null && diasDesviacion <= 0) {
+            return A_TIEMPO;
+        } else if (enviado && diasDesviacion != null && diasDesviacion > 0) {
+            return TARDE;
+        } else if (fechaVencimiento != null && hoy.isAfter(fechaVencimiento)) {
+            return VENCIDO;
+        }
+        return PENDIENTE;
+    }
+
+    /**
+     * Calcula la celda actual de una instancia. Retorna null si le faltan datos para clasificarla.
+     */
+    public Clave claveDe(InstanciaReporte instancia) {
+        Reporte reporte = instancia.getReporte();
+        if (reporte == null || reporte.getEntidad() == null || reporte.getResponsableElaboracion() == null
+                || instancia.getFechaVencimientoCalculada() == null) {
+            return null;
+        }
+        String estado = instancia.getEstado() != null ? instancia.getEstado().getNombre() : null;
+        return new Clave(
+                instancia.getFechaVencimientoCalculada().withDayOfMonth(1),
+                reporte.getEntidad().getId(),
+                reporte.getResponsableElaboracion().getId(),
+                clasificar(estado, instancia.getDiasDesviacion(), instancia.getFechaVencimientoCalculada(), LocalDate.now())
+        );
+    }
+
+    /**
+     * Mueve una instancia de su celda anterior a la actual dentro de la transacción del llamador.
+     */
+    @Transactional
+    public void registrarCambio(Clave anterior, InstanciaReporte actualizada) {
+        Clave nueva = claveDe(actualizada);
+        if (Objects.equals(anterior, nueva)) {
+            return;
+        }
+        if (anterior != null) {
+            ajustar(anterior, -1);
+        }
+        if (nueva != null) {
+            ajustar(nueva, 1);
+        }
+    }
+
+    // Se limita a cero: una instancia creada hoy por otro camino aún no está en el acumulado
+    private void ajustar(Clave clave, long delta) {
+        repository.incrementar(clave.mes(), clave.entidadId(), clave.responsableId(), clave.categoria(), delta);
+    }
+
+    /**
+     * Reconstruye el acumulado desde cero. Corre cada noche porque las instancias
+     * pasan de Pendiente a Vencido con el paso del tiempo, sin que nadie las modifique.
+     */
+    @Scheduled(cron = "0 30 1 * * *")
+    @Transactional
+    public int reconstruir() {
+        LocalDate hoy = LocalDate.now();
+        Map<Clave, Long> conteos = new HashMap<>();
+
+        for (Object[] fila : instanciaRepo.findDatosCumplimiento()) {
+            LocalDate fechaVencimiento = (LocalDate) fila[0];
+            if (fechaVencimiento == null || fila[1] == null || fila[2] == null) continue;
+
+            String categoria = clasificar((String) fila[3], (Integer) fila[4], fechaVencimiento, hoy);
+            Clave clave = new Clave(fechaVencimiento.withDayOfMonth(1), (Integer) fila[1], (Integer) fila[2], categoria);
+            conteos.merge(clave, 1L, Long::sum);
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        List<CumplimientoMensual> filas = new ArrayList<>(conteos.size());
+        conteos.forEach((clave, total) -> filas.add(new CumplimientoMensual(null, clave.mes(), clave.entidadId(),
+                clave.responsableId(), clave.categoria(), total, ahora)));
+
+        repository.deleteAllInBatch();
+        repository.saveAll(filas);
+
+        System.out.println("✓ Acumulado mensual de cumplimiento reconstruido: " + filas.size() + " filas");
+        return filas.size();
+    }
+
+    /**
+     * Si la tabla está vacía (primer despliegue), la llena al arrancar. La transacción
+     * va por dentro del try: si falla, se hace rollback y solo se registra el error.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        try {
+            if (repository.count() == 0) {
+                // Llamada interna: el @Transactional de reconstruir no aplica aquí
+                transactionTemplate.execute(status -> reconstruir());
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ No se pudo inicializar el acumulado mensual: " + e.getMessage());
+        }
+    }
+
+    // ==================== CONSULTAS ====================
+
+    /**
+     * Totales por mes y categoría: mes (yyyy-MM) → categoría → total.
+     */
+    public Map<YearMonth, Map<String, Long>> totalesPorMes(YearMonth desde, YearMonth hasta) {
+        Map<YearMonth, Map<String, Long>> resultado = new HashMap<>();
+        for (Object[] fila : repository.totalesPorMes(desde.atDay(1), hasta.atDay(1))) {
+            resultado.computeIfAbsent(YearMonth.from((LocalDate) fila[0]), k -> new HashMap<>())
+                    .put((String) fila[1], ((Number) fila[2]).longValue());
+        }
+        return resultado;
+    }
+
+    public Map<String, Map<String, Long>> totalesPorEntidad(YearMonth desde, YearMonth hasta) {
+        return agrupar(repository.totalesPorEntidad(desde.atDay(1), hasta.atDay(1)));
+    }
+
+    public Map<String, Map<String, Long>> totalesPorResponsable(YearMonth desde, YearMonth hasta) {
+        return agrupar(repository.totalesPorResponsable(desde.atDay(1), hasta.atDay(1)));
+    }
+
+    private Map<String, Map<String, Long>> agrupar(List<Object[]> filas) {
+        Map<String, Map<String, Long>> resultado = new HashMap<>();
+        for (Object[] fila : filas) {
+            long total = ((Number) fila[2]).longValue();
+            if (total <= 0) continue;
+            resultado.computeIfAbsent((String) fila[0], k -> new HashMap<>())
+                    .put((String) fila[1], total);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.DiaFestivo;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DiaFestivoService {
+    List<DiaFestivo> listar(Integer entidadId);
+    DiaFestivo crear(DiaFestivo diaFestivo);
+    void eliminar(Integer id);
+    List<LocalDate> listarNoHabiles(int anio, Integer entidadId);
+}
@@ -0,0 +1,263 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.EnvioReporteDTO;
+import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.entity.EnvioReporte;
+import com.example.demo.repository.EnvioReporteRepository;
+import com.example.demo.repository.InstanciaReporteRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Envío de reportes con archivo en segundo plano.
+ * La petición solo deja el archivo en el área de staging y registra el envío, sin
+ * transacción larga ni conexión de BD retenida durante la subida. Un pool acotado
+ * sube el archivo, marca la instancia como enviada y notifica; los fallos se
+ * reintentan con backoff exponencial y una ronda programada retoma los envíos que
+ * no cupieron en el pool o quedaron abandonados por un reinicio.
+ */
+@Service
+public class EnvioReporteService {
+
+    private final EnvioReporteRepository repository;
+    private final InstanciaReporteRepository instanciaRepo;
+    private final InstanciaReporteService instanciaService;
+    private final AlmacenamientoArchivos almacenamiento;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor;
+
+    @Value("${envios.staging.directorio:staging-envios}")
+    private String directorioStaging;
+
+    @Value("${envios.async.max-intentos:5}")
+    private int maxIntentos;
+
+    @Value("${envios.async.backoff-inicial-segundos:30}")
+    private long backoffInicialSegundos;
+
+    // Un "PROCESANDO" más viejo que esto se considera abandonado y se reintenta
+    @Value("${envios.async.timeout-procesando-minutos:30}")
+    private long timeoutProcesandoMinutos;
+
+    public EnvioReporteService(EnvioReporteRepository repository,
+                               InstanciaReporteRepository instanciaRepo,
+                               InstanciaReporteService instanciaService,
+                               AlmacenamientoArchivos almacenamiento,
+                               TransactionTemplate transactionTemplate,
+                               @Qualifier("enviosReporteExecutor") ThreadPoolTaskExecutor executor) {
+        this.repository = repository;
+        this.instanciaRepo = instanciaRepo;
+        this.instanciaService = instanciaService;
+        this.almacenamiento = almacenamiento;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+    }
+
+    /**
+     * Deja el archivo en staging, registra el envío y lo pone en cola. Retorna de
+     * inmediato con el id para consultar el estado.
+     */
+    public EnvioReporteDTO encolar(Integer instanciaId, MultipartFile archivo, String observaciones,
+                                   String linkEvidencia, Authentication authentication) throws IOException {
+        if (archivo == null || archivo.isEmpty()) {
+            throw new RuntimeException("El archivo está vacío");
+        }
+        if (!instanciaRepo.existsById(instanciaId)) {
+            throw new RuntimeException("Instancia no encontrada");
+        }
+
+        Path carpeta = Paths.get(directorioStaging).toAbsolutePath().normalize();
+        Files.createDirectories(carpeta);
+        Path staging = carpeta.resolve(UUID.randomUUID() + ".tmp");
+
+        EnvioReporte envio = new EnvioReporte();
+        try {
+            // Mueve el temporal del multipart; no pasa por memoria
+            archivo.transferTo(staging.toFile());
+
+            envio.setInstanciaId(instanciaId);
+            envio.setCorreoUsuario(authentication.getName());
+            envio.setArchivoStaging(staging.toString());
+            envio.setNombreArchivo(archivo.getOriginalFilename());
+            envio.setContentType(archivo.getContentType());
+            envio.setTamanoBytes(archivo.getSize());
+            envio.setObservaciones(observaciones);
+            envio.setLinkEvidencia(linkEvidencia);
+            envio = repository.save(envio);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(staging);
+            throw e;
+        }
+
+        System.out.println("📥 Envío " + envio.getId() + " en cola: instancia " + instanciaId +
+                           " - " + envio.getNombreArchivo() + " (" + envio.getTamanoBytes() + " bytes)");
+        programar(envio.getId());
+        return toDto(envio);
+    }
+
+    public EnvioReporteDTO consultar(Integer id) {
+        return repository.findById(id)
+                .map(this::toDto)
+                .orElseThrow(() -> new RuntimeException("Envío no encontrado"));
+    }
+
+    /**
+     * Retoma los envíos pendientes de reintento, los que no cupieron en el pool y
+     * los abandonados.
+     */
+    @Scheduled(fixedDelayString = "${envios.async.intervalo-ms:10000}")
+    public void despacharPendientes() {
+        int capacidad = executor.getThreadPoolExecutor().getQueue().remainingCapacity();
+        if (capacidad <= 0) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Integer> listos = repository.findIdsListos(ahora, ahora.minusMinutes(timeoutProcesandoMinutos),
+                PageRequest.of(0, capacidad));
+        listos.forEach(this::programar);
+    }
+
+    private void programar(Integer id) {
+        try {
+            executor.execute(() -> procesar(id));
+        } catch (TaskRejectedException e) {
+            // Pool saturado: queda PENDIENTE y lo toma la siguiente ronda
+        }
+    }
+
+    /**
+     * Sube el archivo y lo registra en la instancia. Solo lo procesa quien logra
+     * reclamarlo, así que la cola y la ronda programada no lo duplican.
+     */
+    private void procesar(Integer id) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Integer tomado = transactionTemplate.execute(status ->
+                repository.reclamar(id, ahora, ahora.minusMinutes(timeoutProcesandoMinutos)));
+        if (tomado == null || tomado == 0) {
+            return;
+        }
+        EnvioReporte envio = repository.findById(id).orElse(null);
+        if (envio == null) {
+            return;
+        }
+
+        try {
+            Map<String, String> resultado;
+            if (envio.getFileId() == null) {
+                InstanciaReporteDTO instancia = instanciaService.obtenerDTOPorId(envio.getInstanciaId());
+                resultado = almacenamiento.guardar(Paths.get(envio.getArchivoStaging()), envio.getNombreArchivo(),
+                        envio.getContentType(), instancia.getReporteId(), instancia.getPeriodoReportado());
+                registrarSubida(id, resultado);
+            } else {
+                resultado = new HashMap<>();
+                resultado.put("fileId", envio.getFileId());
+                resultado.put("fileName", envio.getNombreArchivo());
+                resultado.put("webViewLink", envio.getLinkReporte());
+            }
+
+            // La instancia, sus notificaciones (outbox) y el COMPLETADO se confirman juntos:
+            // un envío abandonado a medias nunca se registra dos veces en la instancia
+            EnvioReporte completado = transactionTemplate.execute(status -> {
+                instanciaService.registrarEnvioArchivo(envio.getInstanciaId(), resultado, envio.getObservaciones(),
+                        envio.getLinkEvidencia(), envio.getCorreoUsuario(), envio.getFechaCreacion());
+                return marcarCompletado(id);
+            });
+            borrarStaging(completado);
+            System.out.println("✓ Envío " + id + " completado (instancia " + envio.getInstanciaId() + ")");
+        } catch (Exception e) {
+            System.err.println("✗ Error procesando envío " + id + ": " + e.getMessage());
+            registrarResultado(id, e);
+        }
+    }
+
+    private void registrarSubida(Integer id, Map<String, String> resultado) {
+        transactionTemplate.executeWithoutResult(status -> repository.findById(id).ifPresent(e -> {
+            e.setFileId(resultado.get("fileId"));
+            e.setLinkReporte(resultado.get("webViewLink"));
+            repository.save(e);
+        }));
+    }
+
+    /**
+     * Marca el envío como completado; se llama dentro de la transacción que registra
+     * el envío en la instancia.
+     */
+    private EnvioReporte marcarCompletado(Integer id) {
+        EnvioReporte e = repository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Envío no encontrado"));
+        e.setIntentos(e.getIntentos() + 1);
+        e.setEstado(EnvioReporte.ESTADO_COMPLETADO);
+        e.setFechaCompletado(LocalDateTime.now());
+        e.setUltimoError(null);
+        return repository.save(e);
+    }
+
+    /**
+     * Guarda el intento fallido. Sin más reintentos borra el archivo de staging.
+     */
+    private void registrarResultado(Integer id, Exception error) {
+        EnvioReporte envio = transactionTemplate.execute(status -> repository.findById(id).map(e -> {
+            e.setIntentos(e.getIntentos() + 1);
+            if (e.getIntentos() >= maxIntentos) {
+                e.setEstado(EnvioReporte.ESTADO_FALLIDO);
+                e.setUltimoError(error.getMessage());
+            } else {
+                // 30s, 60s, 120s, ... según el número de intentos
+                long espera = backoffInicialSegundos * (1L << Math.min(e.getIntentos() - 1, 16));
+                e.setEstado(EnvioReporte.ESTADO_PENDIENTE);
+                e.setProximoIntento(LocalDateTime.now().plusSeconds(espera));
+                e.setUltimoError(error.getMessage());
+            }
+            return repository.save(e);
+        }).orElse(null));
+        borrarStaging(envio);
+    }
+
+    /**
+     * Borra el archivo de staging cuando el envío ya terminó (bien o sin más reintentos).
+     */
+    private void borrarStaging(EnvioReporte envio) {
+        if (envio != null && !EnvioReporte.ESTADO_PENDIENTE.equals(envio.getEstado())) {
+            try {
+                Files.deleteIfExists(Paths.get(envio.getArchivoStaging()));
+            } catch (IOException e) {
+                System.err.println("⚠️ No se pudo borrar el staging del envío " + envio.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private EnvioReporteDTO toDto(EnvioReporte envio) {
+        EnvioReporteDTO dto = new EnvioReporteDTO();
+        dto.setId(envio.getId());
+        dto.setInstanciaId(envio.getInstanciaId());
+        dto.setNombreArchivo(envio.getNombreArchivo());
+        dto.setTamanoBytes(envio.getTamanoBytes());
+        dto.setEstado(envio.getEstado());
+        dto.setIntentos(envio.getIntentos());
+        dto.setUltimoError(envio.getUltimoError());
+        dto.setLinkReporte(envio.getLinkReporte());
+        dto.setFechaCreacion(envio.getFechaCreacion());
+        dto.setFechaCompletado(envio.getFechaCompletado());
+        dto.setTerminado(EnvioReporte.ESTADO_COMPLETADO.equals(envio.getEstado())
+                || EnvioReporte.ESTADO_FALLIDO.equals(envio.getEstado()));
+        return dto;
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.EstadisticasDTO;
-import com.example.demo.entity.InstanciaReporte;
 import com.example.demo.repository.AlertaRepository;
 import com.example.demo.repository.InstanciaReporteRepository;
+import com.example.demo.repository.projection.InstanciaResumenView;
+import com.example.demo.repository.projection.ResumenEstadoView;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -18,161 +20,106 @@ public class EstadisticasService {
 
     private final InstanciaReporteRepository instanciaRepo;
     private final AlertaRepository alertaRepo;
+    private final CumplimientoMensualService cumplimientoMensual;
 
     public EstadisticasService(InstanciaReporteRepository instanciaRepo,
-                              AlertaRepository alertaRepo) {
+                              AlertaRepository alertaRepo,
+                              CumplimientoMensualService cumplimientoMensual) {
         this.instanciaRepo = instanciaRepo;
         this.alertaRepo = alertaRepo;
+        this.cumplimientoMensual = cumplimientoMensual;
     }
 
+    /**
+     * Calcula los indicadores del dashboard con una sola consulta agregada
+     * (una fila por estado) más el conteo de alertas críticas no leídas.
+     */
     public EstadisticasDTO obtenerEstadisticas(LocalDate fechaInicio, LocalDate fechaFin) {
-        List<InstanciaReporte> instancias = instanciaRepo.findByFechaVencimientoCalculadaBetween(fechaInicio, fechaFin);
+        LocalDate hoy = LocalDate.now();
+        List<ResumenEstadoView> filas = instanciaRepo.resumirPorEstado(
+                fechaInicio, fechaFin, hoy, hoy.plusDays(8), hoy.plusDays(4));
+
+        long total = 0;
+        long enviadosATiempo = 0;
+        long enviadosTarde = 0;
+        long vencidos = 0;
+        long pendientes = 0;
+        long sumaRetraso = 0;
+        long conRetraso = 0;
+        long proximos7Dias = 0;
+        long proximos3Dias = 0;
+        Map<String, Long> distribucion = new HashMap<>();
+
+        for (ResumenEstadoView fila : filas) {
+            total += valor(fila.getTotal());
+            enviadosATiempo += valor(fila.getEnviadosATiempo());
+            enviadosTarde += valor(fila.getEnviadosTarde());
+            vencidos += valor(fila.getVencidos());
+            pendientes += valor(fila.getPendientes());
+            sumaRetraso += valor(fila.getSumaDiasRetraso());
+            conRetraso += valor(fila.getConRetraso());
+            proximos7Dias += valor(fila.getProximos7Dias());
+            proximos3Dias += valor(fila.getProximos3Dias());
+            distribucion.put(fila.getEstado(), valor(fila.getTotal()));
+        }
 
         EstadisticasDTO stats = new EstadisticasDTO();
-        
-        stats.setTotalObligaciones((long) instancias.size());
-        
-        long enviadosATiempo = instancias.stream()
-                .filter(i -> i.getDiasDesviacion() != null && i.getDiasDesviacion() <= 0)
-                .filter(i -> i.getEstado() != null && 
-                           (i.getEstado().getNombre().equalsIgnoreCase("Enviado") ||
-                            i.getEstado().getNombre().equalsIgnoreCase("Aprobado")))
-                .count();
-        
-        long enviadosTarde = instancias.stream()
-                .filter(i -> i.getDiasDesviacion() != null && i.getDiasDesviacion() > 0)
-                .filter(i -> i.getEstado() != null &&
-                           (i.getEstado().getNombre().equalsIgnoreCase("Enviado") ||
-                            i.getEstado().getNombre().equalsIgnoreCase("Aprobado")))
-                .count();
-        
-        long vencidos = instancias.stream()
-                .filter(i -> i.getFechaVencimientoCalculada() != null && 
-                           LocalDate.now().isAfter(i.getFechaVencimientoCalculada()))
-                .filter(i -> i.getEstado() != null &&
-                           !i.getEstado().getNombre().equalsIgnoreCase("Enviado") &&
-                           !i.getEstado().getNombre().equalsIgnoreCase("Aprobado"))
-                .count();
-        
-        long pendientes = instancias.stream()
-                .filter(i -> i.getEstado() != null &&
-                           (i.getEstado().getNombre().equalsIgnoreCase("Pendiente") ||
-                            i.getEstado().getNombre().equalsIgnoreCase("En Proceso")))
-                .count();
-        
+        stats.setTotalObligaciones(total);
         stats.setTotalEnviadosATiempo(enviadosATiempo);
         stats.setTotalEnviadosTarde(enviadosTarde);
         stats.setTotalVencidos(vencidos);
         stats.setTotalPendientes(pendientes);
-        
-        if (stats.getTotalObligaciones() > 0) {
-            stats.setPorcentajeCumplimientoATiempo(
-                (enviadosATiempo * 100.0) / stats.getTotalObligaciones()
-            );
-        } else {
-            stats.setPorcentajeCumplimientoATiempo(0.0);
-        }
-        
-        double promedioRetraso = instancias.stream()
-                .filter(i -> i.getDiasDesviacion() != null && i.getDiasDesviacion() > 0)
-                .mapToInt(InstanciaReporte::getDiasDesviacion)
-                .average()
-                .orElse(0.0);
-        stats.setDiasRetrasoPromedio(promedioRetraso);
-        
-        // Distribución por estado
-        Map<String, Long> distribucion = instancias.stream()
-                .filter(i -> i.getEstado() != null)
-                .collect(Collectors.groupingBy(
-                    i -> i.getEstado().getNombre(),
-                    Collectors.counting()
-                ));
+        stats.setPorcentajeCumplimientoATiempo(total > 0 ? (enviadosATiempo * 100.0) / total : 0.0);
+        stats.setDiasRetrasoPromedio(conRetraso > 0 ? (double) sumaRetraso / conRetraso : 0.0);
         stats.setDistribucionEstados(distribucion);
-        
-        // Alertas críticas
-        long alertasCriticas = alertaRepo.findAll().stream()
-                .filter(a -> !a.isLeida())
-                .filter(a -> a.getTipo() != null && a.getTipo().isEsPostVencimiento())
-                .count();
-        stats.setAlertasCriticasActivas(alertasCriticas);
-        
-        // Próximos a vencer
-        LocalDate hoy = LocalDate.now();
-        long proximos7Dias = instancias.stream()
-                .filter(i -> i.getFechaVencimientoCalculada() != null &&
-                           i.getFechaVencimientoCalculada().isAfter(hoy) &&
-                           i.getFechaVencimientoCalculada().isBefore(hoy.plusDays(8)))
-                .filter(i -> i.getEstado() != null &&
-                           !i.getEstado().getNombre().equalsIgnoreCase("Enviado"))
-                .count();
+        stats.setAlertasCriticasActivas(alertaRepo.contarCriticasNoLeidas());
         stats.setReportesProximosVencer7Dias(proximos7Dias);
-        
-        long proximos3Dias = instancias.stream()
-                .filter(i -> i.getFechaVencimientoCalculada() != null &&
-                           i.getFechaVencimientoCalculada().isAfter(hoy) &&
-                           i.getFechaVencimientoCalculada().isBefore(hoy.plusDays(4)))
-                .filter(i -> i.getEstado() != null &&
-                           !i.getEstado().getNombre().equalsIgnoreCase("Enviado"))
-                .count();
         stats.setReportesProximosVencer3Dias(proximos3Dias);
-        
+
         return stats;
     }
 
+    /**
+     * Cumplimiento por entidad leído del acumulado mensual (granularidad: meses completos del rango).
+     */
     public Map<String, Object> obtenerCumplimientoPorEntidad(LocalDate fechaInicio, LocalDate fechaFin) {
-        List<InstanciaReporte> instancias = filtrarPorFechas(fechaInicio, fechaFin);
-        
-        Map<String, Map<String, Long>> cumplimientoPorEntidad = instancias.stream()
-                .filter(i -> i.getReporte() != null && i.getReporte().getEntidad() != null)
-                .collect(Collectors.groupingBy(
-                    i -> i.getReporte().getEntidad().getRazonSocial(),
-                    Collectors.groupingBy(
-                        this::clasificarEstado,
-                        Collectors.counting()
-                    )
-                ));
-        
+        if (fechaInicio == null) fechaInicio = LocalDate.now().minusMonths(3);
+        if (fechaFin == null) fechaFin = LocalDate.now();
+
         Map<String, Object> resultado = new HashMap<>();
-        resultado.put("cumplimientoPorEntidad", cumplimientoPorEntidad);
+        resultado.put("cumplimientoPorEntidad",
+                cumplimientoMensual.totalesPorEntidad(YearMonth.from(fechaInicio), YearMonth.from(fechaFin)));
         return resultado;
     }
 
+    /**
+     * Cumplimiento por responsable leído del acumulado mensual (granularidad: meses completos del rango).
+     */
     public Map<String, Object> obtenerCumplimientoPorResponsable(LocalDate fechaInicio, LocalDate fechaFin) {
-        List<InstanciaReporte> instancias = filtrarPorFechas(fechaInicio, fechaFin);
-        
-        Map<String, Map<String, Long>> cumplimientoPorResponsable = instancias.stream()
-                .filter(i -> i.getReporte() != null && i.getReporte().getResponsableElaboracion() != null)
-                .collect(Collectors.groupingBy(
-                    i -> i.getReporte().getResponsableElaboracion().getNombreCompleto(),
-                    Collectors.groupingBy(
-                        this::clasificarEstado,
-                        Collectors.counting()
-                    )
-                ));
-        
+        if (fechaInicio == null) fechaInicio = LocalDate.now().minusMonths(3);
+        if (fechaFin == null) fechaFin = LocalDate.now();
+
         Map<String, Object> resultado = new HashMap<>();
-        resultado.put("cumplimientoPorResponsable", cumplimientoPorResponsable);
+        resultado.put("cumplimientoPorResponsable",
+                cumplimientoMensual.totalesPorResponsable(YearMonth.from(fechaInicio), YearMonth.from(fechaFin)));
         return resultado;
     }
 
+    /**
+     * Porcentaje mensual de envíos a tiempo, leído del acumulado mensual en una sola consulta.
+     */
     public Map<String, Object> obtenerTendenciaHistorica(int meses) {
         Map<String, Double> tendencia = new LinkedHashMap<>();
-        LocalDate hoy = LocalDate.now();
-        
-        for (int i = meses - 1; i >= 0; i--) {
-            YearMonth mes = YearMonth.from(hoy.minusMonths(i));
-            LocalDate inicioMes = mes.atDay(1);
-            LocalDate finMes = mes.atEndOfMonth();
-            
-            List<InstanciaReporte> instanciasMes = instanciaRepo.findByFechaVencimientoCalculadaBetween(inicioMes, finMes);
-            
-            long total = instanciasMes.size();
-            long aTiempo = instanciasMes.stream()
-                    .filter(inst -> inst.getDiasDesviacion() != null && inst.getDiasDesviacion() <= 0)
-                    .filter(inst -> inst.getEstado() != null && 
-                                  inst.getEstado().getNombre().equalsIgnoreCase("Enviado"))
-                    .count();
-            
+        YearMonth actual = YearMonth.now();
+        YearMonth desde = actual.minusMonths(Math.max(meses, 1) - 1);
+
+        Map<YearMonth, Map<String, Long>> totales = cumplimientoMensual.totalesPorMes(desde, actual);
+
+        for (YearMonth mes = desde; !mes.isAfter(actual); mes = mes.plusMonths(1)) {
+            Map<String, Long> categorias = totales.getOrDefault(mes, Map.of());
+            long total = categorias.values().stream().mapToLong(Long::longValue).sum();
+            long aTiempo = categorias.getOrDefault(CumplimientoMensualService.A_TIEMPO, 0L);
+
             double porcentaje = total > 0 ? (aTiempo * 100.0) / total : 0.0;
             tendencia.put(mes.format(DateTimeFormatter.ofPattern("yyyy-MM")), porcentaje);
         }
@@ -183,38 +130,23 @@ public class EstadisticasService {
     }
 
     public Map<String, Long> obtenerDistribucionEstados() {
-        return instanciaRepo.findAll().stream()
-                .filter(i -> i.getEstado() != null)
-                .collect(Collectors.groupingBy(
-                    i -> i.getEstado().getNombre(),
-                    Collectors.counting()
-                ));
+        Map<String, Long> distribucion = new HashMap<>();
+        for (Object[] fila : instanciaRepo.contarPorEstado()) {
+            distribucion.put((String) fila[0], (Long) fila[1]);
+        }
+        return distribucion;
     }
 
     public Map<String, Object> obtenerProximosAVencer(int dias) {
         LocalDate hoy = LocalDate.now();
-        List<InstanciaReporte> proximos = instanciaRepo.findProximosAVencer(hoy, hoy.plusDays(dias));
-        
-        // Convertir a lista de mapas simples para evitar problemas de serialización
+        List<InstanciaResumenView> proximos = instanciaRepo.findProximosAVencer(hoy, hoy.plusDays(dias));
+
         List<Map<String, Object>> reportesSimples = proximos.stream()
-                .filter(i -> i.getReporte() != null && i.getEstado() != null)
                 .map(i -> {
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("id", i.getId());
-                    map.put("periodoReportado", i.getPeriodoReportado());
-                    map.put("fechaVencimiento", i.getFechaVencimientoCalculada());
-                    map.put("estado", i.getEstado().getNombre());
-                    map.put("reporteId", i.getReporte().getId());
-                    map.put("reporteNombre", i.getReporte().getNombre());
-                    if (i.getReporte().getEntidad() != null) {
-                        map.put("entidad", i.getReporte().getEntidad().getRazonSocial());
-                    }
-                    if (i.getReporte().getResponsableElaboracion() != null) {
-                        map.put("responsable", i.getReporte().getResponsableElaboracion().getNombreCompleto());
-                    }
+                    Map<String, Object> map = mapaBasico(i);
                     // Calcular días hasta vencimiento
-                    if (i.getFechaVencimientoCalculada() != null) {
-                        long diasHasta = ChronoUnit.DAYS.between(LocalDate.now(), i.getFechaVencimientoCalculada());
+                    if (i.fechaVencimientoCalculada() != null) {
+                        long diasHasta = ChronoUnit.DAYS.between(LocalDate.now(), i.fechaVencimientoCalculada());
                         map.put("diasHastaVencimiento", diasHasta);
                     }
                     return map;
@@ -229,28 +161,14 @@ public class EstadisticasService {
 
     public Map<String, Object> obtenerReportesVencidos() {
         LocalDate hoy = LocalDate.now();
-        List<InstanciaReporte> vencidos = instanciaRepo.findVencidos(hoy);
-        
-        // Convertir a lista de mapas simples para evitar problemas de serialización
+        List<InstanciaResumenView> vencidos = instanciaRepo.findVencidos(hoy);
+
         List<Map<String, Object>> reportesSimples = vencidos.stream()
-                .filter(i -> i.getReporte() != null && i.getEstado() != null)
                 .map(i -> {
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("id", i.getId());
-                    map.put("periodoReportado", i.getPeriodoReportado());
-                    map.put("fechaVencimiento", i.getFechaVencimientoCalculada());
-                    map.put("estado", i.getEstado().getNombre());
-                    map.put("reporteId", i.getReporte().getId());
-                    map.put("reporteNombre", i.getReporte().getNombre());
-                    if (i.getReporte().getEntidad() != null) {
-                        map.put("entidad", i.getReporte().getEntidad().getRazonSocial());
-                    }
-                    if (i.getReporte().getResponsableElaboracion() != null) {
-                        map.put("responsable", i.getReporte().getResponsableElaboracion().getNombreCompleto());
-                    }
+                    Map<String, Object> map = mapaBasico(i);
                     // Calcular días de retraso
-                    if (i.getFechaVencimientoCalculada() != null) {
-                        long diasRetraso = ChronoUnit.DAYS.between(i.getFechaVencimientoCalculada(), LocalDate.now());
+                    if (i.fechaVencimientoCalculada() != null) {
+                        long diasRetraso = ChronoUnit.DAYS.between(i.fechaVencimientoCalculada(), LocalDate.now());
                         map.put("diasRetraso", diasRetraso);
                     }
                     return map;
@@ -264,43 +182,44 @@ public class EstadisticasService {
     }
 
     public Map<String, Object> obtenerTopIncumplimientoEntidades(int top) {
-        Map<String, Long> incumplimientos = instanciaRepo.findAll().stream()
-                .filter(i -> i.getDiasDesviacion() != null && i.getDiasDesviacion() > 0)
-                .filter(i -> i.getReporte() != null && i.getReporte().getEntidad() != null)
-                .collect(Collectors.groupingBy(
-                    i -> i.getReporte().getEntidad().getRazonSocial(),
-                    Collectors.counting()
-                ));
-        
-        List<Map.Entry<String, Long>> topList = incumplimientos.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(top)
-                .toList();
-        
         Map<String, Object> resultado = new HashMap<>();
-        resultado.put("top", topList);
+        resultado.put("top", aEntradas(instanciaRepo.contarRetrasosPorEntidad(PageRequest.of(0, Math.max(top, 1)))));
         return resultado;
     }
 
     public Map<String, Object> obtenerTopIncumplimientoResponsables(int top) {
-        Map<String, Long> incumplimientos = instanciaRepo.findAll().stream()
-                .filter(i -> i.getDiasDesviacion() != null && i.getDiasDesviacion() > 0)
-                .filter(i -> i.getReporte() != null && i.getReporte().getResponsableElaboracion() != null)
-                .collect(Collectors.groupingBy(
-                    i -> i.getReporte().getResponsableElaboracion().getNombreCompleto(),
-                    Collectors.counting()
-                ));
-        
-        List<Map.Entry<String, Long>> topList = incumplimientos.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(top)
-                .toList();
-        
         Map<String, Object> resultado = new HashMap<>();
-        resultado.put("top", topList);
+        resultado.put("top", aEntradas(instanciaRepo.contarRetrasosPorResponsable(PageRequest.of(0, Math.max(top, 1)))));
         return resultado;
     }
 
+    /**
+     * Filas (nombre, total) a pares nombre → total, en el mismo orden.
+     */
+    private List<Map.Entry<String, Long>> aEntradas(List<Object[]> filas) {
+        return filas.stream()
+                .map(fila -> Map.entry((String) fila[0], ((Number) fila[1]).longValue()))
+                .toList();
+    }
+
+    /**
+     * Campos comunes de los listados de próximos y vencidos.
+     */
+    private Map<String, Object> mapaBasico(InstanciaResumenView i) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", i.id());
+        map.put("periodoReportado", i.periodoReportado());
+        map.put("fechaVencimiento", i.fechaVencimientoCalculada());
+        map.put("estado", i.estadoNombre());
+        map.put("reporteId", i.reporteId());
+        map.put("reporteNombre", i.reporteNombre());
+        map.put("entidad", i.entidadNombre());
+        if (i.responsableElaboracion() != null) {
+            map.put("responsable", i.responsableElaboracion());
+        }
+        return map;
+    }
+
     public Map<String, Object> obtenerResumenPorPeriodo(LocalDate fechaInicio, LocalDate fechaFin) {
         EstadisticasDTO stats = obtenerEstadisticas(fechaInicio, fechaFin);
         
@@ -314,27 +233,7 @@ public class EstadisticasService {
         return resumen;
     }
 
-    private List<InstanciaReporte> filtrarPorFechas(LocalDate fechaInicio, LocalDate fechaFin) {
-        if (fechaInicio == null) fechaInicio = LocalDate.now().minusMonths(3);
-        if (fechaFin == null) fechaFin = LocalDate.now();
-        
-        return instanciaRepo.findByFechaVencimientoCalculadaBetween(fechaInicio, fechaFin);
-    }
-
-    private String clasificarEstado(InstanciaReporte i) {
-        if (i.getEstado() == null) return "Sin Estado";
-        
-        if (i.getEstado().getNombre().equalsIgnoreCase("Enviado") &&
-            i.getDiasDesviacion() != null && i.getDiasDesviacion() <= 0) {
-            return "A Tiempo";
-        } else if (i.getEstado().getNombre().equalsIgnoreCase("Enviado") &&
-                  i.getDiasDesviacion() != null && i.getDiasDesviacion() > 0) {
-            return "Tarde";
-        } else if (i.getFechaVencimientoCalculada() != null && 
-                  LocalDate.now().isAfter(i.getFechaVencimientoCalculada())) {
-            return "Vencido";
-        } else {
-            return "Pendiente";
-        }
+    private long valor(Long numero) {
+        return numero != null ? numero : 0L;
     }
-}
\ No newline at end of file
+}
@@ -4,146 +4,90 @@ import com.example.demo.entity.Reporte;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
-import java.time.temporal.TemporalAdjusters;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class FechaVencimientoCalculator {
 
-    /**
-     * Calcula la fecha de vencimiento para un reporte dado un período
-     */
-    public LocalDate calcularFechaVencimiento(Reporte reporte, String periodoReportado) {
-        String frecuencia = reporte.getFrecuencia().getNombre().toUpperCase();
-        LocalDate fechaBase;
-        Integer diaVenc = reporte.getDiaVencimiento() != null ? reporte.getDiaVencimiento() : 15;
-
-        switch (frecuencia) {
-            case "MENSUAL":
-                fechaBase = calcularVencimientoMensual(periodoReportado, diaVenc);
-                break;
-            case "BIMESTRAL":
-                fechaBase = calcularVencimientoBimestral(periodoReportado, diaVenc);
-                break;
-            case "TRIMESTRAL":
-                fechaBase = calcularVencimientoTrimestral(periodoReportado, diaVenc);
-                break;
-            case "SEMESTRAL":
-                fechaBase = calcularVencimientoSemestral(periodoReportado, diaVenc);
-                break;
-            case "ANUAL":
-                Integer mesVenc = reporte.getMesVencimiento() != null ? reporte.getMesVencimiento() : 3;
-                fechaBase = calcularVencimientoAnual(periodoReportado, mesVenc, diaVenc);
-                break;
-            case "SEMANAL":
-                fechaBase = calcularVencimientoSemanal(periodoReportado, diaVenc);
-                break;
-            case "DIARIA":
-                fechaBase = LocalDate.parse(periodoReportado).plusDays(1);
-                break;
-            case "ÚNICA VEZ":
-            case "UNICA VEZ":
-            case "ESPECIFICA":
-            case "ESPECÍFICA":
-                // Para reportes de única vez, usar la fecha indicada en el período
-                fechaBase = LocalDate.parse(periodoReportado);
-                break;
-            default:
-                // Si no se reconoce la frecuencia, usar mensual como default
-                fechaBase = calcularVencimientoMensual(periodoReportado, diaVenc);
-        }
+    private final CalendarioHabilService calendarioHabil;
 
-        // Agregar plazo adicional si existe
-        if (reporte.getPlazoAdicionalDias() != null && reporte.getPlazoAdicionalDias() > 0) {
-            fechaBase = fechaBase.plusDays(reporte.getPlazoAdicionalDias());
-        }
+    // Regla compilada por reporte; se recompila cuando cambian frecuencia, día, mes, plazo o calendario
+    private final Map<String, ReglaVencimiento> reglas = new ConcurrentHashMap<>();
 
-        return fechaBase;
+    public FechaVencimientoCalculator(CalendarioHabilService calendarioHabil) {
+        this.calendarioHabil = calendarioHabil;
     }
 
-    private LocalDate calcularVencimientoMensual(String periodoReportado, Integer diaVencimiento) {
-        try {
-            YearMonth yearMonth = YearMonth.parse(periodoReportado);
-            YearMonth mesVencimiento = yearMonth.plusMonths(1);
-            return mesVencimiento.atDay(Math.min(diaVencimiento, mesVencimiento.lengthOfMonth()));
-        } catch (Exception e) {
-            // Si no es formato YearMonth, intentar parsearlo de otra forma
-            return LocalDate.now().plusMonths(1).withDayOfMonth(diaVencimiento);
-        }
+    /**
+     * Regla de vencimiento vigente del reporte (la misma que usa el generador de instancias).
+     */
+    public ReglaVencimiento reglaPara(Reporte reporte) {
+        return reglaPara(reporte.getId(), reporte.getFrecuencia().getNombre(),
+                reporte.getDiaVencimiento(), reporte.getMesVencimiento(), reporte.getPlazoAdicionalDias(),
+                calendarioDe(reporte));
     }
 
-    private LocalDate calcularVencimientoBimestral(String periodoReportado, Integer diaVencimiento) {
-        try {
-            String[] partes = periodoReportado.split("-B");
-            int year = Integer.parseInt(partes[0]);
-            int bimestre = Integer.parseInt(partes[1]);
-            
-            int mesInicio = (bimestre - 1) * 2 + 1;
-            YearMonth ultimoMes = YearMonth.of(year, mesInicio + 1);
-            
-            return ultimoMes.plusMonths(1).atDay(Math.min(diaVencimiento, ultimoMes.plusMonths(1).lengthOfMonth()));
-        } catch (Exception e) {
-            return LocalDate.now().plusMonths(2).withDayOfMonth(diaVencimiento);
+    public ReglaVencimiento reglaPara(String reporteId, String frecuencia, Integer dia, Integer mes,
+                                      Integer plazoAdicionalDias, CalendarioLaboral calendario) {
+        if (reporteId == null) {
+            return ReglaVencimiento.compilar(frecuencia, dia, mes, plazoAdicionalDias, calendario);
+        }
+        ReglaVencimiento regla = reglas.get(reporteId);
+        if (regla == null || !regla.coincide(frecuencia, dia, mes, plazoAdicionalDias, calendario)) {
+            regla = ReglaVencimiento.compilar(frecuencia, dia, mes, plazoAdicionalDias, calendario);
+            reglas.put(reporteId, regla);
         }
+        return regla;
     }
 
-    private LocalDate calcularVencimientoTrimestral(String periodoReportado, Integer diaVencimiento) {
-        try {
-            String[] partes = periodoReportado.split("-Q");
-            int year = Integer.parseInt(partes[0]);
-            int trimestre = Integer.parseInt(partes[1]);
-            
-            int mesInicio = (trimestre - 1) * 3 + 1;
-            YearMonth ultimoMes = YearMonth.of(year, mesInicio + 2);
-            
-            return ultimoMes.plusMonths(1).atDay(Math.min(diaVencimiento, ultimoMes.plusMonths(1).lengthOfMonth()));
-        } catch (Exception e) {
-            return LocalDate.now().plusMonths(3).withDayOfMonth(diaVencimiento);
-        }
+    /**
+     * Calendario laboral de la entidad si el reporte cuenta su plazo en días hábiles;
+     * null si lo cuenta en días calendario.
+     */
+    public CalendarioLaboral calendarioDe(Reporte reporte) {
+        return calendarioDe(reporte.isPlazoDiasHabiles(),
+                reporte.getEntidad() != null ? reporte.getEntidad().getId() : null);
     }
 
-    private LocalDate calcularVencimientoSemestral(String periodoReportado, Integer diaVencimiento) {
-        try {
-            String[] partes = periodoReportado.split("-S");
-            int year = Integer.parseInt(partes[0]);
-            int semestre = Integer.parseInt(partes[1]);
-            
-            int mesInicio = (semestre - 1) * 6 + 1;
-            YearMonth ultimoMes = YearMonth.of(year, mesInicio + 5);
-            
-            return ultimoMes.plusMonths(1).atDay(Math.min(diaVencimiento, ultimoMes.plusMonths(1).lengthOfMonth()));
-        } catch (Exception e) {
-            return LocalDate.now().plusMonths(6).withDayOfMonth(diaVencimiento);
-        }
+    public CalendarioLaboral calendarioDe(boolean plazoDiasHabiles, Integer entidadId) {
+        return plazoDiasHabiles ? calendarioHabil.calendario(entidadId) : null;
     }
 
-    private LocalDate calcularVencimientoAnual(String periodoReportado, Integer mesVencimiento, Integer diaVencimiento) {
-        try {
-            int year = Integer.parseInt(periodoReportado);
-            YearMonth yearMonth = YearMonth.of(year + 1, mesVencimiento);
-            return yearMonth.atDay(Math.min(diaVencimiento, yearMonth.lengthOfMonth()));
-        } catch (Exception e) {
-            return LocalDate.now().plusYears(1).withMonth(mesVencimiento).withDayOfMonth(diaVencimiento);
+    /**
+     * Calcula la fecha de vencimiento para un reporte dado el período que se reporta
+     * (instancias creadas a mano): vence después de cerrado el período.
+     */
+    public LocalDate calcularFechaVencimiento(Reporte reporte, String periodoReportado) {
+        LocalDate fecha = reglaPara(reporte).fechaVencimientoReportado(periodoReportado);
+        if (fecha == null) {
+            throw new RuntimeException("Período '" + periodoReportado + "' no válido para la frecuencia " +
+                    reporte.getFrecuencia().getNombre());
         }
+        return fecha;
     }
 
-    private LocalDate calcularVencimientoSemanal(String periodoReportado, Integer diaVencimiento) {
-        try {
-            LocalDate fechaPeriodo = LocalDate.parse(periodoReportado);
-            return fechaPeriodo.plusDays(7).with(TemporalAdjusters.nextOrSame(java.time.DayOfWeek.of(diaVencimiento)));
-        } catch (Exception e) {
-            return LocalDate.now().plusWeeks(1);
+    /**
+     * Días desde una fecha hasta el vencimiento, en la unidad del plazo del reporte
+     * (hábiles o calendario). Negativo si el vencimiento ya pasó.
+     */
+    public int calcularDiasHasta(Reporte reporte, LocalDate desde, LocalDate fechaLimite) {
+        CalendarioLaboral calendario = calendarioDe(reporte);
+        if (calendario == null) {
+            return (int) ChronoUnit.DAYS.between(desde, fechaLimite);
         }
+        return calendario.diasHabilesEntre(desde, fechaLimite);
     }
 
     /**
-     * Calcula los días de desviación entre la fecha de envío y la fecha límite
+     * Calcula los días de desviación entre la fecha de envío y la fecha límite,
+     * en días hábiles si el plazo del reporte se cuenta así.
      */
-    public int calcularDiasDesviacion(LocalDate fechaEnvio, LocalDate fechaLimite) {
+    public int calcularDiasDesviacion(Reporte reporte, LocalDate fechaEnvio, LocalDate fechaLimite) {
         if (fechaEnvio == null || fechaLimite == null) {
             return 0;
         }
-        return (int) ChronoUnit.DAYS.between(fechaLimite, fechaEnvio);
+        return -calcularDiasHasta(reporte, fechaEnvio, fechaLimite);
     }
 }
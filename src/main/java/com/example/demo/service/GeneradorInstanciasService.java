@@ -2,13 +2,17 @@ package com.example.demo.service;
 
 import com.example.demo.entity.*;
 import com.example.demo.repository.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Date;
+import java.sql.Statement;
 import java.time.LocalDate;
-import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Servicio para generar instancias de reportes automáticamente
@@ -17,55 +21,68 @@ import java.util.List;
 @Service
 public class GeneradorInstanciasService {
 
+    private static final String SQL_INSERTAR_INSTANCIA =
+            "INSERT INTO instancias_reporte (reporte_id, periodo_reportado, fecha_vencimiento_calculada, " +
+            "estado_id, dias_desviacion, fecha_actualizacion) VALUES (?, ?, ?, ?, 0, NOW()) " +
+            "ON CONFLICT (reporte_id, periodo_reportado) DO NOTHING";
+
     private final InstanciaReporteRepository instanciaRepo;
-    private final EstadoCumplimientoRepository estadoRepo;
+    private final CatalogoCacheService catalogos;
+    private final JdbcTemplate jdbcTemplate;
+    private final FechaVencimientoCalculator fechaCalculator;
 
     public GeneradorInstanciasService(InstanciaReporteRepository instanciaRepo,
-                                      EstadoCumplimientoRepository estadoRepo) {
+                                      CatalogoCacheService catalogos,
+                                      JdbcTemplate jdbcTemplate,
+                                      FechaVencimientoCalculator fechaCalculator) {
         this.instanciaRepo = instanciaRepo;
-        this.estadoRepo = estadoRepo;
+        this.catalogos = catalogos;
+        this.jdbcTemplate = jdbcTemplate;
+        this.fechaCalculator = fechaCalculator;
     }
 
     /**
      * Genera instancias para un reporte desde una fecha inicio hasta una fecha fin.
-     * Se utiliza al crear un nuevo reporte.
+     * Se utiliza al crear un nuevo reporte. Lee una sola vez los periodos que ya
+     * existen e inserta los faltantes en un batch JDBC; uk_instancia_reporte con
+     * ON CONFLICT DO NOTHING lo hace idempotente aunque dos procesos coincidan.
+     * Retorna cuántas instancias se crearon.
      */
     @Transactional
-    public List<InstanciaReporte> generarInstanciasParaReporte(Reporte reporte, LocalDate fechaInicio, LocalDate fechaFin) {
-        List<InstanciaReporte> instancias = new ArrayList<>();
-        
+    public int generarInstanciasParaReporte(Reporte reporte, LocalDate fechaInicio, LocalDate fechaFin) {
         // Obtener estado "Pendiente"
-        EstadoCumplimiento estadoPendiente = estadoRepo.findByNombre("Pendiente")
+        EstadoCumplimiento estadoPendiente = catalogos.estadoPorNombre("Pendiente")
                 .orElseThrow(() -> new RuntimeException("Estado 'Pendiente' no encontrado"));
 
-        String frecuencia = reporte.getFrecuencia().getNombre().toUpperCase();
-        int diaVencimiento = reporte.getDiaVencimiento() != null ? reporte.getDiaVencimiento() : 15;
-        int mesVencimiento = reporte.getMesVencimiento() != null ? reporte.getMesVencimiento() : 1;
-
-        List<LocalDate> fechasVencimiento = calcularFechasVencimiento(
-                frecuencia, diaVencimiento, mesVencimiento, fechaInicio, fechaFin
-        );
+        // Periodo -> vencimiento según la regla compilada del reporte
+        Map<String, LocalDate> faltantes = fechaCalculator.reglaPara(reporte)
+                .vencimientosEntre(fechaInicio, fechaFin);
+        Set<String> existentes = instanciaRepo.findPeriodosPorReporte(reporte.getId());
+        faltantes.keySet().removeAll(existentes);
+        if (faltantes.isEmpty()) {
+            return 0;
+        }
 
-        for (LocalDate fechaVenc : fechasVencimiento) {
-            // Verificar que no exista ya una instancia para este periodo
-            String periodo = calcularPeriodoReportado(frecuencia, fechaVenc);
-            
-            boolean existe = instanciaRepo.findByReporte(reporte).stream()
-                    .anyMatch(i -> i.getPeriodoReportado().equals(periodo));
-            
-            if (!existe) {
-                InstanciaReporte instancia = new InstanciaReporte();
-                instancia.setReporte(reporte);
-                instancia.setPeriodoReportado(periodo);
-                instancia.setFechaVencimientoCalculada(fechaVenc);
-                instancia.setEstado(estadoPendiente);
-                instancia.setDiasDesviacion(0);
-                
-                instancias.add(instanciaRepo.save(instancia));
+        // El reporte puede venir recién guardado por JPA: debe existir en la BD antes del batch
+        instanciaRepo.flush();
+
+        List<Map.Entry<String, LocalDate>> filas = new ArrayList<>(faltantes.entrySet());
+        int[][] resultados = jdbcTemplate.batchUpdate(SQL_INSERTAR_INSTANCIA, filas, filas.size(), (ps, fila) -> {
+            ps.setString(1, reporte.getId());
+            ps.setString(2, fila.getKey());
+            ps.setDate(3, Date.valueOf(fila.getValue()));
+            ps.setInt(4, estadoPendiente.getId());
+        });
+
+        int creadas = 0;
+        for (int[] lote : resultados) {
+            for (int filasAfectadas : lote) {
+                if (filasAfectadas > 0 || filasAfectadas == Statement.SUCCESS_NO_INFO) {
+                    creadas++;
+                }
             }
         }
-
-        return instancias;
+        return creadas;
     }
 
     /**
@@ -73,150 +90,11 @@ public class GeneradorInstanciasService {
      * Útil al crear un reporte nuevo.
      */
     @Transactional
-    public List<InstanciaReporte> generarInstanciasAnuales(Reporte reporte) {
+    public int generarInstanciasAnuales(Reporte reporte) {
         LocalDate hoy = LocalDate.now();
         LocalDate inicio = hoy.withDayOfMonth(1); // Primer día del mes actual
         LocalDate fin = hoy.plusYears(1).withMonth(12).withDayOfMonth(31); // Fin del año siguiente
         
         return generarInstanciasParaReporte(reporte, inicio, fin);
     }
-
-    /**
-     * Calcula las fechas de vencimiento según la frecuencia.
-     */
-    private List<LocalDate> calcularFechasVencimiento(String frecuencia, int dia, int mes, 
-                                                       LocalDate inicio, LocalDate fin) {
-        List<LocalDate> fechas = new ArrayList<>();
-
-        switch (frecuencia) {
-            case "MENSUAL":
-                // Vence el mismo día de cada mes
-                LocalDate fechaMensual = inicio.withDayOfMonth(Math.min(dia, inicio.lengthOfMonth()));
-                if (fechaMensual.isBefore(inicio)) {
-                    fechaMensual = fechaMensual.plusMonths(1);
-                }
-                while (!fechaMensual.isAfter(fin)) {
-                    int diaAjustado = Math.min(dia, fechaMensual.lengthOfMonth());
-                    fechas.add(fechaMensual.withDayOfMonth(diaAjustado));
-                    fechaMensual = fechaMensual.plusMonths(1);
-                }
-                break;
-
-            case "TRIMESTRAL":
-                // Vence en el mes indicado de cada trimestre (mes 1, 2 o 3 del trimestre)
-                // Trimestres: Ene-Mar, Abr-Jun, Jul-Sep, Oct-Dic
-                int[] iniciosTrimestre = {1, 4, 7, 10}; // Meses de inicio de cada trimestre
-                for (int year = inicio.getYear(); year <= fin.getYear(); year++) {
-                    for (int inicioTrim : iniciosTrimestre) {
-                        int mesReal = inicioTrim + (mes - 1); // mes 1 = primer mes del trimestre
-                        if (mesReal > 12) continue;
-                        
-                        YearMonth ym = YearMonth.of(year, mesReal);
-                        int diaAjustado = Math.min(dia, ym.lengthOfMonth());
-                        LocalDate fecha = LocalDate.of(year, mesReal, diaAjustado);
-                        
-                        if (!fecha.isBefore(inicio) && !fecha.isAfter(fin)) {
-                            fechas.add(fecha);
-                        }
-                    }
-                }
-                break;
-
-            case "SEMESTRAL":
-                // Vence en el mes indicado de cada semestre (mes 1-6)
-                // Semestres: Ene-Jun, Jul-Dic
-                int[] iniciosSemestre = {1, 7}; // Meses de inicio de cada semestre
-                for (int year = inicio.getYear(); year <= fin.getYear(); year++) {
-                    for (int inicioSem : iniciosSemestre) {
-                        int mesReal = inicioSem + (mes - 1);
-                        if (mesReal > 12) continue;
-                        
-                        YearMonth ym = YearMonth.of(year, mesReal);
-                        int diaAjustado = Math.min(dia, ym.lengthOfMonth());
-                        LocalDate fecha = LocalDate.of(year, mesReal, diaAjustado);
-                        
-                        if (!fecha.isBefore(inicio) && !fecha.isAfter(fin)) {
-                            fechas.add(fecha);
-                        }
-                    }
-                }
-                break;
-
-            case "ANUAL":
-                // Vence una vez al año en el mes y día indicados
-                for (int year = inicio.getYear(); year <= fin.getYear(); year++) {
-                    YearMonth ym = YearMonth.of(year, mes);
-                    int diaAjustado = Math.min(dia, ym.lengthOfMonth());
-                    LocalDate fecha = LocalDate.of(year, mes, diaAjustado);
-                    
-                    if (!fecha.isBefore(inicio) && !fecha.isAfter(fin)) {
-                        fechas.add(fecha);
-                    }
-                }
-                break;
-
-            case "SEMANAL":
-                // Vence cada semana (día de la semana = dia del 1-7)
-                LocalDate fechaSemanal = inicio;
-                while (!fechaSemanal.isAfter(fin)) {
-                    fechas.add(fechaSemanal);
-                    fechaSemanal = fechaSemanal.plusWeeks(1);
-                }
-                break;
-
-            case "ÚNICA VEZ":
-                // Solo una vez, usar la fecha de inicio de vigencia o el mes/día indicado
-                YearMonth ymUnica = YearMonth.of(inicio.getYear(), mes);
-                int diaUnico = Math.min(dia, ymUnica.lengthOfMonth());
-                LocalDate fechaUnica = LocalDate.of(inicio.getYear(), mes, diaUnico);
-                if (!fechaUnica.isBefore(inicio) && !fechaUnica.isAfter(fin)) {
-                    fechas.add(fechaUnica);
-                }
-                break;
-
-            default:
-                // Por defecto, mensual
-                LocalDate fechaDefault = inicio.withDayOfMonth(Math.min(dia, inicio.lengthOfMonth()));
-                while (!fechaDefault.isAfter(fin)) {
-                    fechas.add(fechaDefault);
-                    fechaDefault = fechaDefault.plusMonths(1);
-                }
-        }
-
-        return fechas;
-    }
-
-    /**
-     * Calcula el periodo reportado basado en la frecuencia y fecha.
-     */
-    private String calcularPeriodoReportado(String frecuencia, LocalDate fecha) {
-        int year = fecha.getYear();
-        int month = fecha.getMonthValue();
-
-        switch (frecuencia) {
-            case "MENSUAL":
-                return String.format("%d-%02d", year, month);
-            
-            case "TRIMESTRAL":
-                int trimestre = ((month - 1) / 3) + 1;
-                return String.format("%d-T%d", year, trimestre);
-            
-            case "SEMESTRAL":
-                int semestre = month <= 6 ? 1 : 2;
-                return String.format("%d-S%d", year, semestre);
-            
-            case "ANUAL":
-                return String.valueOf(year);
-            
-            case "SEMANAL":
-                int semana = fecha.getDayOfYear() / 7 + 1;
-                return String.format("%d-W%02d", year, semana);
-            
-            case "ÚNICA VEZ":
-                return String.format("UNICO-%d", year);
-            
-            default:
-                return String.format("%d-%02d", year, month);
-        }
-    }
 }
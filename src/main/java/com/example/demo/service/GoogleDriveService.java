@@ -1,6 +1,7 @@
 package com.example.demo.service;
 
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.googleapis.media.MediaHttpUploader;
 import com.google.api.client.http.InputStreamContent;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.drive.Drive;
@@ -14,20 +15,26 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.GeneralSecurityException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Servicio para integración con Google Drive.
  * Permite subir archivos y obtener links compartidos.
+ *
+ * Los archivos nunca se cargan completos en memoria: a Drive se suben por
+ * streaming con el protocolo reanudable, en bloques de tamaño configurable.
+ * Sin Drive se usa AlmacenamientoLocalService (ver AlmacenamientoConfig).
  */
 @Service
-public class GoogleDriveService {
+public class GoogleDriveService implements AlmacenamientoArchivos {
 
     private static final String APPLICATION_NAME = "Seguimiento Reportes";
     
@@ -39,6 +46,10 @@ public class GoogleDriveService {
     
     @Value("${google.drive.enabled:false}")
     private boolean driveEnabled;
+
+    // Memoria por subida: Drive exige múltiplos de 256 KB
+    @Value("${google.drive.upload.tamano-bloque-kb:8192}")
+    private int tamanoBloqueKb;
     
     private Drive driveService;
     
@@ -75,27 +86,45 @@ public class GoogleDriveService {
     }
     
     /**
-     * Sube un archivo a Google Drive y retorna información del archivo.
+     * Sube un archivo a Google Drive y retorna información del archivo. Lee el
+     * multipart como stream: Spring ya lo dejó en un temporal en disco.
      */
-    public Map<String, String> uploadFile(MultipartFile multipartFile, String reporteId, String periodo) throws IOException {
-        Map<String, String> result = new HashMap<>();
-        
-        if (!driveEnabled || driveService == null) {
-            // Modo sin Drive: simular subida
-            result.put("fileId", "local_" + System.currentTimeMillis());
-            result.put("fileName", multipartFile.getOriginalFilename());
-            result.put("webViewLink", "#"); // Sin link real
-            result.put("webContentLink", "#");
-            result.put("mode", "local");
-            return result;
+    @Override
+    public Map<String, String> guardar(MultipartFile multipartFile, String reporteId, String periodo) throws IOException {
+        verificarHabilitado();
+        try (InputStream contenido = multipartFile.getInputStream()) {
+            return subirADrive(contenido, multipartFile.getSize(), multipartFile.getContentType(),
+                    multipartFile.getOriginalFilename(), reporteId, periodo);
         }
-        
+    }
+
+    /**
+     * Sube a Drive un archivo que ya está en disco (p. ej. en el staging de los envíos
+     * en segundo plano).
+     */
+    @Override
+    public Map<String, String> guardar(Path archivo, String nombreOriginal, String contentType,
+                                      String reporteId, String periodo) throws IOException {
+        verificarHabilitado();
+        try (InputStream contenido = Files.newInputStream(archivo)) {
+            return subirADrive(contenido, Files.size(archivo), contentType, nombreOriginal, reporteId, periodo);
+        }
+    }
+
+    /**
+     * Sube un stream de tamaño conocido a Drive con el protocolo reanudable: el
+     * cliente lee y envía un bloque a la vez, así que la memoria por subida queda
+     * acotada al tamaño de bloque.
+     */
+    private Map<String, String> subirADrive(InputStream contenido, long tamano, String contentType,
+                                            String nombreOriginal, String reporteId, String periodo) throws IOException {
+        Map<String, String> result = new HashMap<>();
         try {
             // Crear metadata del archivo
             String fileName = String.format("%s_%s_%s", 
                     reporteId, 
                     periodo, 
-                    multipartFile.getOriginalFilename());
+                    nombreOriginal);
             
             File fileMetadata = new File();
             fileMetadata.setName(fileName);
@@ -105,14 +134,16 @@ public class GoogleDriveService {
                 fileMetadata.setParents(Collections.singletonList(folderId));
             }
             
-            // Subir archivo
-            InputStreamContent mediaContent = new InputStreamContent(
-                    multipartFile.getContentType(),
-                    new ByteArrayInputStream(multipartFile.getBytes()));
-            
-            File uploadedFile = driveService.files().create(fileMetadata, mediaContent)
-                    .setFields("id, name, webViewLink, webContentLink")
-                    .execute();
+            // Subir archivo por bloques
+            InputStreamContent mediaContent = new InputStreamContent(contentType, contenido);
+            mediaContent.setLength(tamano);
+
+            Drive.Files.Create create = driveService.files().create(fileMetadata, mediaContent)
+                    .setFields("id, name, webViewLink, webContentLink");
+            MediaHttpUploader uploader = create.getMediaHttpUploader();
+            uploader.setDirectUploadEnabled(false);
+            uploader.setChunkSize(tamanoBloque());
+            File uploadedFile = create.execute();
             
             // Hacer el archivo público o compartido con la organización
             Permission permission = new Permission();
@@ -133,10 +164,22 @@ public class GoogleDriveService {
         }
     }
     
+    private int tamanoBloque() {
+        int bloques = Math.max(1, tamanoBloqueKb * 1024 / MediaHttpUploader.MINIMUM_CHUNK_SIZE);
+        return bloques * MediaHttpUploader.MINIMUM_CHUNK_SIZE;
+    }
+
+    private void verificarHabilitado() throws IOException {
+        if (!isDriveEnabled()) {
+            throw new IOException("Google Drive no está habilitado");
+        }
+    }
+
     /**
      * Elimina un archivo de Google Drive.
      */
-    public void deleteFile(String fileId) throws IOException {
+    @Override
+    public void eliminar(String fileId) throws IOException {
         if (!driveEnabled || driveService == null || fileId == null || fileId.startsWith("local_")) {
             return;
         }
@@ -148,6 +191,14 @@ public class GoogleDriveService {
         }
     }
     
+    /**
+     * Los archivos de Drive se abren con su webViewLink, no se sirven desde aquí.
+     */
+    @Override
+    public Optional<Path> ubicar(String fileId) {
+        return Optional.empty();
+    }
+
     /**
      * Verifica si Drive está habilitado.
      */
@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.ControlGeneracionInstancias;
+import com.example.demo.entity.EstadoCumplimiento;
+import com.example.demo.entity.Reporte;
+import com.example.demo.repository.ControlGeneracionInstanciasRepository;
+import com.example.demo.repository.InstanciaReporteRepository;
+import com.example.demo.repository.ReporteRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Mantiene materializados los próximos N meses de instancias de todos los
+ * reportes activos. Cada noche compara el punto de control de cada reporte
+ * (hasta dónde se generó y con qué calendario) y solo trabaja sobre los que
+ * se quedaron cortos o cambiaron de frecuencia/día/mes/plazo (o de festivos,
+ * si cuentan días hábiles). Los reportes pendientes se reparten en particiones
+ * paralelas; cada reporte se procesa y confirma en su propia transacción junto
+ * con su punto de control, así una corrida interrumpida continúa donde quedó.
+ * Solo corre una a la vez por instancia de la aplicación: el cron y
+ * POST /api/instancias/horizonte no se solapan.
+ */
+@Service
+public class HorizonteInstanciasService {
+
+    /**
+     * Resultado de sincronizar un reporte.
+     */
+    public record Resultado(int creadas, int eliminadas) {
+    }
+
+    private final ReporteRepository reporteRepo;
+    private final InstanciaReporteRepository instanciaRepo;
+    private final CatalogoCacheService catalogos;
+    private final ControlGeneracionInstanciasRepository controlRepo;
+    private final GeneradorInstanciasService generador;
+    private final FechaVencimientoCalculator fechaCalculator;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor;
+    private final AtomicBoolean enEjecucion = new AtomicBoolean();
+
+    @Value("${instancias.horizonte.meses:12}")
+    private int meses;
+
+    @Value("${instancias.horizonte.hilos:2}")
+    private int particiones;
+
+    public HorizonteInstanciasService(ReporteRepository reporteRepo,
+                                      InstanciaReporteRepository instanciaRepo,
+                                      CatalogoCacheService catalogos,
+                                      ControlGeneracionInstanciasRepository controlRepo,
+                                      GeneradorInstanciasService generador,
+                                      FechaVencimientoCalculator fechaCalculator,
+                                      TransactionTemplate transactionTemplate,
+                                      @Qualifier("horizonteInstanciasExecutor") ThreadPoolTaskExecutor executor) {
+        this.reporteRepo = reporteRepo;
+        this.instanciaRepo = instanciaRepo;
+        this.catalogos = catalogos;
+        this.controlRepo = controlRepo;
+        this.generador = generador;
+        this.fechaCalculator = fechaCalculator;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+    }
+
+    /**
+     * Corre antes de la reconstrucción nocturna del acumulado de cumplimiento (1:30),
+     * para que las instancias nuevas queden contadas.
+     */
+    @Scheduled(cron = "${instancias.horizonte.cron:0 0 1 * * *}")
+    public Map<String, Object> mantenerHorizonte() {
+        if (!enEjecucion.compareAndSet(false, true)) {
+            System.out.println("⏭️ Horizonte de instancias ya en ejecución; se omite esta corrida");
+            return Map.of("enEjecucion", true);
+        }
+        try {
+            return mantenerHorizonteExclusivo();
+        } finally {
+            enEjecucion.set(false);
+        }
+    }
+
+    private Map<String, Object> mantenerHorizonteExclusivo() {
+        System.out.println("📅 Manteniendo horizonte de instancias (" + meses + " meses)...");
+        LocalDate hoy = LocalDate.now();
+
+        // Dos consultas deciden qué reportes necesitan trabajo
+        Map<String, ControlGeneracionInstancias> controles = controlRepo.findAll().stream()
+                .collect(Collectors.toMap(ControlGeneracionInstancias::getReporteId, Function.identity()));
+        List<String> pendientes = new ArrayList<>();
+        List<Object[]> calendarios = reporteRepo.findCalendariosActivos();
+        for (Object[] fila : calendarios) {
+            String reporteId = (String) fila[0];
+            CalendarioLaboral calendario = fechaCalculator.calendarioDe((Boolean) fila[7], (Integer) fila[6]);
+            String firma = fechaCalculator.reglaPara(reporteId, (String) fila[1], (Integer) fila[2],
+                    (Integer) fila[3], (Integer) fila[5], calendario).firma();
+            LocalDate horizonte = calcularHorizonte(hoy, (LocalDate) fila[4]);
+            ControlGeneracionInstancias control = controles.get(reporteId);
+            if (control == null || !firma.equals(control.getFirmaCalendario())
+                    || control.getGeneradoHasta().isBefore(horizonte)) {
+                pendientes.add(reporteId);
+            }
+        }
+
+        // Particiones por posición; cada una recorre sus reportes en serie
+        AtomicInteger creadas = new AtomicInteger();
+        AtomicInteger eliminadas = new AtomicInteger();
+        AtomicInteger fallidos = new AtomicInteger();
+        int n = Math.max(1, Math.min(particiones, pendientes.size()));
+        List<CompletableFuture<Void>> tareas = new ArrayList<>();
+        for (int p = 0; p < n; p++) {
+            List<String> particion = new ArrayList<>();
+            for (int i = p; i < pendientes.size(); i += n) {
+                particion.add(pendientes.get(i));
+            }
+            tareas.add(CompletableFuture.runAsync(() -> {
+                for (String reporteId : particion) {
+                    try {
+                        Resultado r = sincronizarReporte(reporteId, hoy);
+                        creadas.addAndGet(r.creadas());
+                        eliminadas.addAndGet(r.eliminadas());
+                    } catch (Exception e) {
+                        fallidos.incrementAndGet();
+                        System.err.println("❌ Error generando instancias del reporte " + reporteId + ": " + e.getMessage());
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(tareas.toArray(new CompletableFuture[0])).join();
+
+        System.out.println("✓ Horizonte de instancias: " + pendientes.size() + " de " + calendarios.size() +
+                " reportes procesados, " + creadas.get() + " instancias creadas, " +
+                eliminadas.get() + " regeneradas, " + fallidos.get() + " errores");
+        return Map.of(
+                "enEjecucion", false,
+                "reportesActivos", calendarios.size(),
+                "reportesProcesados", pendientes.size(),
+                "instanciasCreadas", creadas.get(),
+                "instanciasEliminadas", eliminadas.get(),
+                "errores", fallidos.get());
+    }
+
+    /**
+     * Sincroniza un reporte con el horizonte en una transacción (o en la del
+     * llamador, p. ej. al actualizar el reporte). Si el calendario cambió desde la
+     * última generación, borra las instancias futuras pendientes y las vuelve a crear.
+     */
+    public Resultado sincronizarReporte(String reporteId, LocalDate hoy) {
+        return transactionTemplate.execute(status -> {
+            Reporte reporte = reporteRepo.findById(reporteId).orElse(null);
+            if (reporte == null || !reporte.isActivo()) {
+                return new Resultado(0, 0);
+            }
+
+            String firma = fechaCalculator.reglaPara(reporte).firma();
+            LocalDate horizonte = calcularHorizonte(hoy, reporte.getFechaFinVigencia());
+            ControlGeneracionInstancias control = controlRepo.findById(reporteId).orElse(null);
+
+            int eliminadas = 0;
+            LocalDate desde = hoy.withDayOfMonth(1);
+            if (control != null && !firma.equals(control.getFirmaCalendario())) {
+                EstadoCumplimiento pendiente = catalogos.estadoPorNombre("Pendiente")
+                        .orElseThrow(() -> new RuntimeException("Estado 'Pendiente' no encontrado"));
+                eliminadas = instanciaRepo.eliminarPendientesFuturas(reporteId, hoy, pendiente.getId());
+                // No se recrean vencimientos que ya pasaron
+                desde = hoy;
+            }
+            if (reporte.getFechaInicioVigencia() != null && reporte.getFechaInicioVigencia().isAfter(desde)) {
+                desde = reporte.getFechaInicioVigencia();
+            }
+
+            int creadas = desde.isAfter(horizonte) ? 0
+                    : generador.generarInstanciasParaReporte(reporte, desde, horizonte);
+
+            controlRepo.guardarPuntoControl(reporteId, horizonte, firma);
+
+            if (eliminadas > 0) {
+                System.out.println("🔄 Reporte " + reporteId + ": calendario cambiado, " + eliminadas +
+                        " instancias pendientes reemplazadas por " + creadas);
+            }
+            return new Resultado(creadas, eliminadas);
+        });
+    }
+
+    /**
+     * Último día del mes en que termina el horizonte, sin pasar el fin de vigencia.
+     */
+    private LocalDate calcularHorizonte(LocalDate hoy, LocalDate finVigencia) {
+        LocalDate horizonte = YearMonth.from(hoy.plusMonths(meses)).atEndOfMonth();
+        return finVigencia != null && finVigencia.isBefore(horizonte) ? finVigencia : horizonte;
+    }
+}
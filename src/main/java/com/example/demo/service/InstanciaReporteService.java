@@ -1,12 +1,16 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.entity.InstanciaReporte;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public interface InstanciaReporteService {
     List<InstanciaReporte> listar();
@@ -28,9 +32,19 @@ public interface InstanciaReporteService {
     
     InstanciaReporteDTO enviarReporteConLink(Integer id, String linkReporte, String observaciones, 
                                               String linkEvidencia, Authentication authentication);
+
+    // Envío en segundo plano: el archivo ya está subido, solo se registra en la instancia
+    InstanciaReporteDTO registrarEnvioArchivo(Integer id, Map<String, String> resultadoArchivo, String observaciones,
+                                              String linkEvidencia, String correoUsuario, LocalDateTime fechaEnvio);
     
     // Métodos de consulta
     List<InstanciaReporteDTO> listarPendientes();
     List<InstanciaReporteDTO> listarVencidos();
     List<InstanciaReporteDTO> listarHistorico(String reporteId, Integer entidadId, Integer year, Integer mes);
+
+    // Consultas paginadas (cursor por fecha de vencimiento + id, o número de página)
+    PaginaDTO<InstanciaReporteDTO> listarPendientesPaginado(LocalDate despuesDeFecha, Integer despuesDeId, int tamano);
+    PaginaDTO<InstanciaReporteDTO> listarVencidosPaginado(LocalDate despuesDeFecha, Integer despuesDeId, int tamano);
+    PaginaDTO<InstanciaReporteDTO> listarHistoricoPaginado(String reporteId, Integer entidadId, Integer year, Integer mes,
+                                                          int pagina, int tamano);
 }
@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+/**
+ * Circuit breaker simple. Tras "umbralFallos" fallos consecutivos se abre y
+ * rechaza llamadas durante "tiempoAbiertoMs"; luego deja pasar una sola llamada
+ * de prueba (semiabierto): si funciona se cierra, si falla se vuelve a abrir.
+ */
+public class InterruptorCircuito {
+
+    public enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private final int umbralFallos;
+    private final long tiempoAbiertoMs;
+
+    private Estado estado = Estado.CERRADO;
+    private int fallosConsecutivos;
+    private long abiertoDesde;
+    private boolean pruebaEnCurso;
+
+    public InterruptorCircuito(int umbralFallos, long tiempoAbiertoMs) {
+        this.umbralFallos = umbralFallos;
+        this.tiempoAbiertoMs = tiempoAbiertoMs;
+    }
+
+    /**
+     * Indica si la llamada puede hacerse. Si retorna true, el llamador debe
+     * reportar el resultado con registrarExito o registrarFallo.
+     */
+    public synchronized boolean permitir() {
+        if (estado == Estado.ABIERTO && System.currentTimeMillis() - abiertoDesde >= tiempoAbiertoMs) {
+            estado = Estado.SEMIABIERTO;
+            pruebaEnCurso = false;
+        }
+        if (estado == Estado.CERRADO) {
+            return true;
+        }
+        if (estado == Estado.SEMIABIERTO && !pruebaEnCurso) {
+            pruebaEnCurso = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Devuelve el turno de prueba sin resultado (la llamada permitida no se hizo,
+     * p. ej. porque la rechazó el límite de tasa).
+     */
+    public synchronized void cancelarPrueba() {
+        pruebaEnCurso = false;
+    }
+
+    /**
+     * Milisegundos que faltan para que el circuito abierto deje pasar una prueba (0 si no está abierto).
+     */
+    public synchronized long msHastaPrueba() {
+        if (estado != Estado.ABIERTO) {
+            return 0;
+        }
+        return Math.max(0, tiempoAbiertoMs - (System.currentTimeMillis() - abiertoDesde));
+    }
+
+    public synchronized void registrarExito() {
+        estado = Estado.CERRADO;
+        fallosConsecutivos = 0;
+        pruebaEnCurso = false;
+    }
+
+    public synchronized void registrarFallo() {
+        fallosConsecutivos++;
+        if (estado == Estado.SEMIABIERTO || fallosConsecutivos >= umbralFallos) {
+            estado = Estado.ABIERTO;
+            abiertoDesde = System.currentTimeMillis();
+            pruebaEnCurso = false;
+        }
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    public synchronized int getFallosConsecutivos() {
+        return fallosConsecutivos;
+    }
+}
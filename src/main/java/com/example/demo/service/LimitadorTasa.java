@@ -0,0 +1,54 @@
+package com.example.demo.service;
+
+/**
+ * Token bucket: permite ráfagas de hasta "capacidad" envíos y luego
+ * "tasaPorSegundo" envíos sostenidos. Seguro para uso concurrente.
+ */
+public class LimitadorTasa {
+
+    private final double capacidad;
+    private final double tasaPorNano;
+    private double tokens;
+    private long ultimaRecarga;
+
+    public LimitadorTasa(double tasaPorSegundo, int capacidad) {
+        this.capacidad = capacidad;
+        this.tasaPorNano = tasaPorSegundo / 1_000_000_000d;
+        this.tokens = capacidad;
+        this.ultimaRecarga = System.nanoTime();
+    }
+
+    /**
+     * Toma un token, esperando como máximo esperaMaximaMs.
+     * Retorna false si no hubo token disponible en ese tiempo.
+     */
+    public boolean adquirir(long esperaMaximaMs) throws InterruptedException {
+        long limite = System.nanoTime() + esperaMaximaMs * 1_000_000L;
+        while (true) {
+            long esperaNanos;
+            synchronized (this) {
+                recargar();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return true;
+                }
+                esperaNanos = (long) Math.ceil((1 - tokens) / tasaPorNano);
+            }
+            if (System.nanoTime() + esperaNanos > limite) {
+                return false;
+            }
+            Thread.sleep(Math.max(1, esperaNanos / 1_000_000L));
+        }
+    }
+
+    public synchronized double tokensDisponibles() {
+        recargar();
+        return tokens;
+    }
+
+    private void recargar() {
+        long ahora = System.nanoTime();
+        tokens = Math.min(capacidad, tokens + (ahora - ultimaRecarga) * tasaPorNano);
+        ultimaRecarga = ahora;
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.NotificacionPendiente;
+import com.example.demo.exception.EnvioRechazadoException;
+import com.example.demo.repository.NotificacionPendienteRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Despachador del outbox de notificaciones.
+ * Toma lotes de mensajes pendientes en transacciones cortas y los envía en
+ * paralelo (un pool acotado por canal, sin conexión de BD abierta), con un plazo
+ * máximo por ronda. Registra el resultado de cada destinatario y reintenta los
+ * fallidos con backoff exponencial.
+ */
+@Service
+public class NotificacionDispatcher {
+
+    private final NotificacionPendienteRepository repository;
+    private final JavaMailSender mailSender;
+    private final WhatsAppService whatsAppService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor emailExecutor;
+    private final ThreadPoolTaskExecutor whatsAppExecutor;
+
+    /**
+     * Resultado del envío a un destinatario en un canal.
+     */
+    public record ResultadoEnvio(Integer id, String canal, String destinatario,
+                                 String estado, String error, long duracionMs) {
+    }
+
+    @Value("${spring.mail.username:}")
+    private String emailRemitente;
+
+    @Value("${notificaciones.outbox.tamano-lote:50}")
+    private int tamanoLote;
+
+    @Value("${notificaciones.outbox.max-intentos:5}")
+    private int maxIntentos;
+
+    @Value("${notificaciones.outbox.backoff-inicial-segundos:30}")
+    private long backoffInicialSegundos;
+
+    // Un "ENVIANDO" más viejo que esto se considera abandonado (p. ej. por reinicio) y se reintenta
+    @Value("${notificaciones.outbox.timeout-envio-minutos:10}")
+    private long timeoutEnvioMinutos;
+
+    @Value("${notificaciones.envio.plazo-segundos:30}")
+    private long plazoSegundos;
+
+    // Correos enviados por cada conexión SMTP
+    @Value("${notificaciones.email.tamano-lote:20}")
+    private int tamanoLoteCorreo;
+
+    public NotificacionDispatcher(NotificacionPendienteRepository repository,
+                                  JavaMailSender mailSender,
+                                  WhatsAppService whatsAppService,
+                                  TransactionTemplate transactionTemplate,
+                                  @Qualifier("notificacionesEmailExecutor") ThreadPoolTaskExecutor emailExecutor,
+                                  @Qualifier("notificacionesWhatsAppExecutor") ThreadPoolTaskExecutor whatsAppExecutor) {
+        this.repository = repository;
+        this.mailSender = mailSender;
+        this.whatsAppService = whatsAppService;
+        this.transactionTemplate = transactionTemplate;
+        this.emailExecutor = emailExecutor;
+        this.whatsAppExecutor = whatsAppExecutor;
+    }
+
+    @Scheduled(fixedDelayString = "${notificaciones.outbox.intervalo-ms:5000}")
+    public void despacharPendientes() {
+        despachar();
+    }
+
+    /**
+     * Ejecuta una ronda de envío y retorna el resultado por destinatario.
+     */
+    public List<ResultadoEnvio> despachar() {
+        // No tomar más de lo que los pools pueden encolar
+        int capacidad = Math.min(emailExecutor.getThreadPoolExecutor().getQueue().remainingCapacity(),
+                                 whatsAppExecutor.getThreadPoolExecutor().getQueue().remainingCapacity());
+        int limite = Math.min(tamanoLote, capacidad);
+        if (limite <= 0) {
+            return List.of();
+        }
+
+        List<NotificacionPendiente> tomadas = transactionTemplate.execute(status -> reclamarLote(limite));
+        if (tomadas == null || tomadas.isEmpty()) {
+            return List.of();
+        }
+
+        List<ResultadoEnvio> resultados = enviarTodos(tomadas);
+        long enviados = resultados.stream().filter(r -> NotificacionPendiente.ESTADO_ENVIADO.equals(r.estado())).count();
+        System.out.println("📨 Ronda de notificaciones: " + enviados + "/" + resultados.size() + " enviadas");
+        return resultados;
+    }
+
+    /**
+     * Envía todas las notificaciones en paralelo (cada canal limitado por su pool)
+     * y espera como máximo el plazo configurado. Los correos van en lotes, cada
+     * lote por una sola conexión SMTP. Las que no terminan a tiempo siguen en
+     * curso y registran su resultado al terminar.
+     */
+    private List<ResultadoEnvio> enviarTodos(List<NotificacionPendiente> notificaciones) {
+        List<CompletableFuture<ResultadoEnvio>> envios = new ArrayList<>(notificaciones.size());
+        List<NotificacionPendiente> correos = new ArrayList<>();
+        List<Integer> posicionesCorreos = new ArrayList<>();
+
+        for (NotificacionPendiente notificacion : notificaciones) {
+            if (NotificacionPendiente.CANAL_EMAIL.equals(notificacion.getCanal())) {
+                posicionesCorreos.add(envios.size());
+                correos.add(notificacion);
+                envios.add(null);
+            } else {
+                envios.add(enviarAsync(whatsAppExecutor, List.of(notificacion)).thenApply(r -> r.get(0)));
+            }
+        }
+
+        for (int desde = 0; desde < correos.size(); desde += tamanoLoteCorreo) {
+            List<NotificacionPendiente> lote = correos.subList(desde, Math.min(desde + tamanoLoteCorreo, correos.size()));
+            CompletableFuture<List<ResultadoEnvio>> envioLote = enviarAsync(emailExecutor, lote);
+            for (int j = 0; j < lote.size(); j++) {
+                final int indice = j;
+                envios.set(posicionesCorreos.get(desde + j), envioLote.thenApply(r -> r.get(indice)));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(envios.toArray(new CompletableFuture[0])).get(plazoSegundos, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("⚠️ Plazo de envío de notificaciones excedido (" + plazoSegundos + "s)");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Cada envío maneja sus propios errores
+        }
+
+        List<ResultadoEnvio> resultados = new ArrayList<>(envios.size());
+        for (int i = 0; i < envios.size(); i++) {
+            NotificacionPendiente notificacion = notificaciones.get(i);
+            resultados.add(envios.get(i)
+                    .exceptionally(e -> resultado(notificacion, "ERROR", e.getMessage(), -1))
+                    .getNow(resultado(notificacion, "EN_CURSO", "Plazo excedido", -1)));
+        }
+        return resultados;
+    }
+
+    private CompletableFuture<List<ResultadoEnvio>> enviarAsync(ThreadPoolTaskExecutor executor,
+                                                                 List<NotificacionPendiente> lote) {
+        try {
+            return CompletableFuture.supplyAsync(() -> enviar(lote), executor);
+        } catch (Exception e) {
+            // Pool saturado: quedan ENVIANDO y se retoman tras el timeout
+            return CompletableFuture.completedFuture(lote.stream()
+                    .map(n -> resultado(n, "RECHAZADO", e.getMessage(), 0))
+                    .toList());
+        }
+    }
+
+    private List<NotificacionPendiente> reclamarLote(int limite) {
+        LocalDateTime ahora = LocalDateTime.now();
+        return repository.reclamarLote(ahora, ahora.minusMinutes(timeoutEnvioMinutos), limite);
+    }
+
+    /**
+     * Envía un lote de un mismo canal y registra el resultado de cada mensaje.
+     */
+    private List<ResultadoEnvio> enviar(List<NotificacionPendiente> lote) {
+        long inicio = System.currentTimeMillis();
+        Map<Integer, Exception> errores = new HashMap<>();
+
+        if (NotificacionPendiente.CANAL_EMAIL.equals(lote.get(0).getCanal())) {
+            errores.putAll(enviarCorreos(lote));
+        } else {
+            for (NotificacionPendiente notificacion : lote) {
+                try {
+                    enviarWhatsApp(notificacion);
+                } catch (Exception e) {
+                    errores.put(notificacion.getId(), e);
+                }
+            }
+        }
+        long duracion = System.currentTimeMillis() - inicio;
+
+        List<ResultadoEnvio> resultados = new ArrayList<>(lote.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            for (NotificacionPendiente notificacion : lote) {
+                Exception error = errores.get(notificacion.getId());
+                String estado = registrarResultado(notificacion.getId(), error);
+                if (error == null) {
+                    System.out.println("✓ " + notificacion.getCanal() + " enviado a: " + notificacion.getDestinatario());
+                } else {
+                    System.err.println("✗ Error enviando " + notificacion.getCanal() + " a " +
+                                       notificacion.getDestinatario() + ": " + error.getMessage());
+                }
+                resultados.add(resultado(notificacion, estado, error != null ? error.getMessage() : null, duracion));
+            }
+        });
+        return resultados;
+    }
+
+    /**
+     * Envía los correos por una sola conexión SMTP. Retorna los que fallaron.
+     */
+    private Map<Integer, Exception> enviarCorreos(List<NotificacionPendiente> lote) {
+        SimpleMailMessage[] mensajes = new SimpleMailMessage[lote.size()];
+        for (int i = 0; i < lote.size(); i++) {
+            NotificacionPendiente notificacion = lote.get(i);
+            SimpleMailMessage mensaje = new SimpleMailMessage();
+            mensaje.setTo(notificacion.getDestinatario());
+            mensaje.setSubject(notificacion.getAsunto());
+            mensaje.setText(notificacion.getCuerpo());
+            if (emailRemitente != null && !emailRemitente.isEmpty()) {
+                mensaje.setFrom(emailRemitente);
+            }
+            mensajes[i] = mensaje;
+        }
+
+        Map<Integer, Exception> errores = new HashMap<>();
+        try {
+            mailSender.send(mensajes);
+        } catch (MailSendException e) {
+            // Trae los mensajes fallidos; si no los trae, falló todo el lote
+            Map<Object, Exception> fallidos = e.getFailedMessages();
+            for (int i = 0; i < mensajes.length; i++) {
+                if (fallidos.isEmpty()) {
+                    errores.put(lote.get(i).getId(), e);
+                } else if (fallidos.containsKey(mensajes[i])) {
+                    errores.put(lote.get(i).getId(), fallidos.get(mensajes[i]));
+                }
+            }
+        } catch (Exception e) {
+            lote.forEach(n -> errores.put(n.getId(), e));
+        }
+        return errores;
+    }
+
+    private void enviarWhatsApp(NotificacionPendiente notificacion) {
+        if (!NotificacionPendiente.CANAL_WHATSAPP.equals(notificacion.getCanal())) {
+            throw new IllegalArgumentException("Canal desconocido: " + notificacion.getCanal());
+        }
+        if (!whatsAppService.estaDisponible()) {
+            throw new IllegalStateException("WhatsApp no disponible");
+        }
+        whatsAppService.enviarMensaje(notificacion.getDestinatario(), notificacion.getCuerpo());
+    }
+
+    private ResultadoEnvio resultado(NotificacionPendiente notificacion, String estado, String error, long duracionMs) {
+        return new ResultadoEnvio(notificacion.getId(), notificacion.getCanal(), notificacion.getDestinatario(),
+                                  estado, error, duracionMs);
+    }
+
+    /**
+     * Guarda el resultado del intento y retorna el nuevo estado de la notificación.
+     * Un rechazo del canal (límite de tasa o circuito abierto) no es un intento: se
+     * reprograma sin sumar, para que una caída larga del proveedor no agote los reintentos.
+     */
+    private String registrarResultado(Integer id, Exception error) {
+        return transactionTemplate.execute(status -> repository.findById(id).map(n -> {
+            if (error instanceof EnvioRechazadoException rechazo) {
+                n.setEstado(NotificacionPendiente.ESTADO_PENDIENTE);
+                n.setProximoIntento(LocalDateTime.now().plus(rechazo.getReintentarEnMs(), ChronoUnit.MILLIS));
+                n.setUltimoError(rechazo.getMessage());
+                repository.save(n);
+                return n.getEstado();
+            }
+            n.setIntentos(n.getIntentos() + 1);
+            if (error == null) {
+                n.setEstado(NotificacionPendiente.ESTADO_ENVIADO);
+                n.setFechaEnvio(LocalDateTime.now());
+                n.setUltimoError(null);
+            } else if (n.getIntentos() >= maxIntentos) {
+                n.setEstado(NotificacionPendiente.ESTADO_FALLIDO);
+                n.setUltimoError(error.getMessage());
+            } else {
+                // 30s, 60s, 120s, ... según el número de intentos
+                long espera = backoffInicialSegundos * (1L << Math.min(n.getIntentos() - 1, 16));
+                n.setEstado(NotificacionPendiente.ESTADO_PENDIENTE);
+                n.setProximoIntento(LocalDateTime.now().plusSeconds(espera));
+                n.setUltimoError(error.getMessage());
+            }
+            repository.save(n);
+            return n.getEstado();
+        }).orElse(null));
+    }
+
+    /**
+     * Conteo de mensajes por canal y estado: canal → estado → cantidad.
+     */
+    public Map<String, Map<String, Long>> resumen() {
+        Map<String, Map<String, Long>> resumen = new TreeMap<>();
+        for (Object[] fila : repository.contarPorCanalYEstado()) {
+            resumen.computeIfAbsent((String) fila[0], k -> new TreeMap<>())
+                    .put((String) fila[1], (Long) fila[2]);
+        }
+        return resumen;
+    }
+}
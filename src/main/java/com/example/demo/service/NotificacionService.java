@@ -2,19 +2,27 @@ package com.example.demo.service;
 
 import com.example.demo.entity.Alerta;
 import com.example.demo.entity.InstanciaReporte;
+import com.example.demo.entity.NotificacionPendiente;
 import com.example.demo.entity.NotificacionReporte;
+import com.example.demo.entity.Usuario;
+import com.example.demo.repository.NotificacionPendienteRepository;
 import com.example.demo.repository.NotificacionReporteRepository;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class NotificacionService {
 
-    private final JavaMailSender mailSender;
+    private final NotificacionPendienteRepository pendienteRepo;
     private final NotificacionReporteRepository notificacionRepo;
     private final WhatsAppService whatsAppService;
 
@@ -27,45 +35,101 @@ public class NotificacionService {
     @Value("${notificaciones.url.base:http://localhost:5173}")
     private String urlBase;
 
-    public NotificacionService(JavaMailSender mailSender,
+    public NotificacionService(NotificacionPendienteRepository pendienteRepo,
                               NotificacionReporteRepository notificacionRepo,
                               WhatsAppService whatsAppService) {
-        this.mailSender = mailSender;
+        this.pendienteRepo = pendienteRepo;
         this.notificacionRepo = notificacionRepo;
         this.whatsAppService = whatsAppService;
     }
 
     /**
-     * Envía notificación DUAL (Email + WhatsApp) cuando se genera una alerta
+     * Encola notificación DUAL (Email + WhatsApp) cuando se genera una alerta.
+     * Los mensajes se guardan en la transacción del llamador y los envía NotificacionDispatcher.
      */
     public void enviarNotificacionAlerta(Alerta alerta) {
-        // 1. Enviar por Email
+        String referencia = "instancia:" + alerta.getInstancia().getId();
+        String asunto = generarAsuntoAlerta(alerta);
+        String cuerpo = generarCuerpoAlerta(alerta);
+
+        // 1. Email
         if (emailHabilitado) {
-            enviarEmail(alerta);
+            encolarCorreo(alerta.getUsuarioDestino().getCorreo(), asunto, cuerpo, referencia);
         } else {
             System.out.println("ℹ️ Email deshabilitado - omitiendo envío de email");
         }
-        
-        // 2. Enviar por WhatsApp
+
+        // 2. WhatsApp
         if (whatsAppService.estaDisponible()) {
-            try {
-                whatsAppService.enviarNotificacionAlerta(alerta);
-            } catch (Exception e) {
-                System.err.println("⚠️ Error al enviar WhatsApp (continuando con email): " + e.getMessage());
+            encolarWhatsApp(alerta.getUsuarioDestino().getTelefono(),
+                            whatsAppService.generarMensajeAlerta(alerta), referencia);
+        }
+
+        // 3. Correos adicionales configurados para el reporte
+        if (emailHabilitado) {
+            List<NotificacionReporte> notificaciones = notificacionRepo
+                    .findByReporte(alerta.getInstancia().getReporte());
+            for (NotificacionReporte notif : notificaciones) {
+                encolar(NotificacionPendiente.CANAL_EMAIL, notif.getCorreo(), asunto, cuerpo, referencia);
             }
         }
-        
-        // 3. Enviar también a correos adicionales configurados
+
+        System.out.println("📨 Notificación encolada para: " + alerta.getUsuarioDestino().getNombreCompleto());
+    }
+
+    /**
+     * Encola un solo mensaje por destinatario y canal con todas las alertas de una
+     * corrida (modo resumen). Los correos adicionales del reporte también reciben
+     * un único resumen por dirección.
+     */
+    public void enviarResumenAlertas(List<Alerta> alertas) {
+        if (alertas.isEmpty()) {
+            return;
+        }
+        String referencia = "resumen:" + LocalDate.now();
+
+        Map<Integer, List<Alerta>> porUsuario = new LinkedHashMap<>();
+        for (Alerta alerta : alertas) {
+            porUsuario.computeIfAbsent(alerta.getUsuarioDestino().getId(), k -> new ArrayList<>()).add(alerta);
+        }
+
+        for (List<Alerta> grupo : porUsuario.values()) {
+            Usuario usuario = grupo.get(0).getUsuarioDestino();
+            if (emailHabilitado) {
+                encolarCorreo(usuario.getCorreo(), generarAsuntoResumen(grupo),
+                              generarCuerpoResumen(usuario.getNombreCompleto(), grupo), referencia);
+            }
+            if (whatsAppService.estaDisponible()) {
+                encolarWhatsApp(usuario.getTelefono(),
+                                whatsAppService.generarMensajeResumen(usuario.getNombreCompleto(), grupo), referencia);
+            }
+        }
+
         if (emailHabilitado) {
-            enviarCorreosAdicionales(alerta);
+            // Una línea por instancia y tipo, aunque la alerta se haya generado para varios usuarios
+            Map<String, List<NotificacionReporte>> adicionalesPorReporte = new HashMap<>();
+            Map<String, List<Alerta>> porCorreo = new LinkedHashMap<>();
+            Set<String> vistas = new HashSet<>();
+            for (Alerta alerta : alertas) {
+                if (!vistas.add(alerta.getInstancia().getId() + ":" + alerta.getTipo().getId())) {
+                    continue;
+                }
+                List<NotificacionReporte> adicionales = adicionalesPorReporte.computeIfAbsent(
+                        alerta.getInstancia().getReporte().getId(),
+                        k -> notificacionRepo.findByReporte(alerta.getInstancia().getReporte()));
+                for (NotificacionReporte notif : adicionales) {
+                    porCorreo.computeIfAbsent(notif.getCorreo(), k -> new ArrayList<>()).add(alerta);
+                }
+            }
+            porCorreo.forEach((correo, grupo) -> encolar(NotificacionPendiente.CANAL_EMAIL, correo,
+                    generarAsuntoResumen(grupo), generarCuerpoResumen(null, grupo), referencia));
         }
 
-        // 4. Log de la notificación (siempre se registra)
-        System.out.println("📨 Notificación procesada para: " + alerta.getUsuarioDestino().getNombreCompleto());
+        System.out.println("📨 Resumen de alertas encolado para " + porUsuario.size() + " usuarios");
     }
 
     /**
-     * Envía notificación DUAL cuando cambia el estado de una instancia
+     * Encola notificación DUAL cuando cambia el estado de una instancia
      */
     public void enviarNotificacionCambioEstado(InstanciaReporte instancia, String estadoAnterior) {
         String asunto = String.format(
@@ -96,107 +160,51 @@ public class NotificacionService {
             instancia.getId()
         );
 
-        // Notificar al responsable de elaboración
-        String emailResponsable = instancia.getReporte().getResponsableElaboracion().getCorreo();
-        String telefonoResponsable = instancia.getReporte().getResponsableElaboracion().getTelefono();
-        
-        if (emailHabilitado) {
-            enviarCorreo(emailResponsable, asunto, cuerpo);
-        }
-        
-        if (whatsAppService.estaDisponible() && telefonoResponsable != null) {
-            try {
-                whatsAppService.enviarCambioEstado(instancia, estadoAnterior, telefonoResponsable);
-            } catch (Exception e) {
-                System.err.println("⚠️ Error al enviar WhatsApp al responsable: " + e.getMessage());
-            }
-        }
+        String referencia = "instancia:" + instancia.getId();
+        String mensajeWhatsApp = whatsAppService.estaDisponible()
+                ? whatsAppService.generarMensajeCambioEstado(instancia, estadoAnterior)
+                : null;
 
-        // Notificar al supervisor
-        String emailSupervisor = instancia.getReporte().getResponsableSupervision().getCorreo();
-        String telefonoSupervisor = instancia.getReporte().getResponsableSupervision().getTelefono();
-        
-        if (emailHabilitado) {
-            enviarCorreo(emailSupervisor, asunto, cuerpo);
-        }
-        
-        if (whatsAppService.estaDisponible() && telefonoSupervisor != null) {
-            try {
-                whatsAppService.enviarCambioEstado(instancia, estadoAnterior, telefonoSupervisor);
-            } catch (Exception e) {
-                System.err.println("⚠️ Error al enviar WhatsApp al supervisor: " + e.getMessage());
+        // Responsable de elaboración y supervisor
+        for (Usuario usuario : List.of(instancia.getReporte().getResponsableElaboracion(),
+                                       instancia.getReporte().getResponsableSupervision())) {
+            if (emailHabilitado) {
+                encolarCorreo(usuario.getCorreo(), asunto, cuerpo, referencia);
+            }
+            if (mensajeWhatsApp != null) {
+                encolarWhatsApp(usuario.getTelefono(), mensajeWhatsApp, referencia);
             }
         }
 
-        System.out.println("📨 Notificación de cambio de estado procesada");
+        System.out.println("📨 Notificación de cambio de estado encolada");
     }
 
-    /**
-     * Envía email de alerta
-     */
-    private void enviarEmail(Alerta alerta) {
+    private void encolarCorreo(String destinatario, String asunto, String cuerpo, String referencia) {
         if (!emailHabilitado || emailRemitente == null || emailRemitente.isEmpty()) {
-            System.out.println("⚠️ Email no configurado - omitiendo envío");
+            System.out.println("⚠️ Email no configurado - omitiendo envío a " + destinatario);
             return;
         }
-
-        try {
-            SimpleMailMessage mensaje = new SimpleMailMessage();
-            mensaje.setTo(alerta.getUsuarioDestino().getCorreo());
-            mensaje.setSubject(generarAsuntoAlerta(alerta));
-            mensaje.setText(generarCuerpoAlerta(alerta));
-            mensaje.setFrom(emailRemitente);
-
-            mailSender.send(mensaje);
-            System.out.println("✓ Email enviado a: " + alerta.getUsuarioDestino().getCorreo());
-
-        } catch (Exception e) {
-            System.err.println("✗ Error al enviar email: " + e.getMessage());
-        }
+        encolar(NotificacionPendiente.CANAL_EMAIL, destinatario, asunto, cuerpo, referencia);
     }
 
-    private void enviarCorreosAdicionales(Alerta alerta) {
-        if (!emailHabilitado) return;
-
-        List<NotificacionReporte> notificaciones = notificacionRepo
-                .findByReporte(alerta.getInstancia().getReporte());
-
-        for (NotificacionReporte notif : notificaciones) {
-            try {
-                SimpleMailMessage mensaje = new SimpleMailMessage();
-                mensaje.setTo(notif.getCorreo());
-                mensaje.setSubject(generarAsuntoAlerta(alerta));
-                mensaje.setText(generarCuerpoAlerta(alerta));
-                if (emailRemitente != null && !emailRemitente.isEmpty()) {
-                    mensaje.setFrom(emailRemitente);
-                }
-
-                mailSender.send(mensaje);
-                System.out.println("✓ Correo adicional enviado a: " + notif.getCorreo());
-            } catch (Exception e) {
-                System.err.println("✗ Error al enviar correo adicional a " + notif.getCorreo());
-            }
+    private void encolarWhatsApp(String telefono, String mensaje, String referencia) {
+        if (telefono == null || telefono.isEmpty()) {
+            return;
         }
+        encolar(NotificacionPendiente.CANAL_WHATSAPP, telefono, null, mensaje, referencia);
     }
 
-    private void enviarCorreo(String destinatario, String asunto, String cuerpo) {
-        if (!emailHabilitado || emailRemitente == null || emailRemitente.isEmpty()) {
-            System.out.println("⚠️ Email no configurado - omitiendo envío a " + destinatario);
+    private void encolar(String canal, String destinatario, String asunto, String cuerpo, String referencia) {
+        if (destinatario == null || destinatario.isEmpty()) {
             return;
         }
-
-        try {
-            SimpleMailMessage mensaje = new SimpleMailMessage();
-            mensaje.setTo(destinatario);
-            mensaje.setSubject(asunto);
-            mensaje.setText(cuerpo);
-            mensaje.setFrom(emailRemitente);
-
-            mailSender.send(mensaje);
-            System.out.println("✓ Correo enviado a: " + destinatario);
-        } catch (Exception e) {
-            System.err.println("✗ Error al enviar correo a " + destinatario + ": " + e.getMessage());
-        }
+        NotificacionPendiente notificacion = new NotificacionPendiente();
+        notificacion.setCanal(canal);
+        notificacion.setDestinatario(destinatario);
+        notificacion.setAsunto(asunto);
+        notificacion.setCuerpo(cuerpo);
+        notificacion.setReferencia(referencia);
+        pendienteRepo.save(notificacion);
     }
 
     private String generarAsuntoAlerta(Alerta alerta) {
@@ -239,6 +247,40 @@ public class NotificacionService {
         );
     }
 
+    private String generarAsuntoResumen(List<Alerta> alertas) {
+        return String.format("📋 Resumen de alertas: %d reportes requieren atención", alertas.size());
+    }
+
+    private String generarCuerpoResumen(String nombre, List<Alerta> alertas) {
+        StringBuilder cuerpo = new StringBuilder();
+        cuerpo.append(nombre != null ? "Hola " + nombre + ",\n\n" : "Hola,\n\n");
+        cuerpo.append("Estos reportes requieren atención:\n\n");
+
+        for (Alerta alerta : alertas) {
+            InstanciaReporte instancia = alerta.getInstancia();
+            cuerpo.append(String.format(
+                "%s %s\n" +
+                "   📋 %s - %s\n" +
+                "   📅 Período: %s | ⏰ Fecha Límite: %s | 📊 Estado: %s\n" +
+                "   %s/reportes/%s\n\n",
+                obtenerEmojiPorTipo(alerta.getTipo().getNombre()),
+                alerta.getTipo().getNombre(),
+                instancia.getReporte().getNombre(),
+                instancia.getReporte().getEntidad().getRazonSocial(),
+                instancia.getPeriodoReportado(),
+                instancia.getFechaVencimientoCalculada(),
+                instancia.getEstado().getNombre(),
+                urlBase,
+                instancia.getId()
+            ));
+        }
+
+        cuerpo.append("---\n" +
+                      "Sistema de Seguimiento de Reportes - Llanogas\n" +
+                      "Este es un mensaje automático, por favor no responder.");
+        return cuerpo.toString();
+    }
+
     private String obtenerEmojiPorTipo(String tipoNombre) {
         if (tipoNombre.contains("Crítica") || tipoNombre.contains("Vencido")) {
             return "🔴";
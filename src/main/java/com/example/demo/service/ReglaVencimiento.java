@@ -0,0 +1,394 @@
+package com.example.demo.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Regla de vencimiento compilada de un reporte (frecuencia, día, mes y plazo adicional).
+ * Es la única fuente de periodos y fechas de vencimiento: genera las instancias y
+ * resuelve la fecha de un periodo ya existente con aritmética entera, sin split,
+ * expresiones regulares ni excepciones. Inmutable; se comparte entre hilos.
+ *
+ * Con un calendario laboral el plazo adicional se cuenta en días hábiles y un
+ * vencimiento que cae en día no hábil se corre al siguiente hábil.
+ *
+ * Periodos generados (el del mes en que vence):
+ * MENSUAL 2025-03, BIMESTRAL 2025-B2, TRIMESTRAL 2025-T1, CUATRIMESTRAL 2025-C3, SEMESTRAL 2025-S2,
+ * ANUAL 2025, SEMANAL 2025-W07, DIARIA 2025-03-14, ÚNICA VEZ UNICO-2025.
+ * Al leer también acepta 2025-Q1 (= T1) y fechas ISO para semanal, diaria y única.
+ *
+ * Un periodo digitado al crear una instancia a mano es el periodo que se reporta y
+ * vence después de cerrado (fechaVencimientoReportado): MENSUAL 2025-03 vence en
+ * abril, 2025-Q1 en abril y ANUAL 2025 en el mes configurado (marzo si no hay) de 2026.
+ */
+public final class ReglaVencimiento {
+
+    private enum Tipo { POR_MESES, SEMANAL, DIARIA, UNICA }
+
+    private static final int DIA_POR_DEFECTO = 15;
+    private static final int MES_POR_DEFECTO = 1;
+    // Mes del año siguiente en que vence un periodo anual digitado a mano
+    private static final int MES_ANUAL_REPORTADO_POR_DEFECTO = 3;
+
+    private final String frecuencia;
+    private final Integer diaConfigurado;
+    private final Integer mesConfigurado;
+    private final int plazoDias;
+    // null = plazo en días calendario
+    private final CalendarioLaboral calendario;
+
+    private final Tipo tipo;
+    // Meses por periodo (1, 2, 3, 4, 6 o 12) y letra del periodo en la clave
+    private final int meses;
+    private final char letra;
+    // Mes del periodo en que vence (0 = primero)
+    private final int desfaseMes;
+    private final int dia;
+    private final int mes;
+    private final DayOfWeek diaSemana;
+
+    private ReglaVencimiento(String frecuencia, Integer dia, Integer mes, Integer plazoAdicionalDias,
+                             CalendarioLaboral calendario) {
+        this.frecuencia = frecuencia;
+        this.calendario = calendario;
+        this.diaConfigurado = dia;
+        this.mesConfigurado = mes;
+        this.plazoDias = plazoAdicionalDias != null && plazoAdicionalDias > 0 ? plazoAdicionalDias : 0;
+        this.dia = dia != null && dia >= 1 ? Math.min(dia, 31) : DIA_POR_DEFECTO;
+        this.mes = mes != null && mes >= 1 ? Math.min(mes, 12) : MES_POR_DEFECTO;
+
+        switch (frecuencia) {
+            case "BIMESTRAL" -> { tipo = Tipo.POR_MESES; meses = 2; letra = 'B'; }
+            case "TRIMESTRAL" -> { tipo = Tipo.POR_MESES; meses = 3; letra = 'T'; }
+            case "CUATRIMESTRAL" -> { tipo = Tipo.POR_MESES; meses = 4; letra = 'C'; }
+            case "SEMESTRAL" -> { tipo = Tipo.POR_MESES; meses = 6; letra = 'S'; }
+            case "ANUAL" -> { tipo = Tipo.POR_MESES; meses = 12; letra = 0; }
+            case "SEMANAL" -> { tipo = Tipo.SEMANAL; meses = 0; letra = 0; }
+            case "DIARIA" -> { tipo = Tipo.DIARIA; meses = 0; letra = 0; }
+            case "ÚNICA VEZ", "UNICA VEZ", "ESPECIFICA", "ESPECÍFICA" -> { tipo = Tipo.UNICA; meses = 0; letra = 0; }
+            // MENSUAL y frecuencias no reconocidas
+            default -> { tipo = Tipo.POR_MESES; meses = 1; letra = 0; }
+        }
+        // El mes configurado es el mes dentro del periodo (1 = primero); mensual no lo usa
+        this.desfaseMes = meses > 1 ? Math.min(this.mes, meses) - 1 : 0;
+        // Semanal: el día configurado es el día de la semana (1 = lunes); fuera de rango, viernes
+        this.diaSemana = dia != null && dia >= 1 && dia <= 7 ? DayOfWeek.of(dia) : DayOfWeek.FRIDAY;
+    }
+
+    public static ReglaVencimiento compilar(String frecuencia, Integer dia, Integer mes, Integer plazoAdicionalDias) {
+        return compilar(frecuencia, dia, mes, plazoAdicionalDias, null);
+    }
+
+    /**
+     * Regla cuyo plazo se cuenta en días hábiles del calendario (en días calendario si es null).
+     */
+    public static ReglaVencimiento compilar(String frecuencia, Integer dia, Integer mes, Integer plazoAdicionalDias,
+                                            CalendarioLaboral calendario) {
+        return new ReglaVencimiento(frecuencia == null ? "" : frecuencia.toUpperCase(), dia, mes, plazoAdicionalDias,
+                calendario);
+    }
+
+    /**
+     * true si la regla se compiló con estos mismos parámetros.
+     */
+    public boolean coincide(String frecuencia, Integer dia, Integer mes, Integer plazoAdicionalDias,
+                            CalendarioLaboral calendario) {
+        int plazo = plazoAdicionalDias != null && plazoAdicionalDias > 0 ? plazoAdicionalDias : 0;
+        return plazo == plazoDias
+                && this.calendario == calendario
+                && Objects.equals(dia, diaConfigurado)
+                && Objects.equals(mes, mesConfigurado)
+                && frecuencia != null && this.frecuencia.equalsIgnoreCase(frecuencia);
+    }
+
+    /**
+     * Identifica el calendario que produce la regla: si cambia, cambian las fechas.
+     * En días hábiles incluye la huella de los festivos registrados.
+     */
+    public String firma() {
+        String firma = frecuencia + "|" + diaConfigurado + "|" + mesConfigurado;
+        if (plazoDias > 0) {
+            firma += "|+" + plazoDias;
+        }
+        return calendario == null ? firma : firma + "|H" + Integer.toHexString(calendario.huella());
+    }
+
+    public CalendarioLaboral getCalendario() {
+        return calendario;
+    }
+
+    /**
+     * Periodos con vencimiento base entre inicio y fin (ambos incluidos), en orden,
+     * con su fecha de vencimiento ya sumado el plazo adicional.
+     */
+    public Map<String, LocalDate> vencimientosEntre(LocalDate inicio, LocalDate fin) {
+        Map<String, LocalDate> vencimientos = new LinkedHashMap<>();
+        if (inicio.isAfter(fin)) {
+            return vencimientos;
+        }
+        switch (tipo) {
+            case POR_MESES -> {
+                int desde = indiceMes(inicio.getYear(), inicio.getMonthValue()) / meses;
+                int hasta = indiceMes(fin.getYear(), fin.getMonthValue()) / meses;
+                for (int periodo = desde; periodo <= hasta; periodo++) {
+                    LocalDate base = vencimientoDelPeriodo(periodo);
+                    if (!base.isBefore(inicio) && !base.isAfter(fin)) {
+                        vencimientos.put(periodo(base), conPlazo(base));
+                    }
+                }
+            }
+            case SEMANAL -> {
+                int hastaDiaSemana = diaSemana.getValue() - inicio.getDayOfWeek().getValue();
+                LocalDate base = inicio.plusDays(hastaDiaSemana >= 0 ? hastaDiaSemana : hastaDiaSemana + 7);
+                for (; !base.isAfter(fin); base = base.plusWeeks(1)) {
+                    vencimientos.put(periodo(base), conPlazo(base));
+                }
+            }
+            case DIARIA -> {
+                for (LocalDate base = inicio; !base.isAfter(fin); base = base.plusDays(1)) {
+                    vencimientos.put(periodo(base), conPlazo(base));
+                }
+            }
+            case UNICA -> {
+                LocalDate base = fechaAjustada(inicio.getYear(), mes, dia);
+                if (!base.isBefore(inicio) && !base.isAfter(fin)) {
+                    vencimientos.put(periodo(base), conPlazo(base));
+                }
+            }
+        }
+        return vencimientos;
+    }
+
+    /**
+     * Clave del periodo al que pertenece un vencimiento base (sin plazo adicional).
+     */
+    public String periodo(LocalDate fechaBase) {
+        int year = fechaBase.getYear();
+        int month = fechaBase.getMonthValue();
+        StringBuilder sb = new StringBuilder(10);
+        switch (tipo) {
+            case POR_MESES -> {
+                sb.append(year);
+                if (meses == 1) {
+                    dosDigitos(sb.append('-'), month);
+                } else if (meses < 12) {
+                    sb.append('-').append(letra).append((month - 1) / meses + 1);
+                }
+            }
+            case SEMANAL -> dosDigitos(sb.append(year).append("-W"), fechaBase.getDayOfYear() / 7 + 1);
+            case DIARIA -> dosDigitos(dosDigitos(sb.append(year).append('-'), month).append('-'), fechaBase.getDayOfMonth());
+            case UNICA -> sb.append("UNICO-").append(year);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Fecha de vencimiento (con plazo adicional) de un periodo, o null si la clave no se reconoce.
+     */
+    public LocalDate fechaVencimiento(String periodo) {
+        LocalDate base = vencimientoBase(periodo);
+        return base == null ? null : conPlazo(base);
+    }
+
+    /**
+     * Fecha de vencimiento (con plazo adicional) de un periodo reportado a mano, o null
+     * si la clave no corresponde a la frecuencia. El periodo es el que se informa:
+     * vence el día configurado del mes siguiente a su cierre (anual: en el mes
+     * configurado del año siguiente); semanal, el día de la semana configurado de la
+     * semana siguiente; diaria, al día siguiente; única vez, en la fecha indicada.
+     */
+    public LocalDate fechaVencimientoReportado(String periodo) {
+        LocalDate base = vencimientoReportadoBase(periodo);
+        return base == null ? null : conPlazo(base);
+    }
+
+    private LocalDate vencimientoReportadoBase(String p) {
+        if (p == null) {
+            return null;
+        }
+        int largo = p.length();
+        if (tipo != Tipo.POR_MESES) {
+            if (largo != 10 || p.charAt(4) != '-' || p.charAt(7) != '-') {
+                // Única vez también acepta la clave generada UNICO-2025
+                return tipo == Tipo.UNICA ? vencimientoBase(p) : null;
+            }
+            int y = numero(p, 0, 4), m = numero(p, 5, 7), d = numero(p, 8, 10);
+            if (y < 0 || m < 1 || m > 12 || d < 1 || d > largoMes(y, m)) {
+                return null;
+            }
+            LocalDate fecha = LocalDate.of(y, m, d);
+            return switch (tipo) {
+                case SEMANAL -> {
+                    LocalDate siguiente = fecha.plusDays(7);
+                    int hasta = diaSemana.getValue() - siguiente.getDayOfWeek().getValue();
+                    yield siguiente.plusDays(hasta >= 0 ? hasta : hasta + 7);
+                }
+                case DIARIA -> fecha.plusDays(1);
+                default -> fecha;
+            };
+        }
+
+        int y = largo >= 4 ? numero(p, 0, 4) : -1;
+        if (y < 0) {
+            return null;
+        }
+        if (meses == 12) {
+            if (largo != 4) {
+                return null;
+            }
+            int mesAnual = mesConfigurado != null && mesConfigurado >= 1
+                    ? Math.min(mesConfigurado, 12) : MES_ANUAL_REPORTADO_POR_DEFECTO;
+            return fechaAjustada(y + 1, mesAnual, dia);
+        }
+
+        // Primer mes del periodo; la clave debe ser de la misma frecuencia de la regla
+        int month;
+        if (largo == 7 && p.charAt(4) == '-' && meses == 1) {
+            month = numero(p, 5, 7);
+        } else if (largo == 7 && p.charAt(4) == '-' && meses > 1
+                && (p.charAt(5) == letra || (letra == 'T' && p.charAt(5) == 'Q'))) {
+            int k = numero(p, 6, 7);
+            month = k >= 1 && k <= 12 / meses ? (k - 1) * meses + 1 : -1;
+        } else {
+            return null;
+        }
+        if (month < 1 || month > 12) {
+            return null;
+        }
+        // Mes siguiente al último del periodo
+        int indice = indiceMes(y, month) + meses;
+        return fechaAjustada(indice / 12, indice % 12 + 1, dia);
+    }
+
+    private LocalDate vencimientoBase(String p) {
+        if (p == null) {
+            return null;
+        }
+        int largo = p.length();
+
+        // Fecha ISO: semanal, diaria y única vez de versiones anteriores
+        if (largo == 10 && p.charAt(4) == '-' && p.charAt(7) == '-' && tipo != Tipo.POR_MESES) {
+            int y = numero(p, 0, 4), m = numero(p, 5, 7), d = numero(p, 8, 10);
+            if (y < 0 || m < 1 || m > 12 || d < 1 || d > largoMes(y, m)) {
+                return null;
+            }
+            LocalDate fecha = LocalDate.of(y, m, d);
+            if (tipo == Tipo.SEMANAL) {
+                int hasta = diaSemana.getValue() - fecha.getDayOfWeek().getValue();
+                return fecha.plusDays(hasta >= 0 ? hasta : hasta + 7);
+            }
+            return fecha;
+        }
+
+        if (largo == 10 && p.startsWith("UNICO-")) {
+            int y = numero(p, 6, 10);
+            return y < 0 ? null : fechaAjustada(y, mes, dia);
+        }
+
+        int y = largo >= 4 ? numero(p, 0, 4) : -1;
+        if (y < 0) {
+            return null;
+        }
+
+        if (tipo == Tipo.SEMANAL && largo == 8 && p.charAt(4) == '-' && p.charAt(5) == 'W') {
+            int semana = numero(p, 6, 8);
+            return semana < 1 ? null : diaDeSemana(y, semana);
+        }
+
+        // Primer mes que cubre la clave: 2025, 2025-03, 2025-B2, 2025-T1/Q1, 2025-S2
+        int month;
+        if (largo == 4) {
+            month = 1;
+        } else if (largo == 7 && p.charAt(4) == '-' && Character.isDigit(p.charAt(5))) {
+            month = numero(p, 5, 7);
+        } else if (largo == 7 && p.charAt(4) == '-') {
+            int k = numero(p, 6, 7);
+            month = switch (p.charAt(5)) {
+                case 'B' -> k >= 1 && k <= 6 ? (k - 1) * 2 + 1 : -1;
+                case 'T', 'Q' -> k >= 1 && k <= 4 ? (k - 1) * 3 + 1 : -1;
+                case 'C' -> k >= 1 && k <= 3 ? (k - 1) * 4 + 1 : -1;
+                case 'S' -> k >= 1 && k <= 2 ? (k - 1) * 6 + 1 : -1;
+                default -> -1;
+            };
+        } else {
+            return null;
+        }
+        if (month < 1 || month > 12) {
+            return null;
+        }
+
+        if (tipo == Tipo.POR_MESES) {
+            return vencimientoDelPeriodo(indiceMes(y, month) / meses);
+        }
+        // Una clave mensual/trimestral con una regla diaria o única: su primer día
+        return tipo == Tipo.UNICA ? fechaAjustada(y, mes, dia) : LocalDate.of(y, month, 1);
+    }
+
+    /**
+     * Fecha del día de la semana configurado dentro de la semana "W" (días del año
+     * 7(w-1) a 7w-1, como se numeraron siempre los periodos semanales).
+     */
+    private LocalDate diaDeSemana(int year, int semana) {
+        int diasYear = Year.isLeap(year) ? 366 : 365;
+        int desde = Math.max(1, 7 * (semana - 1));
+        int hasta = Math.min(diasYear, 7 * semana - 1);
+        if (desde > hasta) {
+            return null;
+        }
+        LocalDate primero = LocalDate.ofYearDay(year, desde);
+        int salto = diaSemana.getValue() - primero.getDayOfWeek().getValue();
+        salto = salto >= 0 ? salto : salto + 7;
+        return desde + salto <= hasta ? primero.plusDays(salto) : primero;
+    }
+
+    private LocalDate vencimientoDelPeriodo(int periodo) {
+        int indice = periodo * meses + desfaseMes;
+        return fechaAjustada(indice / 12, indice % 12 + 1, dia);
+    }
+
+    private LocalDate fechaAjustada(int year, int month, int day) {
+        return LocalDate.of(year, month, Math.min(day, largoMes(year, month)));
+    }
+
+    private LocalDate conPlazo(LocalDate base) {
+        if (calendario != null) {
+            return calendario.sumarDiasHabiles(base, plazoDias);
+        }
+        return plazoDias > 0 ? base.plusDays(plazoDias) : base;
+    }
+
+    private static int indiceMes(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    private static int largoMes(int year, int month) {
+        return Month.of(month).length(Year.isLeap(year));
+    }
+
+    /**
+     * Entero de los dígitos en [desde, hasta), o -1 si hay algo que no es dígito.
+     */
+    private static int numero(String s, int desde, int hasta) {
+        if (hasta > s.length() || desde >= hasta) {
+            return -1;
+        }
+        int n = 0;
+        for (int i = desde; i < hasta; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    private static StringBuilder dosDigitos(StringBuilder sb, int n) {
+        return (n < 10 ? sb.append('0') : sb).append(n);
+    }
+}
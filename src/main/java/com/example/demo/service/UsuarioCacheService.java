@@ -0,0 +1,83 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Usuario;
+import com.example.demo.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Caché acotada (LRU con TTL) de usuarios por correo, usada en cada petición
+ * autenticada. Se invalida explícitamente cuando un usuario o un rol cambia.
+ * Retorna copias para que ningún llamador modifique la instancia compartida.
+ */
+@Service
+public class UsuarioCacheService {
+
+    private record Entrada(Usuario usuario, long expira) {
+    }
+
+    private final UsuarioRepository usuarioRepository;
+    private final long ttlMs;
+    private final Map<String, Entrada> entradas;
+
+    public UsuarioCacheService(UsuarioRepository usuarioRepository,
+                               @Value("${usuarios.cache.ttl-segundos:300}") long ttlSegundos,
+                               @Value("${usuarios.cache.maximo:1000}") int maximo) {
+        this.usuarioRepository = usuarioRepository;
+        this.ttlMs = ttlSegundos * 1000;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > maximo;
+            }
+        };
+    }
+
+    public Optional<Usuario> buscarPorCorreo(String correo) {
+        if (correo == null) {
+            return Optional.empty();
+        }
+        String clave = correo.toLowerCase();
+        long ahora = System.currentTimeMillis();
+
+        synchronized (entradas) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada != null && entrada.expira() > ahora) {
+                return Optional.of(copiar(entrada.usuario()));
+            }
+        }
+
+        Optional<Usuario> usuario = usuarioRepository.findByCorreo(correo);
+        usuario.ifPresent(u -> {
+            synchronized (entradas) {
+                entradas.put(clave, new Entrada(copiar(u), ahora + ttlMs));
+            }
+        });
+        return usuario;
+    }
+
+    public void invalidar(String correo) {
+        if (correo == null) {
+            return;
+        }
+        synchronized (entradas) {
+            entradas.remove(correo.toLowerCase());
+        }
+    }
+
+    public void invalidarTodo() {
+        synchronized (entradas) {
+            entradas.clear();
+        }
+    }
+
+    private Usuario copiar(Usuario u) {
+        return new Usuario(u.getId(), u.getCedula(), u.getNombreCompleto(), u.getCorreo(), u.getContrasena(),
+                u.getProceso(), u.getCargo(), u.getTelefono(), u.getRol(), u.isActivo(),
+                u.getFechaCreacion(), u.getFechaActualizacion());
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.service;
+
+/**
+ * Envío de un mensaje de WhatsApp al proveedor. WhatsAppService aplica encima
+ * el límite de tasa y el circuit breaker. Con twilio.whatsapp.simulado=true se
+ * usa WhatsAppClienteSimulado en lugar de Twilio.
+ */
+public interface WhatsAppCliente {
+
+    /**
+     * Envía el mensaje y retorna el identificador asignado por el proveedor.
+     * Lanza excepción si el proveedor rechaza o no responde.
+     */
+    String enviar(String telefonoDestino, String mensaje);
+
+    /**
+     * Cliente de pruebas: no necesita credenciales de Twilio.
+     */
+    default boolean esSimulado() {
+        return false;
+    }
+}
@@ -2,15 +2,23 @@ package com.example.demo.service;
 
 import com.example.demo.entity.Alerta;
 import com.example.demo.entity.InstanciaReporte;
+import com.example.demo.exception.EnvioRechazadoException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class WhatsAppService {
 
+    // Longitud máxima del cuerpo de un mensaje de WhatsApp en Twilio
+    private static final int LIMITE_MENSAJE = 1600;
+
     @Value("${twilio.account.sid:}")
     private String accountSid;
 
@@ -23,11 +31,47 @@ public class WhatsAppService {
     @Value("${notificaciones.whatsapp.habilitado:false}")
     private boolean whatsappHabilitado;
 
+    // Límite de envío por número de Twilio
+    @Value("${twilio.whatsapp.tasa-por-segundo:10}")
+    private double tasaPorSegundo;
+
+    @Value("${twilio.whatsapp.rafaga:10}")
+    private int rafaga;
+
+    @Value("${twilio.whatsapp.espera-maxima-ms:2000}")
+    private long esperaMaximaMs;
+
+    // Circuit breaker
+    @Value("${twilio.whatsapp.circuito.umbral-fallos:5}")
+    private int umbralFallos;
+
+    @Value("${twilio.whatsapp.circuito.tiempo-abierto-segundos:60}")
+    private long tiempoAbiertoSegundos;
+
+    private final WhatsAppCliente cliente;
+
     private boolean inicializado = false;
+    private LimitadorTasa limitador;
+    private InterruptorCircuito circuito;
+
+    private final AtomicLong enviados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+    private final AtomicLong rechazadosPorTasa = new AtomicLong();
+    private final AtomicLong rechazadosPorCircuito = new AtomicLong();
+
+    public WhatsAppService(WhatsAppCliente cliente) {
+        this.cliente = cliente;
+    }
 
     @PostConstruct
     public void init() {
-        if (estaConfigurado()) {
+        limitador = new LimitadorTasa(tasaPorSegundo, rafaga);
+        circuito = new InterruptorCircuito(umbralFallos, tiempoAbiertoSegundos * 1000);
+
+        if (cliente.esSimulado()) {
+            inicializado = true;
+            System.out.println("ℹ️ WhatsApp en modo simulado - los mensajes no salen a Twilio");
+        } else if (estaConfigurado()) {
             try {
                 com.twilio.Twilio.init(accountSid, authToken);
                 inicializado = true;
@@ -68,7 +112,7 @@ public class WhatsAppService {
         }
 
         try {
-            String mensaje = generarMensajeWhatsApp(alerta);
+            String mensaje = generarMensajeAlerta(alerta);
             enviarMensaje(telefono, mensaje);
             
             System.out.println("✓ WhatsApp enviado a: " + telefono);
@@ -86,23 +130,7 @@ public class WhatsAppService {
         }
 
         try {
-            String mensaje = String.format(
-                "🔔 *Cambio de Estado - Llanogas*\n\n" +
-                "📋 Reporte: %s\n" +
-                "🏢 Entidad: %s\n" +
-                "📅 Período: %s\n" +
-                "⏰ Fecha Límite: %s\n\n" +
-                "Estado: %s → %s\n\n" +
-                "Accede al sistema para más detalles.",
-                instancia.getReporte().getNombre(),
-                instancia.getReporte().getEntidad().getRazonSocial(),
-                instancia.getPeriodoReportado(),
-                instancia.getFechaVencimientoCalculada(),
-                estadoAnterior,
-                instancia.getEstado().getNombre()
-            );
-
-            enviarMensaje(telefono, mensaje);
+            enviarMensaje(telefono, generarMensajeCambioEstado(instancia, estadoAnterior));
             System.out.println("✓ WhatsApp cambio estado enviado a: " + telefono);
         } catch (Exception e) {
             System.err.println("✗ Error al enviar WhatsApp: " + e.getMessage());
@@ -110,7 +138,9 @@ public class WhatsAppService {
     }
 
     /**
-     * Envía un mensaje de WhatsApp genérico
+     * Envía un mensaje de WhatsApp genérico.
+     * Respeta el límite de tasa del número y no llama a Twilio mientras el circuito esté abierto;
+     * en ambos casos lanza EnvioRechazadoException.
      */
     public void enviarMensaje(String telefonoDestino, String mensaje) {
         if (!estaDisponible()) {
@@ -118,28 +148,81 @@ public class WhatsAppService {
             return;
         }
 
+        // Primero el circuito: abierto, rechaza al instante sin esperar ni gastar tokens
+        if (!circuito.permitir()) {
+            rechazadosPorCircuito.incrementAndGet();
+            throw new EnvioRechazadoException("WhatsApp suspendido temporalmente por fallos consecutivos de Twilio",
+                    Math.max(1000, circuito.msHastaPrueba()));
+        }
+
+        try {
+            if (!limitador.adquirir(esperaMaximaMs)) {
+                circuito.cancelarPrueba();
+                rechazadosPorTasa.incrementAndGet();
+                throw new EnvioRechazadoException("Límite de envío de WhatsApp alcanzado", Math.max(1000, esperaMaximaMs));
+            }
+        } catch (InterruptedException e) {
+            circuito.cancelarPrueba();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Envío de WhatsApp interrumpido", e);
+        }
+
         try {
             // Asegurar formato correcto del teléfono
             String telefonoFormateado = formatearTelefono(telefonoDestino);
-            
-            com.twilio.rest.api.v2010.account.Message message = 
-                com.twilio.rest.api.v2010.account.Message.creator(
-                    new com.twilio.type.PhoneNumber("whatsapp:" + telefonoFormateado),
-                    new com.twilio.type.PhoneNumber(twilioWhatsAppNumber),
-                    mensaje
-                ).create();
-
-            System.out.println("✓ Mensaje WhatsApp enviado. SID: " + message.getSid());
+            String sid = cliente.enviar(telefonoFormateado, mensaje);
+
+            circuito.registrarExito();
+            enviados.incrementAndGet();
+            System.out.println("✓ Mensaje WhatsApp enviado. SID: " + sid);
         } catch (Exception e) {
+            circuito.registrarFallo();
+            fallidos.incrementAndGet();
             System.err.println("✗ Error enviando WhatsApp: " + e.getMessage());
             throw new RuntimeException("Error al enviar WhatsApp", e);
         }
     }
 
+    /**
+     * Métricas del canal: envíos, fallos, rechazos y estado del circuito.
+     */
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("enviados", enviados.get());
+        metricas.put("fallidos", fallidos.get());
+        metricas.put("rechazadosPorTasa", rechazadosPorTasa.get());
+        metricas.put("rechazadosPorCircuito", rechazadosPorCircuito.get());
+        metricas.put("estadoCircuito", circuito.getEstado().name());
+        metricas.put("fallosConsecutivos", circuito.getFallosConsecutivos());
+        metricas.put("tokensDisponibles", Math.floor(limitador.tokensDisponibles()));
+        return metricas;
+    }
+
+    /**
+     * Genera el mensaje de WhatsApp para un cambio de estado
+     */
+    public String generarMensajeCambioEstado(InstanciaReporte instancia, String estadoAnterior) {
+        return String.format(
+            "🔔 *Cambio de Estado - Llanogas*\n\n" +
+            "📋 Reporte: %s\n" +
+            "🏢 Entidad: %s\n" +
+            "📅 Período: %s\n" +
+            "⏰ Fecha Límite: %s\n\n" +
+            "Estado: %s → %s\n\n" +
+            "Accede al sistema para más detalles.",
+            instancia.getReporte().getNombre(),
+            instancia.getReporte().getEntidad().getRazonSocial(),
+            instancia.getPeriodoReportado(),
+            instancia.getFechaVencimientoCalculada(),
+            estadoAnterior,
+            instancia.getEstado().getNombre()
+        );
+    }
+
     /**
      * Genera el mensaje de WhatsApp para una alerta
      */
-    private String generarMensajeWhatsApp(Alerta alerta) {
+    public String generarMensajeAlerta(Alerta alerta) {
         InstanciaReporte instancia = alerta.getInstancia();
         String emoji = obtenerEmojiPorTipo(alerta.getTipo().getNombre());
         
@@ -165,6 +248,33 @@ public class WhatsAppService {
         );
     }
 
+    /**
+     * Genera un solo mensaje de WhatsApp con varias alertas. Twilio limita el cuerpo
+     * a 1600 caracteres, así que se listan las primeras y se indica cuántas faltan.
+     */
+    public String generarMensajeResumen(String nombre, List<Alerta> alertas) {
+        StringBuilder mensaje = new StringBuilder();
+        mensaje.append("📋 *Resumen de alertas - Llanogas*\n\n")
+               .append("Hola ").append(nombre).append(",\n")
+               .append("Tienes ").append(alertas.size()).append(" reportes que requieren atención:\n\n");
+
+        String cierre = "\n_Mensaje automático del Sistema de Seguimiento de Reportes_";
+        for (int i = 0; i < alertas.size(); i++) {
+            Alerta alerta = alertas.get(i);
+            String linea = String.format("%s %s (%s) - vence %s\n",
+                    obtenerEmojiPorTipo(alerta.getTipo().getNombre()),
+                    alerta.getInstancia().getReporte().getNombre(),
+                    alerta.getInstancia().getPeriodoReportado(),
+                    alerta.getInstancia().getFechaVencimientoCalculada());
+            if (mensaje.length() + linea.length() + cierre.length() + 40 > LIMITE_MENSAJE) {
+                mensaje.append("… y ").append(alertas.size() - i).append(" más. Revisa el sistema.\n");
+                break;
+            }
+            mensaje.append(linea);
+        }
+        return mensaje.append(cierre).toString();
+    }
+
     private String obtenerMensajeResumido(Alerta alerta) {
         String tipoNombre = alerta.getTipo().getNombre().toUpperCase();
         LocalDate fechaVencimiento = alerta.getInstancia().getFechaVencimientoCalculada();
@@ -228,6 +338,6 @@ public class WhatsAppService {
      * Verifica si el servicio de WhatsApp está disponible
      */
     public boolean estaDisponible() {
-        return whatsappHabilitado && inicializado && estaConfigurado();
+        return whatsappHabilitado && inicializado && (cliente.esSimulado() || estaConfigurado());
     }
 }
@@ -4,15 +4,20 @@ import com.example.demo.dto.AlertaDTO;
 import com.example.demo.entity.Alerta;
 import com.example.demo.entity.InstanciaReporte;
 import com.example.demo.entity.Usuario;
+import com.example.demo.mapper.AlertaMapper;
 import com.example.demo.repository.AlertaRepository;
 import com.example.demo.repository.InstanciaReporteRepository;
 import com.example.demo.repository.UsuarioRepository;
 import com.example.demo.service.AlertaService;
+import com.example.demo.service.AlertaStreamService;
+import com.example.demo.service.UsuarioCacheService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -22,13 +27,22 @@ public class AlertaServiceImpl implements AlertaService {
     private final AlertaRepository repository;
     private final InstanciaReporteRepository instanciaRepo;
     private final UsuarioRepository usuarioRepo;
+    private final UsuarioCacheService usuarioCache;
+    private final AlertaMapper mapper;
+    private final AlertaStreamService stream;
 
     public AlertaServiceImpl(AlertaRepository repository,
                              InstanciaReporteRepository instanciaRepo,
-                             UsuarioRepository usuarioRepo) {
+                             UsuarioRepository usuarioRepo,
+                             UsuarioCacheService usuarioCache,
+                             AlertaMapper mapper,
+                             AlertaStreamService stream) {
         this.repository = repository;
         this.instanciaRepo = instanciaRepo;
         this.usuarioRepo = usuarioRepo;
+        this.usuarioCache = usuarioCache;
+        this.mapper = mapper;
+        this.stream = stream;
     }
 
     @Override
@@ -44,7 +58,9 @@ public class AlertaServiceImpl implements AlertaService {
 
     @Override
     public Alerta crear(Alerta alerta) {
-        return repository.save(alerta);
+        Alerta guardada = repository.save(alerta);
+        stream.publicarNuevas(List.of(guardada));
+        return guardada;
     }
 
     @Override
@@ -95,98 +111,70 @@ public class AlertaServiceImpl implements AlertaService {
     @Override
     public Alerta marcarComoLeida(Integer id) {
         Alerta alerta = obtenerPorId(id);
+        boolean estabaSinLeer = !alerta.isLeida();
         alerta.setLeida(true);
-        return repository.save(alerta);
+        Alerta guardada = repository.save(alerta);
+        if (estabaSinLeer) {
+            stream.publicarLeidas(idDestino(guardada), 1);
+        }
+        return guardada;
     }
 
     // ==================== NUEVOS MÉTODOS ====================
 
     @Override
     public List<AlertaDTO> listarAlertasUsuarioActual(Authentication authentication) {
-        Usuario usuario = obtenerUsuarioAutenticado(authentication);
-        String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
-        
-        List<Alerta> alertas;
-        if (rol.contains("ADMIN")) {
-            // Admin ve todas las alertas
-            alertas = repository.findAll();
-        } else {
-            // Usuarios normales solo ven sus alertas
-            alertas = repository.findByUsuarioDestino(usuario);
-        }
-        
-        return alertas.stream()
-                .map(this::convertirADTO)
-                .sorted(Comparator.comparing(AlertaDTO::getFechaProgramada).reversed())
-                .limit(50) // Máximo 50 alertas
+        // Admin ve todas las alertas; usuarios normales solo las suyas. Máximo 50 alertas
+        return repository.findVistas(idDestinatario(authentication), false, PageRequest.of(0, 50)).stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<AlertaDTO> listarAlertasNoLeidasUsuarioActual(Authentication authentication) {
-        Usuario usuario = obtenerUsuarioAutenticado(authentication);
-        String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
-        
-        List<Alerta> alertas;
-        if (rol.contains("ADMIN")) {
-            // Admin ve todas las no leídas
-            alertas = repository.findAll().stream()
-                    .filter(a -> !a.isLeida())
-                    .collect(Collectors.toList());
-        } else {
-            alertas = repository.findByUsuarioDestinoAndLeidaFalse(usuario);
-        }
-        
-        return alertas.stream()
-                .map(this::convertirADTO)
-                .sorted(Comparator.comparing(AlertaDTO::getFechaProgramada).reversed())
+        return repository.findVistas(idDestinatario(authentication), true, Pageable.unpaged()).stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
 
     @Override
     public long contarAlertasNoLeidasUsuarioActual(Authentication authentication) {
-        Usuario usuario = obtenerUsuarioAutenticado(authentication);
-        String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
-        
-        if (rol.contains("ADMIN")) {
-            return repository.findAll().stream()
-                    .filter(a -> !a.isLeida())
-                    .count();
-        } else {
-            return repository.findByUsuarioDestinoAndLeidaFalse(usuario).size();
-        }
+        Integer usuarioId = idDestinatario(authentication);
+        return usuarioId == null ? repository.contarTodasNoLeidas() : repository.contarNoLeidas(usuarioId);
     }
 
     @Override
     @Transactional
     public AlertaDTO marcarComoLeidaDTO(Integer id, Authentication authentication) {
         Alerta alerta = obtenerPorId(id);
+        boolean estabaSinLeer = !alerta.isLeida();
         alerta.setLeida(true);
         Alerta guardada = repository.save(alerta);
-        return convertirADTO(guardada);
+        if (estabaSinLeer) {
+            stream.publicarLeidas(idDestino(guardada), 1);
+        }
+        return mapper.toDto(guardada);
     }
 
     @Override
     @Transactional
     public int marcarTodasComoLeidas(Authentication authentication) {
-        Usuario usuario = obtenerUsuarioAutenticado(authentication);
-        String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
-        
-        List<Alerta> alertasNoLeidas;
-        if (rol.contains("ADMIN")) {
-            alertasNoLeidas = repository.findAll().stream()
-                    .filter(a -> !a.isLeida())
-                    .collect(Collectors.toList());
-        } else {
-            alertasNoLeidas = repository.findByUsuarioDestinoAndLeidaFalse(usuario);
+        // Una sola sentencia UPDATE; devuelve cuántas alertas quedaron marcadas
+        Integer usuarioId = idDestinatario(authentication);
+        if (usuarioId == null) {
+            int cantidad = repository.marcarTodasLeidas();
+            stream.publicarTodasLeidas();
+            return cantidad;
         }
-        
-        for (Alerta alerta : alertasNoLeidas) {
-            alerta.setLeida(true);
-            repository.save(alerta);
-        }
-        
-        return alertasNoLeidas.size();
+        int cantidad = repository.marcarLeidasDeUsuario(usuarioId);
+        stream.publicarLeidas(usuarioId, cantidad);
+        return cantidad;
+    }
+
+    @Override
+    public SseEmitter suscribirAlertas(Authentication authentication) {
+        Usuario usuario = obtenerUsuarioAutenticado(authentication);
+        return stream.suscribir(usuario.getId(), esAdmin(usuario));
     }
 
     @Override
@@ -199,9 +187,8 @@ public class AlertaServiceImpl implements AlertaService {
             throw new RuntimeException("Acceso denegado: solo administradores");
         }
         
-        return repository.findAll().stream()
-                .map(this::convertirADTO)
-                .sorted(Comparator.comparing(AlertaDTO::getFechaProgramada).reversed())
+        return repository.findVistas(null, false, Pageable.unpaged()).stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -214,10 +201,8 @@ public class AlertaServiceImpl implements AlertaService {
             throw new RuntimeException("Acceso denegado: solo administradores");
         }
         
-        return repository.findAll().stream()
-                .filter(a -> !a.isLeida())
-                .map(this::convertirADTO)
-                .sorted(Comparator.comparing(AlertaDTO::getFechaProgramada).reversed())
+        return repository.findVistas(null, true, Pageable.unpaged()).stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -225,41 +210,24 @@ public class AlertaServiceImpl implements AlertaService {
 
     private Usuario obtenerUsuarioAutenticado(Authentication authentication) {
         String correo = authentication.getName();
-        return usuarioRepo.findByCorreo(correo)
+        return usuarioCache.buscarPorCorreo(correo)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
     }
 
-    private AlertaDTO convertirADTO(Alerta alerta) {
-        AlertaDTO dto = new AlertaDTO();
-        
-        dto.setId(alerta.getId());
-        dto.setInstanciaId(alerta.getInstancia() != null ? alerta.getInstancia().getId() : null);
-        
-        // Datos del reporte
-        if (alerta.getInstancia() != null && alerta.getInstancia().getReporte() != null) {
-            dto.setReporteNombre(alerta.getInstancia().getReporte().getNombre());
-            dto.setPeriodoReportado(alerta.getInstancia().getPeriodoReportado());
-        }
-        
-        // Tipo de alerta
-        if (alerta.getTipo() != null) {
-            dto.setTipoAlertaId(alerta.getTipo().getId());
-            dto.setTipoAlertaNombre(alerta.getTipo().getNombre());
-            dto.setTipoAlertaColor(alerta.getTipo().getColor());
-        }
-        
-        // Usuario destino
-        if (alerta.getUsuarioDestino() != null) {
-            dto.setUsuarioDestinoId(alerta.getUsuarioDestino().getId());
-            dto.setUsuarioDestinoNombre(alerta.getUsuarioDestino().getNombreCompleto());
-        }
-        
-        dto.setFechaProgramada(alerta.getFechaProgramada());
-        dto.setFechaEnviada(alerta.getFechaEnviada());
-        dto.setEnviada(alerta.isEnviada());
-        dto.setMensaje(alerta.getMensaje());
-        dto.setLeida(alerta.isLeida());
-        
-        return dto;
+    /**
+     * Id del destinatario cuyas alertas puede ver el usuario autenticado; null si es admin (ve todas).
+     */
+    private Integer idDestinatario(Authentication authentication) {
+        Usuario usuario = obtenerUsuarioAutenticado(authentication);
+        return esAdmin(usuario) ? null : usuario.getId();
+    }
+
+    private boolean esAdmin(Usuario usuario) {
+        String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
+        return rol.contains("ADMIN");
+    }
+
+    private Integer idDestino(Alerta alerta) {
+        return alerta.getUsuarioDestino() != null ? alerta.getUsuarioDestino().getId() : null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.DiaFestivo;
+import com.example.demo.repository.DiaFestivoRepository;
+import com.example.demo.service.CalendarioHabilService;
+import com.example.demo.service.DiaFestivoService;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+public class DiaFestivoServiceImpl implements DiaFestivoService {
+
+    private final DiaFestivoRepository repository;
+    private final CalendarioHabilService calendarioHabil;
+
+    public DiaFestivoServiceImpl(DiaFestivoRepository repository, CalendarioHabilService calendarioHabil) {
+        this.repository = repository;
+        this.calendarioHabil = calendarioHabil;
+    }
+
+    @Override
+    public List<DiaFestivo> listar(Integer entidadId) {
+        return entidadId == null ? repository.findAllByOrderByFechaAsc()
+                : repository.findByEntidadIdOrderByFechaAsc(entidadId);
+    }
+
+    /**
+     * Registra la excepción y descarta las tablas de días hábiles. Las instancias
+     * futuras de los reportes con plazo en días hábiles se recalculan en la
+     * siguiente corrida del horizonte (cambia la firma de su calendario).
+     */
+    @Override
+    public DiaFestivo crear(DiaFestivo diaFestivo) {
+        if (diaFestivo.getFecha() == null) {
+            throw new RuntimeException("La fecha del día festivo es obligatoria");
+        }
+        if (repository.existsByFechaAndEntidadId(diaFestivo.getFecha(), diaFestivo.getEntidadId())) {
+            throw new RuntimeException("Ya existe un día festivo registrado para " + diaFestivo.getFecha()
+                    + (diaFestivo.getEntidadId() == null ? "" : " en la entidad " + diaFestivo.getEntidadId()));
+        }
+        DiaFestivo guardado = repository.save(diaFestivo);
+        calendarioHabil.invalidar();
+        return guardado;
+    }
+
+    @Override
+    public void eliminar(Integer id) {
+        repository.deleteById(id);
+        calendarioHabil.invalidar();
+    }
+
+    @Override
+    public List<LocalDate> listarNoHabiles(int anio, Integer entidadId) {
+        return calendarioHabil.noHabiles(anio, entidadId);
+    }
+}
@@ -1,7 +1,7 @@
 package com.example.demo.service.impl;
 
 import com.example.demo.entity.EstadoCumplimiento;
-import com.example.demo.repository.EstadoCumplimientoRepository;
+import com.example.demo.service.CatalogoCacheService;
 import com.example.demo.service.EstadoCumplimientoService;
 import org.springframework.stereotype.Service;
 
@@ -10,20 +10,20 @@ import java.util.List;
 @Service
 public class EstadoCumplimientoServiceImpl implements EstadoCumplimientoService {
 
-    private final EstadoCumplimientoRepository repository;
+    private final CatalogoCacheService catalogos;
 
-    public EstadoCumplimientoServiceImpl(EstadoCumplimientoRepository repository) {
-        this.repository = repository;
+    public EstadoCumplimientoServiceImpl(CatalogoCacheService catalogos) {
+        this.catalogos = catalogos;
     }
 
     @Override
     public List<EstadoCumplimiento> listar() {
-        return repository.findAll();
+        return catalogos.listarEstados();
     }
 
     @Override
     public EstadoCumplimiento obtenerPorId(Integer id) {
-        return repository.findById(id)
+        return catalogos.estadoPorId(id)
                 .orElseThrow(() -> new RuntimeException("Estado no encontrado"));
     }
 }
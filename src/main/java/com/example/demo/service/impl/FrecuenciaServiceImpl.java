@@ -1,7 +1,7 @@
 package com.example.demo.service.impl;
 
 import com.example.demo.entity.Frecuencia;
-import com.example.demo.repository.FrecuenciaRepository;
+import com.example.demo.service.CatalogoCacheService;
 import com.example.demo.service.FrecuenciaService;
 import org.springframework.stereotype.Service;
 
@@ -10,20 +10,20 @@ import java.util.List;
 @Service
 public class FrecuenciaServiceImpl implements FrecuenciaService {
 
-    private final FrecuenciaRepository repository;
+    private final CatalogoCacheService catalogos;
 
-    public FrecuenciaServiceImpl(FrecuenciaRepository repository) {
-        this.repository = repository;
+    public FrecuenciaServiceImpl(CatalogoCacheService catalogos) {
+        this.catalogos = catalogos;
     }
 
     @Override
     public List<Frecuencia> listar() {
-        return repository.findAll();
+        return catalogos.listarFrecuencias();
     }
 
     @Override
     public Frecuencia obtenerPorId(Integer id) {
-        return repository.findById(id)
+        return catalogos.frecuenciaPorId(id)
                 .orElseThrow(() -> new RuntimeException("Frecuencia no encontrada"));
     }
 }
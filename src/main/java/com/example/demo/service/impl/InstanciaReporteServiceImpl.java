@@ -1,12 +1,23 @@
 package com.example.demo.service.impl;
 
 import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.entity.*;
+import com.example.demo.mapper.InstanciaReporteMapper;
 import com.example.demo.repository.*;
+import com.example.demo.repository.projection.InstanciaResumenView;
+import com.example.demo.service.AlmacenamientoArchivos;
+import com.example.demo.service.CatalogoCacheService;
+import com.example.demo.service.CumplimientoMensualService;
 import com.example.demo.service.FechaVencimientoCalculator;
-import com.example.demo.service.GoogleDriveService;
 import com.example.demo.service.InstanciaReporteService;
 import com.example.demo.service.NotificacionService;
+import com.example.demo.service.UsuarioCacheService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,7 +26,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -23,28 +34,38 @@ import java.util.stream.Collectors;
 @Service
 public class InstanciaReporteServiceImpl implements InstanciaReporteService {
 
+    private static final int TAMANO_PAGINA_DEFECTO = 50;
+    private static final int TAMANO_PAGINA_MAXIMO = 200;
+    private static final Sort ORDEN_HISTORICO = Sort.by(Sort.Order.desc("fechaEnvioReal").nullsLast(), Sort.Order.desc("id"));
+
     private final InstanciaReporteRepository repository;
     private final ReporteRepository reporteRepo;
-    private final UsuarioRepository usuarioRepo;
-    private final EstadoCumplimientoRepository estadoRepo;
+    private final CatalogoCacheService catalogos;
     private final FechaVencimientoCalculator fechaCalculator;
     private final NotificacionService notificacionService;
-    private final GoogleDriveService driveService;
+    private final AlmacenamientoArchivos almacenamiento;
+    private final CumplimientoMensualService cumplimientoMensual;
+    private final UsuarioCacheService usuarioCache;
+    private final InstanciaReporteMapper mapper;
 
     public InstanciaReporteServiceImpl(InstanciaReporteRepository repository,
                                        ReporteRepository reporteRepo,
-                                       UsuarioRepository usuarioRepo,
-                                       EstadoCumplimientoRepository estadoRepo,
+                                       CatalogoCacheService catalogos,
                                        FechaVencimientoCalculator fechaCalculator,
                                        NotificacionService notificacionService,
-                                       GoogleDriveService driveService) {
+                                       AlmacenamientoArchivos almacenamiento,
+                                       CumplimientoMensualService cumplimientoMensual,
+                                       UsuarioCacheService usuarioCache,
+                                       InstanciaReporteMapper mapper) {
         this.repository = repository;
         this.reporteRepo = reporteRepo;
-        this.usuarioRepo = usuarioRepo;
-        this.estadoRepo = estadoRepo;
+        this.catalogos = catalogos;
         this.fechaCalculator = fechaCalculator;
         this.notificacionService = notificacionService;
-        this.driveService = driveService;
+        this.almacenamiento = almacenamiento;
+        this.cumplimientoMensual = cumplimientoMensual;
+        this.usuarioCache = usuarioCache;
+        this.mapper = mapper;
     }
 
     @Override
@@ -54,8 +75,8 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
 
     @Override
     public List<InstanciaReporteDTO> listarDTO() {
-        return repository.findAll().stream()
-                .map(this::convertirADTO)
+        return repository.findResumenes().stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -67,7 +88,9 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
 
     @Override
     public InstanciaReporteDTO obtenerDTOPorId(Integer id) {
-        return convertirADTO(obtenerPorId(id));
+        return repository.findResumenPorId(id)
+                .map(mapper::toDto)
+                .orElseThrow(() -> new RuntimeException("Instancia no encontrada"));
     }
 
     @Override
@@ -94,6 +117,7 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
     public InstanciaReporte actualizar(Integer id, InstanciaReporte instancia) {
         InstanciaReporte existente = obtenerPorId(id);
         String estadoAnterior = existente.getEstado() != null ? existente.getEstado().getNombre() : "Pendiente";
+        CumplimientoMensualService.Clave claveAnterior = cumplimientoMensual.claveDe(existente);
 
         existente.setPeriodoReportado(instancia.getPeriodoReportado());
         existente.setEstado(instancia.getEstado());
@@ -104,6 +128,7 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
         if (instancia.getFechaEnvioReal() != null) {
             existente.setFechaEnvioReal(instancia.getFechaEnvioReal());
             int diasDesviacion = fechaCalculator.calcularDiasDesviacion(
+                existente.getReporte(),
                 instancia.getFechaEnvioReal().toLocalDate(),
                 existente.getFechaVencimientoCalculada()
             );
@@ -111,6 +136,7 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
         }
 
         InstanciaReporte actualizada = repository.save(existente);
+        cumplimientoMensual.registrarCambio(claveAnterior, actualizada);
 
         if (instancia.getEstado() != null && !estadoAnterior.equals(instancia.getEstado().getNombre())) {
             try {
@@ -138,8 +164,11 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
 
     @Override
     public List<InstanciaReporteDTO> listarDTOPorReporte(String reporteId) {
-        return listarPorReporte(reporteId).stream()
-                .map(this::convertirADTO)
+        if (!reporteRepo.existsById(reporteId)) {
+            throw new RuntimeException("Reporte no encontrado");
+        }
+        return repository.findResumenesPorReporte(reporteId).stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -150,35 +179,60 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
         InstanciaReporte instancia = obtenerPorId(id);
         Usuario usuario = obtenerUsuarioAutenticado(authentication);
         
-        // Subir archivo a Drive
-        Map<String, String> resultadoDrive = driveService.uploadFile(
+        // Guardar archivo (Drive o almacenamiento local)
+        Map<String, String> resultadoArchivo = almacenamiento.guardar(
                 archivo, 
                 instancia.getReporte().getId(), 
                 instancia.getPeriodoReportado()
         );
         
+        return registrarEnvio(instancia, usuario, resultadoArchivo, observaciones, linkEvidencia, LocalDateTime.now());
+    }
+
+    @Override
+    @Transactional
+    public InstanciaReporteDTO registrarEnvioArchivo(Integer id, Map<String, String> resultadoArchivo,
+                                                     String observaciones, String linkEvidencia,
+                                                     String correoUsuario, LocalDateTime fechaEnvio) {
+        InstanciaReporte instancia = obtenerPorId(id);
+        Usuario usuario = usuarioCache.buscarPorCorreo(correoUsuario)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        return registrarEnvio(instancia, usuario, resultadoArchivo, observaciones, linkEvidencia, fechaEnvio);
+    }
+
+    /**
+     * Marca la instancia como enviada con el archivo ya subido y notifica. La
+     * desviación se mide con la fecha en que el usuario envió, no con la de subida.
+     */
+    private InstanciaReporteDTO registrarEnvio(InstanciaReporte instancia, Usuario usuario,
+                                               Map<String, String> resultadoArchivo, String observaciones,
+                                               String linkEvidencia, LocalDateTime fechaEnvio) {
+        CumplimientoMensualService.Clave claveAnterior = cumplimientoMensual.claveDe(instancia);
+        
         // Actualizar instancia
-        instancia.setLinkReporteFinal(resultadoDrive.get("webViewLink"));
-        instancia.setNombreArchivo(resultadoDrive.get("fileName"));
-        instancia.setDriveFileId(resultadoDrive.get("fileId"));
+        instancia.setLinkReporteFinal(resultadoArchivo.get("webViewLink"));
+        instancia.setNombreArchivo(resultadoArchivo.get("fileName"));
+        instancia.setDriveFileId(resultadoArchivo.get("fileId"));
         instancia.setLinkEvidenciaEnvio(linkEvidencia);
         instancia.setObservaciones(observaciones);
-        instancia.setFechaEnvioReal(LocalDateTime.now());
+        instancia.setFechaEnvioReal(fechaEnvio);
         instancia.setEnviadoPor(usuario);
         
         // Cambiar estado a "Enviado"
-        EstadoCumplimiento estadoEnviado = estadoRepo.findByNombre("Enviado")
+        EstadoCumplimiento estadoEnviado = catalogos.estadoPorNombre("Enviado")
                 .orElseThrow(() -> new RuntimeException("Estado 'Enviado' no encontrado"));
         instancia.setEstado(estadoEnviado);
         
         // Calcular días de desviación
         int diasDesviacion = fechaCalculator.calcularDiasDesviacion(
-                LocalDate.now(), 
+                instancia.getReporte(),
+                fechaEnvio.toLocalDate(), 
                 instancia.getFechaVencimientoCalculada()
         );
         instancia.setDiasDesviacion(diasDesviacion);
         
         InstanciaReporte actualizada = repository.save(instancia);
+        cumplimientoMensual.registrarCambio(claveAnterior, actualizada);
         
         System.out.println("✓ Reporte enviado: " + instancia.getReporte().getId() + 
                           " - Periodo: " + instancia.getPeriodoReportado() +
@@ -191,7 +245,7 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
             System.err.println("⚠️ Error al enviar notificación: " + e.getMessage());
         }
         
-        return convertirADTO(actualizada);
+        return mapper.toDto(actualizada);
     }
 
     @Override
@@ -200,6 +254,7 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
                                                      String linkEvidencia, Authentication authentication) {
         InstanciaReporte instancia = obtenerPorId(id);
         Usuario usuario = obtenerUsuarioAutenticado(authentication);
+        CumplimientoMensualService.Clave claveAnterior = cumplimientoMensual.claveDe(instancia);
         
         // Actualizar instancia
         instancia.setLinkReporteFinal(linkReporte);
@@ -209,177 +264,141 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
         instancia.setEnviadoPor(usuario);
         
         // Cambiar estado a "Enviado"
-        EstadoCumplimiento estadoEnviado = estadoRepo.findByNombre("Enviado")
+        EstadoCumplimiento estadoEnviado = catalogos.estadoPorNombre("Enviado")
                 .orElseThrow(() -> new RuntimeException("Estado 'Enviado' no encontrado"));
         instancia.setEstado(estadoEnviado);
         
         // Calcular días de desviación
         int diasDesviacion = fechaCalculator.calcularDiasDesviacion(
+                instancia.getReporte(),
                 LocalDate.now(), 
                 instancia.getFechaVencimientoCalculada()
         );
         instancia.setDiasDesviacion(diasDesviacion);
         
         InstanciaReporte actualizada = repository.save(instancia);
+        cumplimientoMensual.registrarCambio(claveAnterior, actualizada);
         
         System.out.println("✓ Reporte enviado con link: " + instancia.getReporte().getId() + 
                           " - Periodo: " + instancia.getPeriodoReportado());
         
-        return convertirADTO(actualizada);
+        return mapper.toDto(actualizada);
     }
 
     @Override
     public List<InstanciaReporteDTO> listarPendientes() {
-        return repository.findAll().stream()
-                .filter(i -> {
-                    String estado = i.getEstado().getNombre().toUpperCase();
-                    return estado.contains("PENDIENTE") || estado.contains("EN PROCESO");
-                })
-                .map(this::convertirADTO)
-                .sorted((a, b) -> {
-                    if (a.getFechaVencimientoCalculada() == null) return 1;
-                    if (b.getFechaVencimientoCalculada() == null) return -1;
-                    return a.getFechaVencimientoCalculada().compareTo(b.getFechaVencimientoCalculada());
-                })
+        return repository.findPendientes(Pageable.unpaged()).stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<InstanciaReporteDTO> listarVencidos() {
-        LocalDate hoy = LocalDate.now();
-        return repository.findAll().stream()
-                .filter(i -> {
-                    String estado = i.getEstado().getNombre().toUpperCase();
-                    boolean noEnviado = !estado.contains("ENVIADO") && !estado.contains("APROBADO");
-                    boolean vencido = i.getFechaVencimientoCalculada() != null && 
-                                     i.getFechaVencimientoCalculada().isBefore(hoy);
-                    return noEnviado && vencido;
-                })
-                .map(this::convertirADTO)
-                .sorted((a, b) -> {
-                    if (a.getFechaVencimientoCalculada() == null) return 1;
-                    if (b.getFechaVencimientoCalculada() == null) return -1;
-                    return a.getFechaVencimientoCalculada().compareTo(b.getFechaVencimientoCalculada());
-                })
+        return repository.findVencidosNoEnviados(LocalDate.now(), Pageable.unpaged()).stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<InstanciaReporteDTO> listarHistorico(String reporteId, Integer entidadId, Integer year, Integer mes) {
-        return repository.findAll().stream()
-                .filter(i -> {
-                    String estado = i.getEstado().getNombre().toUpperCase();
-                    return estado.contains("ENVIADO") || estado.contains("APROBADO");
-                })
-                .filter(i -> reporteId == null || i.getReporte().getId().equals(reporteId))
-                .filter(i -> entidadId == null || i.getReporte().getEntidad().getId().equals(entidadId))
-                .filter(i -> {
-                    if (year == null) return true;
-                    if (i.getFechaEnvioReal() == null) return false;
-                    return i.getFechaEnvioReal().getYear() == year;
-                })
-                .filter(i -> {
-                    if (mes == null) return true;
-                    if (i.getFechaEnvioReal() == null) return false;
-                    return i.getFechaEnvioReal().getMonthValue() == mes;
-                })
-                .map(this::convertirADTO)
-                .sorted((a, b) -> {
-                    if (a.getFechaEnvioReal() == null) return 1;
-                    if (b.getFechaEnvioReal() == null) return -1;
-                    return b.getFechaEnvioReal().compareTo(a.getFechaEnvioReal()); // Más recientes primero
-                })
+        return repository.findAll(especificacionHistorico(reporteId, entidadId, year, mes), ORDEN_HISTORICO).stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
 
-    // ==================== MÉTODOS AUXILIARES ====================
+    @Override
+    public PaginaDTO<InstanciaReporteDTO> listarPendientesPaginado(LocalDate despuesDeFecha, Integer despuesDeId, int tamano) {
+        int limite = normalizarTamano(tamano);
+        // Se pide un registro extra para saber si hay más páginas sin un COUNT
+        Pageable pageable = PageRequest.of(0, limite + 1);
+        List<InstanciaResumenView> filas = (despuesDeFecha != null && despuesDeId != null)
+                ? repository.findPendientesDespuesDe(despuesDeFecha, despuesDeId, pageable)
+                : repository.findPendientes(pageable);
+        return construirPaginaCursor(filas, limite);
+    }
 
-    private Usuario obtenerUsuarioAutenticado(Authentication authentication) {
-        String correo = authentication.getName();
-        return usuarioRepo.findByCorreo(correo)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+    @Override
+    public PaginaDTO<InstanciaReporteDTO> listarVencidosPaginado(LocalDate despuesDeFecha, Integer despuesDeId, int tamano) {
+        int limite = normalizarTamano(tamano);
+        Pageable pageable = PageRequest.of(0, limite + 1);
+        LocalDate hoy = LocalDate.now();
+        List<InstanciaResumenView> filas = (despuesDeFecha != null && despuesDeId != null)
+                ? repository.findVencidosNoEnviadosDespuesDe(hoy, despuesDeFecha, despuesDeId, pageable)
+                : repository.findVencidosNoEnviados(hoy, pageable);
+        return construirPaginaCursor(filas, limite);
     }
 
-    private InstanciaReporteDTO convertirADTO(InstanciaReporte instancia) {
-        InstanciaReporteDTO dto = new InstanciaReporteDTO();
-        
-        dto.setId(instancia.getId());
-        
-        // Datos del reporte
-        Reporte reporte = instancia.getReporte();
-        dto.setReporteId(reporte.getId());
-        dto.setReporteNombre(reporte.getNombre());
-        dto.setEntidadNombre(reporte.getEntidad().getRazonSocial());
-        dto.setEntidadId(reporte.getEntidad().getId());
-        dto.setFrecuencia(reporte.getFrecuencia().getNombre());
-        dto.setFormatoRequerido(reporte.getFormatoRequerido());
-        dto.setBaseLegal(reporte.getBaseLegal());
-        
-        // Responsables
-        if (reporte.getResponsableElaboracion() != null) {
-            dto.setResponsableElaboracion(reporte.getResponsableElaboracion().getNombreCompleto());
-            dto.setResponsableElaboracionId(reporte.getResponsableElaboracion().getId());
-        }
-        if (reporte.getResponsableSupervision() != null) {
-            dto.setResponsableSupervision(reporte.getResponsableSupervision().getNombreCompleto());
-            dto.setResponsableSupervisionId(reporte.getResponsableSupervision().getId());
-        }
-        
-        // Datos de la instancia
-        dto.setPeriodoReportado(instancia.getPeriodoReportado());
-        dto.setFechaVencimientoCalculada(instancia.getFechaVencimientoCalculada());
-        dto.setFechaEnvioReal(instancia.getFechaEnvioReal());
-        dto.setEstadoNombre(instancia.getEstado().getNombre());
-        dto.setEstadoId(instancia.getEstado().getId());
-        dto.setDiasDesviacion(instancia.getDiasDesviacion());
-        
-        // Calcular días hasta vencimiento
-        if (instancia.getFechaVencimientoCalculada() != null) {
-            long dias = ChronoUnit.DAYS.between(LocalDate.now(), instancia.getFechaVencimientoCalculada());
-            dto.setDiasHastaVencimiento((int) dias);
+    @Override
+    public PaginaDTO<InstanciaReporteDTO> listarHistoricoPaginado(String reporteId, Integer entidadId, Integer year,
+                                                                 Integer mes, int pagina, int tamano) {
+        Pageable pageable = PageRequest.of(Math.max(pagina, 0), normalizarTamano(tamano), ORDEN_HISTORICO);
+        Page<InstanciaReporte> resultado = repository.findAll(
+                especificacionHistorico(reporteId, entidadId, year, mes), pageable);
+
+        PaginaDTO<InstanciaReporteDTO> dto = new PaginaDTO<>();
+        dto.setContenido(resultado.getContent().stream().map(mapper::toDto).collect(Collectors.toList()));
+        dto.setTamano(resultado.getSize());
+        dto.setHayMas(resultado.hasNext());
+        dto.setPagina(resultado.getNumber());
+        dto.setTotalElementos(resultado.getTotalElements());
+        dto.setTotalPaginas(resultado.getTotalPages());
+        return dto;
+    }
+
+    // ==================== MÉTODOS AUXILIARES ====================
+
+    /**
+     * Filtros del histórico: enviados/aprobados, por reporte, entidad y mes/año de envío.
+     */
+    private Specification<InstanciaReporte> especificacionHistorico(String reporteId, Integer entidadId,
+                                                                    Integer year, Integer mes) {
+        LocalDateTime desde = null;
+        LocalDateTime hasta = null;
+        if (year != null && mes != null) {
+            desde = YearMonth.of(year, mes).atDay(1).atStartOfDay();
+            hasta = desde.plusMonths(1);
+        } else if (year != null) {
+            desde = LocalDate.of(year, 1, 1).atStartOfDay();
+            hasta = desde.plusYears(1);
         }
-        
-        // Archivos y links
-        dto.setLinkReporteFinal(instancia.getLinkReporteFinal());
-        dto.setLinkEvidenciaEnvio(instancia.getLinkEvidenciaEnvio());
-        dto.setNombreArchivo(instancia.getNombreArchivo());
-        dto.setDriveFileId(instancia.getDriveFileId());
-        
-        // Usuario que envió
-        if (instancia.getEnviadoPor() != null) {
-            dto.setEnviadoPorNombre(instancia.getEnviadoPor().getNombreCompleto());
-            dto.setEnviadoPorId(instancia.getEnviadoPor().getId());
+
+        Specification<InstanciaReporte> spec = Specification.where(InstanciaReporteSpecifications.enviadas())
+                .and(InstanciaReporteSpecifications.deReporte(reporteId))
+                .and(InstanciaReporteSpecifications.deEntidad(entidadId))
+                .and(InstanciaReporteSpecifications.enviadaEntre(desde, hasta));
+
+        if (year == null && mes != null) {
+            // Mes sin año: se filtra por mes de cualquier año
+            spec = spec.and((root, query, cb) -> cb.equal(
+                    cb.function("month", Integer.class, root.get("fechaEnvioReal")), mes));
         }
-        
-        // Otros
-        dto.setObservaciones(instancia.getObservaciones());
-        dto.setFechaCreacion(instancia.getFechaCreacion());
-        dto.setFechaActualizacion(instancia.getFechaActualizacion());
-        
-        // Estados calculados
-        String estado = instancia.getEstado().getNombre().toUpperCase();
-        dto.setEnviado(estado.contains("ENVIADO") || estado.contains("APROBADO"));
-        
-        if (instancia.getFechaVencimientoCalculada() != null) {
-            dto.setVencido(!dto.isEnviado() && instancia.getFechaVencimientoCalculada().isBefore(LocalDate.now()));
-            
-            // Prioridad
-            long dias = ChronoUnit.DAYS.between(LocalDate.now(), instancia.getFechaVencimientoCalculada());
-            if (dto.isEnviado()) {
-                dto.setPrioridad("BAJA");
-            } else if (dias < 0) {
-                dto.setPrioridad("CRITICA");
-            } else if (dias <= 3) {
-                dto.setPrioridad("ALTA");
-            } else if (dias <= 7) {
-                dto.setPrioridad("MEDIA");
-            } else {
-                dto.setPrioridad("BAJA");
-            }
-        } else {
-            dto.setPrioridad("MEDIA");
+        return spec;
+    }
+
+    private PaginaDTO<InstanciaReporteDTO> construirPaginaCursor(List<InstanciaResumenView> filas, int limite) {
+        boolean hayMas = filas.size() > limite;
+        List<InstanciaResumenView> pagina = hayMas ? filas.subList(0, limite) : filas;
+
+        PaginaDTO<InstanciaReporteDTO> dto = new PaginaDTO<>();
+        dto.setContenido(pagina.stream().map(mapper::toDto).collect(Collectors.toList()));
+        dto.setTamano(limite);
+        dto.setHayMas(hayMas);
+        if (hayMas) {
+            InstanciaResumenView ultima = pagina.get(pagina.size() - 1);
+            dto.setSiguienteFecha(ultima.fechaVencimientoCalculada());
+            dto.setSiguienteId(ultima.id());
         }
-        
         return dto;
     }
+
+    private int normalizarTamano(int tamano) {
+        if (tamano <= 0) return TAMANO_PAGINA_DEFECTO;
+        return Math.min(tamano, TAMANO_PAGINA_MAXIMO);
+    }
+
+    private Usuario obtenerUsuarioAutenticado(Authentication authentication) {
+        String correo = authentication.getName();
+        return usuarioCache.buscarPorCorreo(correo)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+    }
 }
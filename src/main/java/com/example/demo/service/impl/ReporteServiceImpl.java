@@ -2,11 +2,14 @@ package com.example.demo.service.impl;
 
 import com.example.demo.entity.*;
 import com.example.demo.repository.*;
+import com.example.demo.service.CatalogoCacheService;
 import com.example.demo.service.GeneradorInstanciasService;
+import com.example.demo.service.HorizonteInstanciasService;
 import com.example.demo.service.ReporteService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Service
@@ -14,17 +17,20 @@ public class ReporteServiceImpl implements ReporteService {
 
     private final ReporteRepository repository;
     private final EntidadRepository entidadRepo;
-    private final FrecuenciaRepository frecuenciaRepo;
+    private final CatalogoCacheService catalogos;
     private final GeneradorInstanciasService generadorInstancias;
+    private final HorizonteInstanciasService horizonteInstancias;
 
     public ReporteServiceImpl(ReporteRepository repository,
                               EntidadRepository entidadRepo,
-                              FrecuenciaRepository frecuenciaRepo,
-                              GeneradorInstanciasService generadorInstancias) {
+                              CatalogoCacheService catalogos,
+                              GeneradorInstanciasService generadorInstancias,
+                              HorizonteInstanciasService horizonteInstancias) {
         this.repository = repository;
         this.entidadRepo = entidadRepo;
-        this.frecuenciaRepo = frecuenciaRepo;
+        this.catalogos = catalogos;
         this.generadorInstancias = generadorInstancias;
+        this.horizonteInstancias = horizonteInstancias;
     }
 
     @Override
@@ -46,8 +52,8 @@ public class ReporteServiceImpl implements ReporteService {
         
         // Generar instancias automáticamente para el año actual y siguiente
         if (reporteGuardado.isActivo()) {
-            List<InstanciaReporte> instancias = generadorInstancias.generarInstanciasAnuales(reporteGuardado);
-            System.out.println("✓ Se generaron " + instancias.size() + " instancias para el reporte " + reporteGuardado.getId());
+            int instancias = generadorInstancias.generarInstanciasAnuales(reporteGuardado);
+            System.out.println("✓ Se generaron " + instancias + " instancias para el reporte " + reporteGuardado.getId());
         }
         
         return reporteGuardado;
@@ -61,16 +67,21 @@ public class ReporteServiceImpl implements ReporteService {
         boolean cambioFrecuencia = !existente.getFrecuencia().getId().equals(reporte.getFrecuencia().getId());
         boolean cambioDia = !java.util.Objects.equals(existente.getDiaVencimiento(), reporte.getDiaVencimiento());
         boolean cambioMes = !java.util.Objects.equals(existente.getMesVencimiento(), reporte.getMesVencimiento());
+        boolean cambioPlazo = !java.util.Objects.equals(existente.getPlazoAdicionalDias(), reporte.getPlazoAdicionalDias())
+                || existente.isPlazoDiasHabiles() != reporte.isPlazoDiasHabiles();
 
         existente.setNombre(reporte.getNombre());
         existente.setEntidad(reporte.getEntidad());
         existente.setBaseLegal(reporte.getBaseLegal());
         existente.setFechaInicioVigencia(reporte.getFechaInicioVigencia());
         existente.setFechaFinVigencia(reporte.getFechaFinVigencia());
-        existente.setFrecuencia(reporte.getFrecuencia());
+        // Se resuelve completa: el calendario de instancias se calcula con su nombre
+        existente.setFrecuencia(catalogos.frecuenciaPorId(reporte.getFrecuencia().getId())
+                .orElseThrow(() -> new RuntimeException("Frecuencia no encontrada")));
         existente.setDiaVencimiento(reporte.getDiaVencimiento());
         existente.setMesVencimiento(reporte.getMesVencimiento());
         existente.setPlazoAdicionalDias(reporte.getPlazoAdicionalDias());
+        existente.setPlazoDiasHabiles(reporte.isPlazoDiasHabiles());
         existente.setFormatoRequerido(reporte.getFormatoRequerido());
         existente.setLinkInstrucciones(reporte.getLinkInstrucciones());
         existente.setResponsableElaboracion(reporte.getResponsableElaboracion());
@@ -79,9 +90,12 @@ public class ReporteServiceImpl implements ReporteService {
 
         Reporte reporteActualizado = repository.save(existente);
         
-        // Si cambió la frecuencia o las fechas de vencimiento, regenerar instancias futuras
-        if (cambioFrecuencia || cambioDia || cambioMes) {
-            System.out.println("⚠ Cambios en frecuencia/vencimiento detectados. Considere regenerar instancias.");
+        // Si cambió la frecuencia o las fechas de vencimiento, regenerar instancias futuras pendientes
+        if (cambioFrecuencia || cambioDia || cambioMes || cambioPlazo) {
+            HorizonteInstanciasService.Resultado resultado =
+                    horizonteInstancias.sincronizarReporte(reporteActualizado.getId(), LocalDate.now());
+            System.out.println("✓ Calendario actualizado: " + resultado.eliminadas() + " instancias pendientes reemplazadas por " +
+                               resultado.creadas());
         }
 
         return reporteActualizado;
@@ -102,7 +116,7 @@ public class ReporteServiceImpl implements ReporteService {
 
     @Override
     public List<Reporte> listarPorFrecuencia(Integer frecuenciaId) {
-        Frecuencia f = frecuenciaRepo.findById(frecuenciaId)
+        Frecuencia f = catalogos.frecuenciaPorId(frecuenciaId)
                 .orElseThrow(() -> new RuntimeException("Frecuencia no encontrada"));
 
         return repository.findByFrecuencia(f);
@@ -2,7 +2,9 @@ package com.example.demo.service.impl;
 
 import com.example.demo.entity.Rol;
 import com.example.demo.repository.RolRepository;
+import com.example.demo.service.CatalogoCacheService;
 import com.example.demo.service.RolService;
+import com.example.demo.service.UsuarioCacheService;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -11,37 +13,51 @@ import java.util.List;
 public class RolServiceImpl implements RolService {
 
     private final RolRepository repository;
+    private final UsuarioCacheService usuarioCache;
+    private final CatalogoCacheService catalogos;
 
-    public RolServiceImpl(RolRepository repository) {
+    public RolServiceImpl(RolRepository repository, UsuarioCacheService usuarioCache,
+                          CatalogoCacheService catalogos) {
         this.repository = repository;
+        this.usuarioCache = usuarioCache;
+        this.catalogos = catalogos;
     }
 
     @Override
     public List<Rol> listar() {
-        return repository.findAll();
+        return catalogos.listarRoles();
     }
 
     @Override
     public Rol obtenerPorId(Integer id) {
-        return repository.findById(id)
+        return catalogos.rolPorId(id)
                 .orElseThrow(() -> new RuntimeException("Rol no encontrado"));
     }
 
     @Override
     public Rol crear(Rol rol) {
-        return repository.save(rol);
+        Rol creado = repository.save(rol);
+        catalogos.invalidarRoles();
+        return creado;
     }
 
     @Override
     public Rol actualizar(Integer id, Rol rol) {
-        Rol existente = obtenerPorId(id);
+        Rol existente = repository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Rol no encontrado"));
         existente.setNombre(rol.getNombre());
         existente.setDescripcion(rol.getDescripcion());
-        return repository.save(existente);
+        Rol actualizado = repository.save(existente);
+        catalogos.invalidarRoles();
+        // Los usuarios en caché guardan el rol
+        usuarioCache.invalidarTodo();
+        return actualizado;
     }
 
     @Override
     public void eliminar(Integer id) {
         repository.deleteById(id);
+        catalogos.invalidarRoles();
+        usuarioCache.invalidarTodo();
     }
 }
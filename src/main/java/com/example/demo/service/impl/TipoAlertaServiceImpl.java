@@ -1,7 +1,7 @@
 package com.example.demo.service.impl;
 
 import com.example.demo.entity.TipoAlerta;
-import com.example.demo.repository.TipoAlertaRepository;
+import com.example.demo.service.CatalogoCacheService;
 import com.example.demo.service.TipoAlertaService;
 import org.springframework.stereotype.Service;
 
@@ -10,20 +10,20 @@ import java.util.List;
 @Service
 public class TipoAlertaServiceImpl implements TipoAlertaService {
 
-    private final TipoAlertaRepository repository;
+    private final CatalogoCacheService catalogos;
 
-    public TipoAlertaServiceImpl(TipoAlertaRepository repository) {
-        this.repository = repository;
+    public TipoAlertaServiceImpl(CatalogoCacheService catalogos) {
+        this.catalogos = catalogos;
     }
 
     @Override
     public List<TipoAlerta> listar() {
-        return repository.findAll();
+        return catalogos.listarTiposAlerta();
     }
 
     @Override
     public TipoAlerta obtenerPorId(Integer id) {
-        return repository.findById(id)
+        return catalogos.tipoAlertaPorId(id)
                 .orElseThrow(() -> new RuntimeException("Tipo de alerta no encontrado"));
     }
 }
@@ -0,0 +1,25 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.service.WhatsAppCliente;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+@Service
+@ConditionalOnProperty(name = "twilio.whatsapp.simulado", havingValue = "false", matchIfMissing = true)
+public class TwilioWhatsAppCliente implements WhatsAppCliente {
+
+    @Value("${twilio.whatsapp.number:}")
+    private String twilioWhatsAppNumber;
+
+    @Override
+    public String enviar(String telefonoDestino, String mensaje) {
+        com.twilio.rest.api.v2010.account.Message message =
+            com.twilio.rest.api.v2010.account.Message.creator(
+                new com.twilio.type.PhoneNumber("whatsapp:" + telefonoDestino),
+                new com.twilio.type.PhoneNumber(twilioWhatsAppNumber),
+                mensaje
+            ).create();
+        return message.getSid();
+    }
+}
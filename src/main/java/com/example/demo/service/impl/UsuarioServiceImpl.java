@@ -2,6 +2,7 @@ package com.example.demo.service.impl;
 
 import com.example.demo.entity.Usuario;
 import com.example.demo.repository.UsuarioRepository;
+import com.example.demo.service.UsuarioCacheService;
 import com.example.demo.service.UsuarioService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -13,10 +14,13 @@ public class UsuarioServiceImpl implements UsuarioService {
 
     private final UsuarioRepository repository;
     private final PasswordEncoder passwordEncoder;
+    private final UsuarioCacheService usuarioCache;
 
-    public UsuarioServiceImpl(UsuarioRepository repository, PasswordEncoder passwordEncoder) {
+    public UsuarioServiceImpl(UsuarioRepository repository, PasswordEncoder passwordEncoder,
+                              UsuarioCacheService usuarioCache) {
         this.repository = repository;
         this.passwordEncoder = passwordEncoder;
+        this.usuarioCache = usuarioCache;
     }
 
     @Override
@@ -46,13 +50,14 @@ public class UsuarioServiceImpl implements UsuarioService {
 
     @Override
     public Usuario obtenerPorCorreo(String correo) {
-        return repository.findByCorreo(correo)
+        return usuarioCache.buscarPorCorreo(correo)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado con correo: " + correo));
     }
 
     @Override
     public Usuario actualizar(Integer id, Usuario usuario) {
         Usuario existente = obtenerPorId(id);
+        String correoAnterior = existente.getCorreo();
 
         existente.setNombreCompleto(usuario.getNombreCompleto());
         existente.setCorreo(usuario.getCorreo());
@@ -67,11 +72,15 @@ public class UsuarioServiceImpl implements UsuarioService {
             existente.setContrasena(passwordEncoder.encode(usuario.getContrasena()));
         }
 
-        return repository.save(existente);
+        Usuario actualizado = repository.save(existente);
+        usuarioCache.invalidar(correoAnterior);
+        usuarioCache.invalidar(actualizado.getCorreo());
+        return actualizado;
     }
 
     @Override
     public void eliminar(Integer id) {
+        repository.findById(id).ifPresent(u -> usuarioCache.invalidar(u.getCorreo()));
         repository.deleteById(id);
     }
 }
@@ -0,0 +1,49 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.service.WhatsAppCliente;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cliente de WhatsApp local que no llama a Twilio. Simula latencia y una tasa de
+ * fallos configurable para ejercitar el límite de tasa, el circuit breaker y los
+ * reintentos del outbox sin credenciales.
+ */
+@Service
+@ConditionalOnProperty(name = "twilio.whatsapp.simulado", havingValue = "true")
+public class WhatsAppClienteSimulado implements WhatsAppCliente {
+
+    @Value("${twilio.whatsapp.simulado.latencia-ms:200}")
+    private long latenciaMs;
+
+    // 0.0 = nunca falla, 1.0 = siempre falla
+    @Value("${twilio.whatsapp.simulado.tasa-fallos:0.0}")
+    private double tasaFallos;
+
+    private final AtomicLong secuencia = new AtomicLong();
+
+    @Override
+    public String enviar(String telefonoDestino, String mensaje) {
+        try {
+            Thread.sleep(latenciaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Envío simulado interrumpido", e);
+        }
+        if (ThreadLocalRandom.current().nextDouble() < tasaFallos) {
+            throw new RuntimeException("Fallo simulado de Twilio");
+        }
+        String sid = "SIM" + secuencia.incrementAndGet();
+        System.out.println("📱 [simulado] WhatsApp a " + telefonoDestino + " (" + mensaje.length() + " caracteres) SID " + sid);
+        return sid;
+    }
+
+    @Override
+    public boolean esSimulado() {
+        return true;
+    }
+}
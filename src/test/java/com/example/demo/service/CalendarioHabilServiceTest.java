@@ -0,0 +1,152 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.DiaFestivo;
+import com.example.demo.repository.DiaFestivoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Festivos de Colombia calculados por ley y aritmética de días hábiles sobre las
+ * tablas precalculadas: fines de semana, traslados y cambio de año.
+ */
+class CalendarioHabilServiceTest {
+
+    private final List<DiaFestivo> excepciones = new ArrayList<>();
+    private CalendarioHabilService service;
+
+    @BeforeEach
+    void setUp() {
+        DiaFestivoRepository repository = mock(DiaFestivoRepository.class);
+        when(repository.findAll()).thenAnswer(inv -> List.copyOf(excepciones));
+        service = new CalendarioHabilService(repository);
+    }
+
+    @Test
+    void festivosNacionales2025() {
+        // San Pedro (29 jun, domingo) y Sagrado Corazón caen ambos el lunes 30 de junio
+        assertThat(service.festivosNacionales(2025)).containsExactly(
+                fecha("2025-01-01"), fecha("2025-01-06"), fecha("2025-03-24"), fecha("2025-04-17"),
+                fecha("2025-04-18"), fecha("2025-05-01"), fecha("2025-06-02"), fecha("2025-06-23"),
+                fecha("2025-06-30"), fecha("2025-07-20"), fecha("2025-08-07"), fecha("2025-08-18"),
+                fecha("2025-10-13"), fecha("2025-11-03"), fecha("2025-11-17"), fecha("2025-12-08"),
+                fecha("2025-12-25"));
+    }
+
+    @Test
+    void festivosNacionales2024() {
+        assertThat(service.festivosNacionales(2024)).containsExactly(
+                fecha("2024-01-01"), fecha("2024-01-08"), fecha("2024-03-25"), fecha("2024-03-28"),
+                fecha("2024-03-29"), fecha("2024-05-01"), fecha("2024-05-13"), fecha("2024-06-03"),
+                fecha("2024-06-10"), fecha("2024-07-01"), fecha("2024-07-20"), fecha("2024-08-07"),
+                fecha("2024-08-19"), fecha("2024-10-14"), fecha("2024-11-04"), fecha("2024-11-11"),
+                fecha("2024-12-08"), fecha("2024-12-25"));
+    }
+
+    @Test
+    void domingoDePascua() {
+        assertThat(CalendarioHabilService.domingoDePascua(2019)).isEqualTo(fecha("2019-04-21"));
+        assertThat(CalendarioHabilService.domingoDePascua(2024)).isEqualTo(fecha("2024-03-31"));
+        assertThat(CalendarioHabilService.domingoDePascua(2025)).isEqualTo(fecha("2025-04-20"));
+        assertThat(CalendarioHabilService.domingoDePascua(2026)).isEqualTo(fecha("2026-04-05"));
+    }
+
+    @Test
+    void noHabilesDelYearIncluyeFinesDeSemanaSinRepetir() {
+        // 104 sábados y domingos + 17 festivos, de los que el 20 de julio cae domingo
+        List<LocalDate> noHabiles = service.noHabiles(2025, null);
+
+        assertThat(noHabiles).hasSize(120).doesNotHaveDuplicates().isSorted();
+        assertThat(noHabiles).contains(fecha("2025-06-30"), fecha("2025-07-19"), fecha("2025-07-20"));
+    }
+
+    @Test
+    void sumaDiasHabilesSaltandoFinesDeSemanaYFestivos() {
+        CalendarioLaboral calendario = service.calendario(null);
+
+        // viernes + 1 = lunes
+        assertThat(calendario.sumarDiasHabiles(fecha("2025-01-10"), 1)).isEqualTo(fecha("2025-01-13"));
+        // viernes 3 de enero + 1: el lunes 6 es Reyes
+        assertThat(calendario.sumarDiasHabiles(fecha("2025-01-03"), 1)).isEqualTo(fecha("2025-01-07"));
+        // sábado con n = 0: se corre al siguiente hábil, pasando el festivo del 30 de junio
+        assertThat(calendario.sumarDiasHabiles(fecha("2025-06-28"), 0)).isEqualTo(fecha("2025-07-01"));
+        assertThat(calendario.siguienteHabil(fecha("2025-07-01"))).isEqualTo(fecha("2025-07-01"));
+    }
+
+    @Test
+    void sumaDiasHabilesCruzandoElYear() {
+        CalendarioLaboral calendario = service.calendario(null);
+
+        // miércoles 31 de diciembre: el 1 de enero es festivo; Reyes 2026 se traslada al 12
+        assertThat(calendario.sumarDiasHabiles(fecha("2025-12-31"), 1)).isEqualTo(fecha("2026-01-02"));
+        assertThat(calendario.sumarDiasHabiles(fecha("2025-12-31"), 2)).isEqualTo(fecha("2026-01-05"));
+        assertThat(calendario.esHabil(fecha("2026-01-06"))).isTrue();
+        assertThat(calendario.esHabil(fecha("2026-01-12"))).isFalse();
+        // 245 hábiles en 2025
+        assertThat(calendario.sumarDiasHabiles(fecha("2024-12-31"), 245)).isEqualTo(fecha("2025-12-31"));
+    }
+
+    @Test
+    void diasHabilesEntreConSignoYCambioDeYear() {
+        CalendarioLaboral calendario = service.calendario(null);
+
+        // (26 dic, 2 ene]: 29, 30, 31 de diciembre y 2 de enero
+        assertThat(calendario.diasHabilesEntre(fecha("2025-12-26"), fecha("2026-01-02"))).isEqualTo(4);
+        // [26 dic, 2 ene) hacia atrás: 26, 29, 30 y 31 de diciembre
+        assertThat(calendario.diasHabilesEntre(fecha("2026-01-02"), fecha("2025-12-26"))).isEqualTo(-4);
+        // vencido el viernes, el sábado ya va un día hábil tarde
+        assertThat(calendario.diasHabilesEntre(fecha("2025-01-11"), fecha("2025-01-10"))).isEqualTo(-1);
+        assertThat(calendario.diasHabilesEntre(fecha("2025-01-10"), fecha("2025-01-10"))).isZero();
+    }
+
+    @Test
+    void aplicaExcepcionesGeneralesYPorEntidad() {
+        excepciones.add(excepcion("2025-12-24", null, false));
+        excepciones.add(excepcion("2025-06-30", 7, true));
+        service.invalidar();
+
+        CalendarioLaboral nacional = service.calendario(null);
+        CalendarioLaboral entidad = service.calendario(7);
+        CalendarioLaboral otra = service.calendario(8);
+
+        assertThat(nacional.esHabil(fecha("2025-12-24"))).isFalse();
+        assertThat(entidad.esHabil(fecha("2025-12-24"))).isFalse();
+        assertThat(nacional.esHabil(fecha("2025-06-30"))).isFalse();
+        assertThat(entidad.esHabil(fecha("2025-06-30"))).isTrue();
+        assertThat(otra.esHabil(fecha("2025-06-30"))).isFalse();
+        assertThat(service.calendariosDistintos()).containsExactly(nacional, entidad);
+    }
+
+    @Test
+    void invalidarReleeLasExcepciones() {
+        CalendarioLaboral calendario = service.calendario(null);
+        int huella = calendario.huella();
+        assertThat(calendario.esHabil(fecha("2025-12-24"))).isTrue();
+
+        excepciones.add(excepcion("2025-12-24", null, false));
+        service.invalidar();
+
+        // La misma vista ve los festivos nuevos
+        assertThat(calendario.esHabil(fecha("2025-12-24"))).isFalse();
+        assertThat(calendario.huella()).isNotEqualTo(huella);
+    }
+
+    private static DiaFestivo excepcion(String fecha, Integer entidadId, boolean habil) {
+        DiaFestivo dia = new DiaFestivo();
+        dia.setFecha(fecha(fecha));
+        dia.setEntidadId(entidadId);
+        dia.setHabil(habil);
+        return dia;
+    }
+
+    private static LocalDate fecha(String texto) {
+        return LocalDate.parse(texto);
+    }
+}
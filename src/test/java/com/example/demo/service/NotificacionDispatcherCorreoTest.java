@@ -0,0 +1,149 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.NotificacionPendiente;
+import com.example.demo.repository.NotificacionPendienteRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Envío de correos del outbox contra un SMTP en memoria (GreenMail): cada lote
+ * usa una sola conexión y cada destinatario queda registrado.
+ */
+class NotificacionDispatcherCorreoTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final AtomicInteger conexiones = new AtomicInteger();
+    private final Map<Integer, NotificacionPendiente> filas = new ConcurrentHashMap<>();
+    private NotificacionPendienteRepository repository;
+    private ThreadPoolTaskExecutor emailExecutor;
+    private ThreadPoolTaskExecutor whatsAppExecutor;
+    private NotificacionDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl() {
+            @Override
+            protected Transport connectTransport() throws MessagingException {
+                conexiones.incrementAndGet();
+                return super.connectTransport();
+            }
+        };
+        mailSender.setHost(ServerSetupTest.SMTP.getBindAddress());
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+
+        repository = mock(NotificacionPendienteRepository.class);
+        when(repository.findById(any())).thenAnswer(inv -> Optional.ofNullable(filas.get((Integer) inv.getArgument(0))));
+        when(repository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        emailExecutor = executor("test-email-");
+        whatsAppExecutor = executor("test-whatsapp-");
+        dispatcher = new NotificacionDispatcher(repository, mailSender, mock(WhatsAppService.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), emailExecutor, whatsAppExecutor);
+        ReflectionTestUtils.setField(dispatcher, "emailRemitente", "reportes@llanogas.test");
+        ReflectionTestUtils.setField(dispatcher, "tamanoLote", 100);
+        ReflectionTestUtils.setField(dispatcher, "maxIntentos", 5);
+        ReflectionTestUtils.setField(dispatcher, "backoffInicialSegundos", 30L);
+        ReflectionTestUtils.setField(dispatcher, "timeoutEnvioMinutos", 10L);
+        ReflectionTestUtils.setField(dispatcher, "plazoSegundos", 20L);
+        ReflectionTestUtils.setField(dispatcher, "tamanoLoteCorreo", 20);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emailExecutor.shutdown();
+        whatsAppExecutor.shutdown();
+    }
+
+    @Test
+    void enviaCadaLoteDeCorreosPorUnaSolaConexion() {
+        List<NotificacionPendiente> correos = correos(45);
+        when(repository.reclamarLote(any(), any(), anyInt())).thenReturn(correos);
+
+        List<NotificacionDispatcher.ResultadoEnvio> resultados = dispatcher.despachar();
+
+        // 45 correos en lotes de 20: 20 + 20 + 5
+        assertThat(conexiones.get()).isEqualTo(3);
+        MimeMessage[] recibidos = greenMail.getReceivedMessages();
+        assertThat(recibidos).hasSize(45);
+        assertThat(resultados).hasSize(45)
+                .allMatch(r -> NotificacionPendiente.ESTADO_ENVIADO.equals(r.estado()));
+        assertThat(filas.values()).allMatch(n -> NotificacionPendiente.ESTADO_ENVIADO.equals(n.getEstado())
+                && n.getIntentos() == 1 && n.getFechaEnvio() != null);
+    }
+
+    @Test
+    void registraElResultadoDeCadaDestinatario() throws Exception {
+        when(repository.reclamarLote(any(), any(), anyInt())).thenReturn(correos(3));
+
+        dispatcher.despachar();
+
+        assertThat(conexiones.get()).isEqualTo(1);
+        List<String> destinatarios = new ArrayList<>();
+        for (MimeMessage mensaje : greenMail.getReceivedMessages()) {
+            destinatarios.add(mensaje.getAllRecipients()[0].toString());
+        }
+        assertThat(destinatarios).containsExactlyInAnyOrder(
+                "usuario1@llanogas.test", "usuario2@llanogas.test", "usuario3@llanogas.test");
+    }
+
+    @Test
+    void sinPendientesNoAbreConexiones() {
+        when(repository.reclamarLote(any(), any(), anyInt())).thenReturn(List.of());
+
+        assertThat(dispatcher.despachar()).isEmpty();
+        assertThat(conexiones.get()).isZero();
+    }
+
+    private List<NotificacionPendiente> correos(int cantidad) {
+        List<NotificacionPendiente> lista = new ArrayList<>();
+        for (int i = 1; i <= cantidad; i++) {
+            NotificacionPendiente n = new NotificacionPendiente();
+            n.setId(i);
+            n.setCanal(NotificacionPendiente.CANAL_EMAIL);
+            n.setDestinatario("usuario" + i + "@llanogas.test");
+            n.setAsunto("Alerta " + i);
+            n.setCuerpo("Cuerpo " + i);
+            n.setEstado(NotificacionPendiente.ESTADO_ENVIANDO);
+            filas.put(i, n);
+            lista.add(n);
+        }
+        return lista;
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefijo) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix(prefijo);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ReglaVencimiento frente a la generación anterior (VencimientosLegado): misma
+ * salida para las frecuencias que ya existían, cada periodo generado se resuelve
+ * a su misma fecha, y los periodos digitados a mano conservan su significado.
+ */
+class ReglaVencimientoTest {
+
+    private static final String[] TODAS = {
+            "MENSUAL", "BIMESTRAL", "TRIMESTRAL", "CUATRIMESTRAL", "SEMESTRAL", "ANUAL",
+            "SEMANAL", "DIARIA", "ÚNICA VEZ"
+    };
+
+    @Test
+    void generaLoMismoQueLaVersionAnterior() {
+        // SEMANAL no entra: antes repetía la fecha de inicio y ahora se alinea al día de la semana
+        int comparados = 0;
+        for (int year = 2023; year <= 2028; year++) {
+            for (int mesInicio = 1; mesInicio <= 12; mesInicio += 5) {
+                // Como el horizonte: desde el día 1 hasta el fin de un mes posterior
+                LocalDate inicio = LocalDate.of(year, mesInicio, 1);
+                LocalDate fin = YearMonth.from(inicio.plusMonths(24)).atEndOfMonth();
+                for (int dia = 1; dia <= 31; dia++) {
+                    comparados += comparar("MENSUAL", dia, 1, inicio, fin);
+                    for (int mes = 1; mes <= 3; mes++) {
+                        comparados += comparar("TRIMESTRAL", dia, mes, inicio, fin);
+                    }
+                    for (int mes = 1; mes <= 6; mes++) {
+                        comparados += comparar("SEMESTRAL", dia, mes, inicio, fin);
+                    }
+                    for (int mes = 1; mes <= 12; mes++) {
+                        comparados += comparar("ANUAL", dia, mes, inicio, fin);
+                        comparados += comparar("ÚNICA VEZ", dia, mes, inicio, fin);
+                    }
+                }
+            }
+        }
+        assertThat(comparados).isGreaterThan(50_000);
+    }
+
+    @Test
+    void cadaPeriodoGeneradoSeResuelveASuFecha() {
+        LocalDate inicio = LocalDate.of(2024, 1, 1);
+        LocalDate fin = LocalDate.of(2027, 12, 31);
+        for (String frecuencia : TODAS) {
+            for (int dia = 1; dia <= 31; dia++) {
+                for (int mes = 1; mes <= 12; mes++) {
+                    for (Integer plazo : new Integer[]{null, 10}) {
+                        ReglaVencimiento regla = ReglaVencimiento.compilar(frecuencia, dia, mes, plazo);
+                        Map<String, LocalDate> generados = regla.vencimientosEntre(inicio, fin);
+                        assertThat(generados).as("%s día %d mes %d", frecuencia, dia, mes).isNotEmpty();
+                        for (Map.Entry<String, LocalDate> generado : generados.entrySet()) {
+                            assertThat(regla.fechaVencimiento(generado.getKey()))
+                                    .as("%s día %d mes %d plazo %s: %s", frecuencia, dia, mes, plazo, generado.getKey())
+                                    .isEqualTo(generado.getValue());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void periodoReportadoVenceDespuesDeCerrado() {
+        assertThat(regla("MENSUAL", null, null).fechaVencimientoReportado("2025-03"))
+                .isEqualTo(LocalDate.of(2025, 4, 15));
+        assertThat(regla("MENSUAL", 31, null).fechaVencimientoReportado("2025-01"))
+                .isEqualTo(LocalDate.of(2025, 2, 28));
+        assertThat(regla("MENSUAL", 10, null).fechaVencimientoReportado("2025-12"))
+                .isEqualTo(LocalDate.of(2026, 1, 10));
+        assertThat(regla("BIMESTRAL", 20, null).fechaVencimientoReportado("2025-B1"))
+                .isEqualTo(LocalDate.of(2025, 3, 20));
+        assertThat(regla("TRIMESTRAL", null, null).fechaVencimientoReportado("2025-Q1"))
+                .isEqualTo(LocalDate.of(2025, 4, 15));
+        assertThat(regla("TRIMESTRAL", null, null).fechaVencimientoReportado("2025-T4"))
+                .isEqualTo(LocalDate.of(2026, 1, 15));
+        assertThat(regla("SEMESTRAL", 30, null).fechaVencimientoReportado("2025-S1"))
+                .isEqualTo(LocalDate.of(2025, 7, 30));
+        assertThat(regla("ANUAL", null, null).fechaVencimientoReportado("2025"))
+                .isEqualTo(LocalDate.of(2026, 3, 15));
+        assertThat(regla("ANUAL", 30, 6).fechaVencimientoReportado("2025"))
+                .isEqualTo(LocalDate.of(2026, 6, 30));
+        // Semanal: el día configurado (5 = viernes) de la semana siguiente
+        assertThat(regla("SEMANAL", 5, null).fechaVencimientoReportado("2025-03-10"))
+                .isEqualTo(LocalDate.of(2025, 3, 21));
+        assertThat(regla("DIARIA", null, null).fechaVencimientoReportado("2025-03-14"))
+                .isEqualTo(LocalDate.of(2025, 3, 15));
+        assertThat(regla("ÚNICA VEZ", null, null).fechaVencimientoReportado("2025-09-01"))
+                .isEqualTo(LocalDate.of(2025, 9, 1));
+    }
+
+    @Test
+    void periodoReportadoIgualQueLaVersionAnterior() {
+        int comparados = 0;
+        for (int dia = 1; dia <= 31; dia++) {
+            for (Integer plazo : new Integer[]{null, 3}) {
+                for (int year = 2024; year <= 2026; year++) {
+                    for (int m = 1; m <= 12; m++) {
+                        comparados += compararReportado("MENSUAL", dia, null, plazo, year + "-" + (m < 10 ? "0" : "") + m);
+                    }
+                    for (int k = 1; k <= 6; k++) {
+                        comparados += compararReportado("BIMESTRAL", dia, null, plazo, year + "-B" + k);
+                    }
+                    for (int k = 1; k <= 4; k++) {
+                        comparados += compararReportado("TRIMESTRAL", dia, null, plazo, year + "-Q" + k);
+                    }
+                    for (int k = 1; k <= 2; k++) {
+                        comparados += compararReportado("SEMESTRAL", dia, null, plazo, year + "-S" + k);
+                    }
+                    for (Integer mes : new Integer[]{null, 1, 6, 12}) {
+                        comparados += compararReportado("ANUAL", dia, mes, plazo, String.valueOf(year));
+                    }
+                    for (LocalDate d = LocalDate.of(year, 1, 1); d.getYear() == year; d = d.plusDays(11)) {
+                        if (dia <= 7) {
+                            comparados += compararReportado("SEMANAL", dia, null, plazo, d.toString());
+                        }
+                        comparados += compararReportado("DIARIA", dia, null, plazo, d.toString());
+                        comparados += compararReportado("ÚNICA VEZ", dia, null, plazo, d.toString());
+                    }
+                }
+            }
+        }
+        assertThat(comparados).isGreaterThan(10_000);
+    }
+
+    @Test
+    void periodoReportadoConPlazoYClavesDeOtraFrecuencia() {
+        assertThat(ReglaVencimiento.compilar("MENSUAL", 15, null, 5).fechaVencimientoReportado("2025-03"))
+                .isEqualTo(LocalDate.of(2025, 4, 20));
+        assertThat(regla("MENSUAL", null, null).fechaVencimientoReportado("2025-Q1")).isNull();
+        assertThat(regla("TRIMESTRAL", null, null).fechaVencimientoReportado("2025-03")).isNull();
+        assertThat(regla("TRIMESTRAL", null, null).fechaVencimientoReportado("2025-Q5")).isNull();
+        assertThat(regla("ANUAL", null, null).fechaVencimientoReportado("2025-03")).isNull();
+        assertThat(regla("DIARIA", null, null).fechaVencimientoReportado("2025-02-30")).isNull();
+        assertThat(regla("MENSUAL", null, null).fechaVencimientoReportado("marzo")).isNull();
+    }
+
+    private static int comparar(String frecuencia, int dia, int mes, LocalDate inicio, LocalDate fin) {
+        Map<String, LocalDate> esperado = VencimientosLegado.generar(frecuencia, dia, mes, inicio, fin);
+        Map<String, LocalDate> actual = ReglaVencimiento.compilar(frecuencia, dia, mes, null)
+                .vencimientosEntre(inicio, fin);
+        assertThat(actual).as("%s día %d mes %d desde %s", frecuencia, dia, mes, inicio)
+                .containsExactlyEntriesOf(esperado);
+        return esperado.size();
+    }
+
+    private static int compararReportado(String frecuencia, Integer dia, Integer mes, Integer plazo, String periodo) {
+        LocalDate esperado = VencimientosLegado.vencimientoReportado(frecuencia, dia, mes, plazo, periodo);
+        assertThat(esperado).as("%s %s", frecuencia, periodo).isNotNull();
+        assertThat(ReglaVencimiento.compilar(frecuencia, dia, mes, plazo).fechaVencimientoReportado(periodo))
+                .as("%s día %d mes %s plazo %s: %s", frecuencia, dia, mes, plazo, periodo)
+                .isEqualTo(esperado);
+        return 1;
+    }
+
+    private static ReglaVencimiento regla(String frecuencia, Integer dia, Integer mes) {
+        return ReglaVencimiento.compilar(frecuencia, dia, mes, null);
+    }
+}
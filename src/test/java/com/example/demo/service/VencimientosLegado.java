@@ -0,0 +1,184 @@
+package com.example.demo.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cálculo de vencimientos anterior a ReglaVencimiento, tal como estaba: la generación
+ * de GeneradorInstanciasService (fechas por frecuencia y su clave con String.format)
+ * y el periodo reportado de FechaVencimientoCalculator (split y parseInt). Sirve de
+ * referencia para comparar salidas y tiempos; no se usa en producción.
+ */
+final class VencimientosLegado {
+
+    private VencimientosLegado() {
+    }
+
+    /**
+     * Periodo → vencimiento entre inicio y fin; si dos fechas caen en el mismo periodo gana la primera.
+     */
+    static Map<String, LocalDate> generar(String frecuencia, int dia, int mes, LocalDate inicio, LocalDate fin) {
+        Map<String, LocalDate> periodos = new LinkedHashMap<>();
+        for (LocalDate fecha : calcularFechasVencimiento(frecuencia, dia, mes, inicio, fin)) {
+            periodos.putIfAbsent(calcularPeriodoReportado(frecuencia, fecha), fecha);
+        }
+        return periodos;
+    }
+
+    /**
+     * Vencimiento de un periodo reportado a mano, o null donde antes se caía al
+     * valor de respaldo (fecha relativa a hoy) por no poder leer el periodo.
+     */
+    static LocalDate vencimientoReportado(String frecuencia, Integer diaVencimiento, Integer mesVencimiento,
+                                          Integer plazoAdicionalDias, String periodo) {
+        int dia = diaVencimiento != null ? diaVencimiento : 15;
+        LocalDate fechaBase;
+        try {
+            switch (frecuencia) {
+                case "BIMESTRAL" -> fechaBase = despuesDe(periodo, "-B", 2, dia);
+                case "TRIMESTRAL" -> fechaBase = despuesDe(periodo, "-Q", 3, dia);
+                case "SEMESTRAL" -> fechaBase = despuesDe(periodo, "-S", 6, dia);
+                case "ANUAL" -> {
+                    YearMonth ym = YearMonth.of(Integer.parseInt(periodo) + 1,
+                            mesVencimiento != null ? mesVencimiento : 3);
+                    fechaBase = ym.atDay(Math.min(dia, ym.lengthOfMonth()));
+                }
+                case "SEMANAL" -> fechaBase = LocalDate.parse(periodo).plusDays(7)
+                        .with(TemporalAdjusters.nextOrSame(DayOfWeek.of(dia)));
+                case "DIARIA" -> fechaBase = LocalDate.parse(periodo).plusDays(1);
+                case "ÚNICA VEZ", "UNICA VEZ", "ESPECIFICA", "ESPECÍFICA" -> fechaBase = LocalDate.parse(periodo);
+                default -> {
+                    YearMonth ym = YearMonth.parse(periodo).plusMonths(1);
+                    fechaBase = ym.atDay(Math.min(dia, ym.lengthOfMonth()));
+                }
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        if (plazoAdicionalDias != null && plazoAdicionalDias > 0) {
+            fechaBase = fechaBase.plusDays(plazoAdicionalDias);
+        }
+        return fechaBase;
+    }
+
+    private static LocalDate despuesDe(String periodo, String separador, int meses, int dia) {
+        String[] partes = periodo.split(separador);
+        int year = Integer.parseInt(partes[0]);
+        int numero = Integer.parseInt(partes[1]);
+        YearMonth siguiente = YearMonth.of(year, (numero - 1) * meses + meses).plusMonths(1);
+        return siguiente.atDay(Math.min(dia, siguiente.lengthOfMonth()));
+    }
+
+    private static List<LocalDate> calcularFechasVencimiento(String frecuencia, int dia, int mes,
+                                                             LocalDate inicio, LocalDate fin) {
+        List<LocalDate> fechas = new ArrayList<>();
+
+        switch (frecuencia) {
+            case "MENSUAL":
+                LocalDate fechaMensual = inicio.withDayOfMonth(Math.min(dia, inicio.lengthOfMonth()));
+                if (fechaMensual.isBefore(inicio)) {
+                    fechaMensual = fechaMensual.plusMonths(1);
+                }
+                while (!fechaMensual.isAfter(fin)) {
+                    int diaAjustado = Math.min(dia, fechaMensual.lengthOfMonth());
+                    fechas.add(fechaMensual.withDayOfMonth(diaAjustado));
+                    fechaMensual = fechaMensual.plusMonths(1);
+                }
+                break;
+
+            case "TRIMESTRAL":
+                int[] iniciosTrimestre = {1, 4, 7, 10};
+                for (int year = inicio.getYear(); year <= fin.getYear(); year++) {
+                    for (int inicioTrim : iniciosTrimestre) {
+                        int mesReal = inicioTrim + (mes - 1);
+                        if (mesReal > 12) continue;
+
+                        YearMonth ym = YearMonth.of(year, mesReal);
+                        LocalDate fecha = LocalDate.of(year, mesReal, Math.min(dia, ym.lengthOfMonth()));
+                        if (!fecha.isBefore(inicio) && !fecha.isAfter(fin)) {
+                            fechas.add(fecha);
+                        }
+                    }
+                }
+                break;
+
+            case "SEMESTRAL":
+                int[] iniciosSemestre = {1, 7};
+                for (int year = inicio.getYear(); year <= fin.getYear(); year++) {
+                    for (int inicioSem : iniciosSemestre) {
+                        int mesReal = inicioSem + (mes - 1);
+                        if (mesReal > 12) continue;
+
+                        YearMonth ym = YearMonth.of(year, mesReal);
+                        LocalDate fecha = LocalDate.of(year, mesReal, Math.min(dia, ym.lengthOfMonth()));
+                        if (!fecha.isBefore(inicio) && !fecha.isAfter(fin)) {
+                            fechas.add(fecha);
+                        }
+                    }
+                }
+                break;
+
+            case "ANUAL":
+                for (int year = inicio.getYear(); year <= fin.getYear(); year++) {
+                    YearMonth ym = YearMonth.of(year, mes);
+                    LocalDate fecha = LocalDate.of(year, mes, Math.min(dia, ym.lengthOfMonth()));
+                    if (!fecha.isBefore(inicio) && !fecha.isAfter(fin)) {
+                        fechas.add(fecha);
+                    }
+                }
+                break;
+
+            case "SEMANAL":
+                LocalDate fechaSemanal = inicio;
+                while (!fechaSemanal.isAfter(fin)) {
+                    fechas.add(fechaSemanal);
+                    fechaSemanal = fechaSemanal.plusWeeks(1);
+                }
+                break;
+
+            case "ÚNICA VEZ":
+                YearMonth ymUnica = YearMonth.of(inicio.getYear(), mes);
+                LocalDate fechaUnica = LocalDate.of(inicio.getYear(), mes, Math.min(dia, ymUnica.lengthOfMonth()));
+                if (!fechaUnica.isBefore(inicio) && !fechaUnica.isAfter(fin)) {
+                    fechas.add(fechaUnica);
+                }
+                break;
+
+            default:
+                LocalDate fechaDefault = inicio.withDayOfMonth(Math.min(dia, inicio.lengthOfMonth()));
+                while (!fechaDefault.isAfter(fin)) {
+                    fechas.add(fechaDefault);
+                    fechaDefault = fechaDefault.plusMonths(1);
+                }
+        }
+        return fechas;
+    }
+
+    private static String calcularPeriodoReportado(String frecuencia, LocalDate fecha) {
+        int year = fecha.getYear();
+        int month = fecha.getMonthValue();
+
+        switch (frecuencia) {
+            case "MENSUAL":
+                return String.format("%d-%02d", year, month);
+            case "TRIMESTRAL":
+                return String.format("%d-T%d", year, ((month - 1) / 3) + 1);
+            case "SEMESTRAL":
+                return String.format("%d-S%d", year, month <= 6 ? 1 : 2);
+            case "ANUAL":
+                return String.valueOf(year);
+            case "SEMANAL":
+                return String.format("%d-W%02d", year, fecha.getDayOfYear() / 7 + 1);
+            case "ÚNICA VEZ":
+                return String.format("UNICO-%d", year);
+            default:
+                return String.format("%d-%02d", year, month);
+        }
+    }
+}